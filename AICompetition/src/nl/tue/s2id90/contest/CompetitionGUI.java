@@ -11,11 +11,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -48,10 +44,11 @@ import net.xeoh.plugins.base.impl.PluginManagerFactory;
 import net.xeoh.plugins.base.options.addpluginsfrom.OptionReportAfter;
 import net.xeoh.plugins.base.util.PluginManagerUtil;
 import net.xeoh.plugins.base.util.uri.ClassURI;
-import nl.tue.s2id90.contest.util.Identity;
 import nl.tue.s2id90.contest.util.SearchTask;
 import nl.tue.s2id90.contest.util.TimedSearchTask;
+import nl.tue.s2id90.game.Adjudicator;
 import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.GameArchive;
 import nl.tue.s2id90.game.Game.Result;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
@@ -75,20 +72,34 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     protected GameGUI<S,Competitor,M> gameGUI;
     private final Predicate<Plugin> selector;
     private final String[] pluginFolders;
+    private final Adjudicator<M,S> adjudicator;
     protected Game currentGame=null;     // reference to current game, if this reference is null, there is no game going on
     protected List<CompetitionListener<M>> listeners = new ArrayList<>();
     private Competition competition;
+    private Standings<Competitor> standings;
+    private GameArchive<M,S> archive;  // null: finished games are not archived
+    private S startState;              // state in which the current game started
+    private List<M> gameMoves = new ArrayList<>(); // moves of the current game
     
     /**
      * Creates new form CompetitionGUI
      * @param selector predicate that only results in true if the argument plugin is a suitable plugin
-     * @param gameGUI
+     * @param pluginFolders
+     * @param adjudicator decides the results of the games
      */
-    public CompetitionGUI(Predicate<Plugin> selector, String[] pluginFolders) {
+    public CompetitionGUI(Predicate<Plugin> selector, String[] pluginFolders, Adjudicator<M,S> adjudicator) {
         this.selector = selector;
         this.pluginFolders = pluginFolders;
+        this.adjudicator = adjudicator;
     }
     
+    /**
+     * @param archive archive to which every finished game is added, or null
+     */
+    public void setArchive(GameArchive<M,S> archive) {
+        this.archive = archive;
+    }
+
     public void initComponents(GameGUI<S,Competitor,M> gameGUI) {
         this.gameGUI = gameGUI;
         initComponents();
@@ -375,12 +386,10 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     private void stopGameButtonActionPerformed(ActionEvent evt) {//GEN-FIRST:event_stopGameButtonActionPerformed
         if (currentSearchTask!=null) {
             currentSearchTask.stop();
-            currentGame = null;
-        } else {
-            currentGame = null;
-            updateGUI();
         }
-        finishGame(currentGame, gameGUI.getCurrentGameState());
+        // the stopped game is adjudicated; the move of a stopped search
+        // does not finish it again, see finishGame
+        finishGame(currentGame, gameGUI.getCurrentGameState(), Result.UNKNOWN);
     }//GEN-LAST:event_stopGameButtonActionPerformed
 
     
@@ -419,8 +428,6 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
      */
     public void startGame(Game game) {
         currentGame = game;
-        System.err.println("white="+game.first.toString());
-        System.err.println("black="+game.second.toString());
         
         // initialize game state
         notifyCompetitionListeners(game, true); // notify of start of game
@@ -430,14 +437,21 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         fillPlayerLabel(game.first, whiteLabel);
         fillPlayerLabel(game.second, blackLabel);
         
+        // a game that is played again loses its previous result
+        standings.remove(game);
+        game.setResult(Result.UNKNOWN);
+
         // start the game
-        continueGame(game, gs);
+        startState = (S) gs.clone();
+        gameMoves = new ArrayList<>();
+        adjudicator.start(gs);
+        continueGame(game, gs, Result.UNKNOWN);
     }
         
     SearchTask currentSearchTask=null;
-    private void continueGame(final Game game, final S gs) {
-        if ((currentGame==null) || gs.isEndState()) {
-            finishGame(game,gs);
+    private void continueGame(final Game game, final S gs, Result result) {
+        if ((currentGame==null) || gs.isEndState() || result!=Result.UNKNOWN) {
+            finishGame(game,gs,result);
         } else {
             updateGUI(game,gs); updateGUI();
             Player currentPlayer;
@@ -454,13 +468,22 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         }
     }
     
-    private void finishGame(final Game game, final S gs) {
+    /**
+     * ends the given game; its result is only recorded if it is the current
+     * game, so that a game that was already finished, e.g. by the stop button
+     * while a player was still searching, is not counted twice.
+     */
+    private void finishGame(final Game game, final S gs, Result result) {
+        boolean running = game!=null && game==currentGame;
         currentGame = null;
         updateGUI(); updateGUI(game,gs);
-        // for now, give a random result
-        Result[] values = Result.values();
-        int pick = new Random().nextInt(values.length - 1);
-        if (game!=null) game.setResult(Result.values()[pick]);
+        if (running) {
+            game.setResult(result!=Result.UNKNOWN ? result : adjudicator.adjudicate(gs));
+            standings.add(game);
+            if (archive!=null) {
+                archive.add(game, startState, gameMoves, timeSlider.getValue()*100L);
+            }
+        }
         gamesTable.setModel(gamesTable.getModel()); // redraw ????
         updateRanking();
         notifyCompetitionListeners(game,false); // notify of end of game
@@ -478,23 +501,23 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
                 
                 // sleep at least MIN DELAY ms before doing the move on the board
                 long dt = timer.elapsedTimeInMilliSeconds();
-                System.err.println("dt = " + dt + "/" + 1000*maxTime+"\n\n");
                 if (dt <MIN_DELAY) {
                     sleep(MIN_DELAY-dt);
                 }
                 
                 // apply move in the current game state
-                if (gs.getMoves().contains(m)) {
+                if (gs.isLegal(m)) {
                     //gs.doMove(m);
+                    gameMoves.add(m);
                     notifyCompetitionListeners(m); // notify of next AI move
                     //gameGUI.animateMove(m);
                     // recurse
-                    continueGame(game,gs); 
+                    continueGame(game,gs,adjudicator.moved(gs,m)); 
                 } else {
                     String message=("<html><center>"+(gs.isWhiteToMove()?"White":"Black") + " player ("+currentPlayer.getName()+")<br> tries an illegal move:<br>" + m);
                     LOG.log(Level.SEVERE, message);
                     JOptionPane.showMessageDialog(rootPane, message, "illegal move", JOptionPane.ERROR_MESSAGE);
-                    finishGame(game,gs); 
+                    finishGame(game,gs,Adjudicator.loss(gs)); 
                 }
 
             }
@@ -505,18 +528,6 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     }
     //</editor-fold>
      
-    private int getResult(Identity p) {
-        int result=0;
-        for (Game g : competition.getSchedule()) {
-            if (p == g.first) {
-                result += g.getResult().getWhitePoints();
-            } else if (p == g.second) {
-                result += g.getResult().getBlackPoints();
-            }
-        }
-        return result;
-    }
-    
     //<editor-fold defaultstate="collapsed" desc="update CompetitionGUI methods">
     private void updateGUI(Game game, S gs) {
         if (game!=null) {
@@ -530,34 +541,17 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     }
     
     private void updateRanking() {
-        final String[] columns = {"name", "W", "D","L", "P" };
-        final Class[] classes = {String.class, Integer.class, Integer.class, Integer.class, Integer.class};
-        
-        // create ordered list of players, ordered by points gained
-        final Set<Player> players = new TreeSet<>(new Comparator<Player>() {
-            @Override
-            public int compare(Player o1, Player o2) {
-                int result0 = getResult(o1);
-                int result1 = getResult(o2);
-                int compare = Integer.compare(result0, result1);
-                if (compare == 0) {
-                    return o1.getName().compareToIgnoreCase(o2.getName());
-                } else {
-                    return compare;
-                }
-            }
-        });
+        final String[] columns = {"name", "W", "D","L", "P", "Elo", "+-" };
+        final Class[] classes = {String.class, Integer.class, Integer.class, Integer.class, Integer.class, Long.class, Long.class};
         
-        for(Game game: competition.getSchedule()) {
-            players.add(game.first);
-            players.add(game.second);
-        }
+        // players ordered by points gained and, for equal points, by rating
+        final List<Standings.Score<Competitor>> ranking = standings.getRanking();
         
         rankingTable.setModel(new TableModel() {
             
             @Override
             public int getRowCount() {
-                return players.size();
+                return ranking.size();
             }
             
             @Override
@@ -582,11 +576,15 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
             
             @Override
             public Object getValueAt(int rowIndex, int columnIndex) {
-                Player[] h = players.toArray(new Player[0]);
-                if (columns[columnIndex].equals("name"))
-                    return h[rowIndex].getName();
-                else {
-                    return "0";
+                Standings.Score<Competitor> score = ranking.get(rowIndex);
+                switch (columnIndex) {
+                    case 0: return score.getPlayer().getName();
+                    case 1: return score.getWins();
+                    case 2: return score.getDraws();
+                    case 3: return score.getLosses();
+                    case 4: return score.getPoints();
+                    case 5: return Math.round(score.getElo());
+                    default: return Math.round(score.getEloError());
                 }
             }
             
@@ -656,6 +654,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         
         if (players!=null) {
             competition = new Competition(players);
+            standings = new Standings<>(players);
             fillTable(competition.getSchedule());
             updateRanking();
         }
@@ -689,7 +688,9 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
 
     @Override
     public void onHumanMove(M m) {
-        continueGame(currentGame,gameGUI.getCurrentGameState());
+        S gs = gameGUI.getCurrentGameState();
+        gameMoves.add(m);
+        continueGame(currentGame,gs,adjudicator.moved(gs,m));
     }
 
     @Override
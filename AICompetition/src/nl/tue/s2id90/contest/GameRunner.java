@@ -0,0 +1,203 @@
+package nl.tue.s2id90.contest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.game.Adjudicator;
+import nl.tue.s2id90.game.Game.Result;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+
+/**
+ * Plays games between two computer players without a GUI. Like a
+ * TimedSearchTask, a player is asked to stop when its time for a move is up;
+ * a player that does not return a move within twice that time, or that
+ * returns an illegal move, loses the game. All other results are decided by
+ * an Adjudicator.
+ *
+ * The time for a move is measured as cpu time of the threads that search, if
+ * the vm supports that, so that a player does not lose thinking time when
+ * several games are played at once on a busy machine. These are the thread
+ * that calls getMove() and the threads that a player starts from it, which
+ * are in the thread group of the runner; so a player that searches with
+ * several threads gets the same cpu time as one that searches with one. A
+ * search is stopped anyway after WALL_FACTOR times the move time on the
+ * clock.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public class GameRunner<M, S extends GameState<M>> {
+
+    private static final Logger LOG = Logger.getLogger(GameRunner.class.getName());
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final int WALL_FACTOR = 4;
+
+    private final long moveTime;
+    private final Adjudicator<M, S> adjudicator;
+    private final UnaryOperator<S> copy;
+    private final ThreadGroup group = new ThreadGroup("search");
+    private final ExecutorService searcher = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(group, r, "search");
+        t.setDaemon(true); // a hanging player should not keep the vm alive
+        return t;
+    });
+    private List<M> moves = new ArrayList<>();
+
+    /**
+     * @param moveTime thinking time per move in milliseconds
+     * @param adjudicator decides when a game ends and what its result is; it
+     * should end every game in a finite number of moves
+     * @param copy makes a copy of a state, in which a player searches
+     */
+    public GameRunner(long moveTime, Adjudicator<M, S> adjudicator, UnaryOperator<S> copy) {
+        this.moveTime = moveTime;
+        this.adjudicator = adjudicator;
+        this.copy = copy;
+    }
+
+    /**
+     * plays a game from the given state until it is finished.
+     *
+     * @param white player that plays the white pieces
+     * @param black player that plays the black pieces
+     * @param gs state in which the game starts; this state is updated with
+     * every move
+     * @return result of the game
+     */
+    public Result play(Player<M, S> white, Player<M, S> black, S gs) {
+        moves = new ArrayList<>();
+        adjudicator.start(gs);
+        while (true) {
+            Player<M, S> player = gs.isWhiteToMove() ? white : black;
+            if (gs.isEndState()) {
+                return adjudicator.adjudicate(gs);
+            }
+            M m = getMove(player, gs);
+            if (!gs.isLegal(m)) {
+                LOG.log(Level.WARNING, "{0} player ({1}) tries an illegal move: {2}",
+                        new Object[]{gs.isWhiteToMove() ? "White" : "Black", player.getName(), m});
+                return Adjudicator.loss(gs);
+            }
+            gs.doMove(m);
+            moves.add(m);
+            Result result = adjudicator.moved(gs, m);
+            if (result != Result.UNKNOWN) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * @return the moves of the last game played
+     */
+    public List<M> getMoves() {
+        return moves;
+    }
+
+    /**
+     * stops the threads of this runner.
+     */
+    public void shutdown() {
+        searcher.shutdownNow();
+    }
+
+    /**
+     * asks player for a move in a copy of gs; the player is stopped after
+     * moveTime milliseconds.
+     *
+     * @return the move, or null if the player failed to produce one in time
+     */
+    private M getMove(Player<M, S> player, S gs) {
+        // we copy the state here, so whatever the player does with the
+        // state, will not ruin the game!
+        S clone = copy.apply(gs);
+        Map<Long, Long> start = cpuTimes();
+        Future<M> search = searcher.submit(() -> player.getMove(clone));
+        try {
+            try {
+                awaitMoveTime(search, start);
+                return search.get(0, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                player.stop();
+                return search.get(moveTime, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException ex) {
+            search.cancel(true);
+            LOG.log(Level.WARNING, "{0} does not stop", player.getName());
+            return null;
+        } catch (ExecutionException ex) {
+            LOG.log(Level.WARNING, "exception in player " + player.getName(), ex.getCause());
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            search.cancel(true);
+            return null;
+        }
+    }
+
+    /**
+     * waits until the search is done or has used up its move time.
+     *
+     * @param cpuStart the cpu times of the threads of the group when the
+     * search started, see cpuTimes()
+     */
+    private void awaitMoveTime(Future<M> search, Map<Long, Long> cpuStart)
+            throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        long wallTime = TimeUnit.MILLISECONDS.toNanos(moveTime * WALL_FACTOR);
+        long poll = Math.max(1, moveTime / 20);
+        while (!search.isDone()) {
+            long wall = System.nanoTime() - start;
+            long cpu = wall;
+            if (cpuStart != null) {
+                cpu = 0;
+                for (Map.Entry<Long, Long> thread : cpuTimes().entrySet()) {
+                    cpu += thread.getValue() - cpuStart.getOrDefault(thread.getKey(), 0L);
+                }
+            }
+            if (cpu >= TimeUnit.MILLISECONDS.toNanos(moveTime) || wall >= wallTime) {
+                return;
+            }
+            try {
+                search.get(poll, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                // not done yet; check the clock again
+            }
+        }
+    }
+
+    /**
+     * @return cpu time in nanoseconds of every live thread in the group of
+     * this runner, by thread id, or null if cpu times are not available
+     */
+    private Map<Long, Long> cpuTimes() {
+        if (!THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return null;
+        }
+        Thread[] threads = new Thread[group.activeCount() + 16];
+        int n = group.enumerate(threads);
+        Map<Long, Long> times = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            long cpu = THREADS.getThreadCpuTime(threads[i].getId());
+            if (cpu >= 0) {     // -1 if the thread died in the mean time
+                times.put(threads[i].getId(), cpu);
+            }
+        }
+        return times;
+    }
+}
@@ -0,0 +1,298 @@
+package nl.tue.s2id90.contest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+import net.xeoh.plugins.base.Plugin;
+import nl.tue.s2id90.draughts.DraughtsAdjudicator;
+import nl.tue.s2id90.draughts.DraughtsPlayerProvider;
+import nl.tue.s2id90.draughts.DraughtsPlugin;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.OpeningSuite;
+import nl.tue.s2id90.draughts.PdnArchive;
+import nl.tue.s2id90.draughts.RemoteDraughtsPlayer;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.Adjudicator;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import nl.tue.s2id90.game.GameArchive;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+import org10x10.dam.game.Move;
+
+/**
+ * Plays a match between two computer players, A and B, until a sequential
+ * probability ratio test decides whether A is stronger than B. Usage:
+ * <pre>
+ * java nl.tue.s2id90.contest.MatchRunner -a name -b name [-elo0 e] [-elo1 e] [-alpha a] [-beta b]
+ *      [-pairs n] [-opening n] [-openings file] [-time ms] [-threads k] [-sandbox heap] [-pdn file]
+ *      pluginFolder ...
+ * </pre>
+ * where -a and -b are the names of the players, -elo0 and -elo1 the Elo
+ * differences of H0 and H1 (default 0 and 10), -alpha and -beta the error
+ * probabilities (default 0.05), -pairs the maximum number of pairs of games
+ * (default 10000), -opening the number of random moves with which every
+ * opening starts (default 6), -openings a file with start positions that are
+ * used in turn instead of random openings (see OpeningSuite), -time the
+ * thinking time per move (default 200 ms), -threads the number of pairs
+ * that is played at the same time (default the number of processors) and
+ * -sandbox the heap size in MB of the vm in which every player plays every
+ * game, see RemoteDraughtsPlayer; without -sandbox the players run in this
+ * vm. With -pdn, every game is appended to the given PDN archive, see
+ * PdnArchive.
+ * <p>
+ * Games are played in pairs: both games of a pair start from the same opening
+ * and A plays white in the first and black in the second game. After every
+ * pair the state of the test and the estimated Elo difference, with its 95%
+ * confidence interval, are printed. The match stops as soon as H0 or H1 is
+ * accepted.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ * @param <Competitor> Player
+ * @param <P> PlayerProvider
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public class MatchRunner<Competitor extends Player<M, S>, P extends PlayerProvider<Competitor>, M, S extends GameState<M>> {
+
+    private static final Logger LOG = Logger.getLogger(MatchRunner.class.getName());
+
+    private final Class<P> pluginType;
+    private final Predicate<Plugin> selector;
+    private final Supplier<S> initialState;
+    private final UnaryOperator<S> copy;
+    private final Supplier<Adjudicator<M, S>> adjudicator;
+    private final Random random = new Random();
+    private String nameA, nameB;
+    private double elo0 = 0, elo1 = 10, alpha = 0.05, beta = 0.05;
+    private int maxPairs = 10000;
+    private int openingMoves = 6;
+    private List<Supplier<S>> openings;   // null: random openings
+    private int nextOpening = 0;
+    private long moveTime = 200;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Function<String, Supplier<Competitor>> sandbox; // null: players run in this vm
+    private GameArchive<M, S> archive; // null: games are not archived
+    private final Set<Competitor> shared = new HashSet<>(); // players without factory, which are never released
+
+    /**
+     * @param pluginType type of the plugins in which the players are searched
+     * @param selector selects the plugins in which the players are searched
+     * @param initialState creates the state in which a game starts
+     * @param copy makes a copy of a state
+     * @param adjudicator creates the adjudicator of a game
+     */
+    public MatchRunner(Class<P> pluginType, Predicate<Plugin> selector, Supplier<S> initialState,
+            UnaryOperator<S> copy, Supplier<Adjudicator<M, S>> adjudicator) {
+        this.pluginType = pluginType;
+        this.selector = selector;
+        this.initialState = initialState;
+        this.copy = copy;
+        this.adjudicator = adjudicator;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        MatchRunner<DraughtsPlayer, DraughtsPlayerProvider, Move, DraughtsState> runner = new MatchRunner<>(
+                DraughtsPlayerProvider.class,
+                p -> p instanceof DraughtsPlugin,
+                DraughtsState::new,
+                DraughtsState::clone,
+                () -> new DraughtsAdjudicator(150, 2, 300)
+        );
+        List<String> pluginFolders = new ArrayList<>();
+        PdnArchive pdn = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-a":
+                    runner.nameA = args[++i];
+                    break;
+                case "-b":
+                    runner.nameB = args[++i];
+                    break;
+                case "-elo0":
+                    runner.elo0 = Double.parseDouble(args[++i]);
+                    break;
+                case "-elo1":
+                    runner.elo1 = Double.parseDouble(args[++i]);
+                    break;
+                case "-alpha":
+                    runner.alpha = Double.parseDouble(args[++i]);
+                    break;
+                case "-beta":
+                    runner.beta = Double.parseDouble(args[++i]);
+                    break;
+                case "-pairs":
+                    runner.maxPairs = Integer.parseInt(args[++i]);
+                    break;
+                case "-opening":
+                    runner.openingMoves = Integer.parseInt(args[++i]);
+                    break;
+                case "-openings":
+                    runner.openings = OpeningSuite.load(new File(args[++i])).getStates();
+                    break;
+                case "-time":
+                    runner.moveTime = Long.parseLong(args[++i]);
+                    break;
+                case "-threads":
+                    runner.threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-sandbox":
+                    int heap = Integer.parseInt(args[++i]);
+                    runner.sandbox = name
+                            -> RemoteDraughtsPlayer.factory(name, pluginFolders, heap, (int) runner.moveTime);
+                    break;
+                case "-pdn":
+                    pdn = new PdnArchive(new File(args[++i]), "MatchRunner");
+                    runner.archive = pdn;
+                    break;
+                default:
+                    pluginFolders.add(args[i]);
+            }
+        }
+        try {
+            runner.go(pluginFolders.toArray(new String[0]));
+        } finally {
+            if (pdn != null) {
+                pdn.close();
+            }
+        }
+    }
+
+    /**
+     * plays the match and prints its progress and outcome.
+     *
+     * @return the decision of the test; NONE if the maximum number of pairs
+     * was played without a decision
+     */
+    Sprt.Decision go(String[] pluginFolders) throws InterruptedException {
+        List<P> plugins = TournamentRunner.getPlugins(pluginFolders, pluginType, selector);
+        Supplier<Competitor> a = find(plugins, nameA);
+        Supplier<Competitor> b = find(plugins, nameB);
+        Sprt sprt = new Sprt(elo0, elo1, alpha, beta);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Integer> done = new ExecutorCompletionService<>(pool);
+        int submitted = 0, running = 0;
+        try {
+            while (sprt.getDecision() == Sprt.Decision.NONE && (submitted < maxPairs || running > 0)) {
+                while (running < threads && submitted < maxPairs) {
+                    S opening = opening();
+                    done.submit(() -> playPair(a, b, opening));
+                    submitted++;
+                    running++;
+                }
+                sprt.add(done.take().get());
+                running--;
+                System.out.println(sprt);
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        Sprt.Decision decision = sprt.getDecision();
+        System.out.format("%s: %s vs %s, elo %.1f +- %.1f after %d pairs\n",
+                decision == Sprt.Decision.H1 ? "H1 accepted" : decision == Sprt.Decision.H0 ? "H0 accepted" : "no decision",
+                nameA, nameB, sprt.elo(), sprt.eloError(), sprt.getPairs());
+        return decision;
+    }
+
+    /**
+     * @return a factory for the player with the given name; if its plugin has
+     * no factory, the player itself is used and pairs are played one at a time
+     */
+    private Supplier<Competitor> find(List<P> plugins, String name) {
+        List<String> names = new ArrayList<>();
+        for (P plugin : plugins) {
+            for (Competitor player : plugin.getPlayers()) {
+                if (player.getName().equals(name)) {
+                    if (sandbox != null) {
+                        return sandbox.apply(name);
+                    }
+                    Supplier<Competitor> factory = plugin.getFactory(player);
+                    if (factory == null) {
+                        LOG.warning(name + " has no factory; pairs are played one at a time");
+                        threads = 1;
+                        shared.add(player);
+                        return () -> player;
+                    }
+                    return factory;
+                }
+                names.add(player.getName());
+            }
+        }
+        throw new IllegalArgumentException("unknown player " + name + "; available players: " + names);
+    }
+
+    /**
+     * @return the next position of the openings, or the initial state followed
+     * by openingMoves random moves if there are no openings
+     */
+    private S opening() {
+        if (openings != null) {
+            return openings.get(nextOpening++ % openings.size()).get();
+        }
+        S s = initialState.get();
+        for (int i = 0; i < openingMoves && !s.isEndState(); i++) {
+            List<M> moves = s.getMoves();
+            s.doMove(moves.get(random.nextInt(moves.size())));
+        }
+        return s;
+    }
+
+    /**
+     * plays the two games of a pair from the given opening.
+     *
+     * @return the points of A in both games, between 0 and 4
+     */
+    private int playPair(Supplier<Competitor> a, Supplier<Competitor> b, S opening) {
+        GameRunner<M, S> gameRunner = new GameRunner<>(moveTime, adjudicator.get(), copy);
+        try {
+            Result first = play(gameRunner, a, b, opening);
+            Result second = play(gameRunner, b, a, opening);
+            return first.getWhitePoints() + second.getBlackPoints();
+        } finally {
+            gameRunner.shutdown();
+        }
+    }
+
+    /**
+     * plays one game with fresh instances of the players, so that a player
+     * that failed in the first game of a pair, does not lose the second game
+     * as well. The game is played in a copy of opening. The instances are
+     * released afterwards, unless they are shared players without factory.
+     */
+    private Result play(GameRunner<M, S> gameRunner, Supplier<Competitor> white, Supplier<Competitor> black, S opening) {
+        Competitor w = white.get(), b = black.get();
+        try {
+            Result result = gameRunner.play(w, b, copy.apply(opening));
+            if (archive != null) {
+                Game game = new Game(w, b);
+                game.setResult(result);
+                archive.add(game, opening, gameRunner.getMoves(), moveTime);
+            }
+            return result;
+        } finally {
+            if (!shared.contains(w)) {
+                w.release();
+            }
+            if (!shared.contains(b)) {
+                b.release();
+            }
+        }
+    }
+}
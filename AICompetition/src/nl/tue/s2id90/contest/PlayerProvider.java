@@ -1,6 +1,7 @@
 package nl.tue.s2id90.contest;
 
 import java.util.List;
+import java.util.function.Supplier;
 import nl.tue.s2id90.game.Player;
 
 /**
@@ -34,4 +35,14 @@ public class PlayerProvider<P extends Player> implements Provider {
     public List<P> getPlayers() {
         return null;
     }
+
+    /**
+     * @param player one of the players of getPlayers()
+     * @return a supplier of fresh instances of the given player, that can play
+     * games at the same time as the player itself; null if this provider can
+     * only deliver the player itself.
+     */
+    public Supplier<P> getFactory(P player) {
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package nl.tue.s2id90.contest;
+
+/**
+ * Sequential probability ratio test of the hypothesis H1: "player A is elo1
+ * Elo stronger than player B" against H0: "A is elo0 Elo stronger than B",
+ * with error probabilities alpha (accepting H1 when H0 holds) and beta.
+ *
+ * The test is fed with pairs of games from the same opening, with swapped
+ * colours. Per pair, A scores 0, 1/4, 1/2, 3/4 or 1 (the pentanomial model),
+ * which takes the correlation between the two games of a pair into account.
+ * The log-likelihood ratio is the usual normal approximation of the
+ * generalized SPRT:
+ * <pre>
+ *   LLR = n (s1 - s0) (2 mean - s0 - s1) / (2 variance)
+ * </pre>
+ * where n is the number of pairs, mean and variance are those of the pair
+ * scores, and s0 and s1 are the expected scores for elo0 and elo1.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class Sprt {
+
+    public enum Decision {
+        H0, H1, NONE
+    }
+
+    private final double elo0, elo1;
+    private final double lower, upper;      // bounds on the llr
+    private final int[] pairs = new int[5]; // pairs[i]: number of pairs in which A scored i/4
+
+    // pseudo count that is added to every pair score when the mean and the
+    // variance are computed, so that the variance is never 0, e.g. when A
+    // wins all pairs, and a few lucky pairs do not decide the test
+    private static final double PRIOR = 0.25;
+
+    /**
+     * @param elo0 Elo difference under H0
+     * @param elo1 Elo difference under H1, larger than elo0
+     * @param alpha probability of accepting H1 if H0 is true
+     * @param beta probability of accepting H0 if H1 is true
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("elo1 should be larger than elo0");
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lower = Math.log(beta / (1 - alpha));
+        this.upper = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * adds the result of a pair of games.
+     *
+     * @param points points of A in both games, as in Game.Result, i.e. 0, 1,
+     * 2, 3 or 4
+     */
+    public synchronized void add(int points) {
+        pairs[points]++;
+    }
+
+    /**
+     * @return the number of pairs
+     */
+    public synchronized int getPairs() {
+        int n = 0;
+        for (int p : pairs) {
+            n += p;
+        }
+        return n;
+    }
+
+    /**
+     * @return the number of pairs in which A scored points/4
+     */
+    public synchronized int getPairs(int points) {
+        return pairs[points];
+    }
+
+    public double getLowerBound() {
+        return lower;
+    }
+
+    public double getUpperBound() {
+        return upper;
+    }
+
+    /**
+     * @return the log-likelihood ratio of H1 against H0
+     */
+    public synchronized double llr() {
+        int n = getPairs();
+        if (n == 0) {
+            return 0;  // no information yet
+        }
+        double variance = variance();
+        double s0 = score(elo0), s1 = score(elo1);
+        return n * (s1 - s0) * (2 * mean() - s0 - s1) / (2 * variance);
+    }
+
+    /**
+     * @return H1 or H0 if the llr passed one of the bounds, NONE otherwise
+     */
+    public Decision getDecision() {
+        double llr = llr();
+        return llr >= upper ? Decision.H1 : llr <= lower ? Decision.H0 : Decision.NONE;
+    }
+
+    /**
+     * @return the estimated Elo difference between A and B
+     */
+    public synchronized double elo() {
+        return elo(mean());
+    }
+
+    /**
+     * @return half the width of the 95% confidence interval of elo()
+     */
+    public synchronized double eloError() {
+        int n = getPairs();
+        if (n < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = mean();
+        double error = 1.96 * Math.sqrt(variance() / n);
+        return (elo(mean + error) - elo(mean - error)) / 2;
+    }
+
+    /**
+     * @return the number of pairs plus the pseudo counts of the prior
+     */
+    private double weight() {
+        return getPairs() + pairs.length * PRIOR;
+    }
+
+    /**
+     * @return average score of A per pair, between 0 and 1
+     */
+    double mean() {
+        double sum = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            sum += (pairs[i] + PRIOR) * i / 4.0;
+        }
+        return sum / weight();
+    }
+
+    /**
+     * @return variance of the pair scores around mean(); the squared
+     * deviations include the pseudo counts, so they are divided by the same
+     * weight as the scores in mean()
+     */
+    double variance() {
+        double mean = mean();
+        double sum = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            sum += (pairs[i] + PRIOR) * (i / 4.0 - mean) * (i / 4.0 - mean);
+        }
+        return sum / weight();
+    }
+
+    /**
+     * @return the expected score for the given Elo difference
+     */
+    static double score(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * @return the Elo difference for the given expected score
+     */
+    static double elo(double score) {
+        score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("pairs %d [%d %d %d %d %d] llr %.2f [%.2f, %.2f] elo %.1f +- %.1f",
+                getPairs(), pairs[0], pairs[1], pairs[2], pairs[3], pairs[4],
+                llr(), lower, upper, elo(), eloError());
+    }
+}
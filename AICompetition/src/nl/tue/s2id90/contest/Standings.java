@@ -0,0 +1,219 @@
+package nl.tue.s2id90.contest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import nl.tue.s2id90.game.Player;
+
+/**
+ * The number of wins, draws, losses and points of every player in a
+ * competition, and their Elo ratings. Results can be added by several threads
+ * at once; adding a result takes constant time.
+ * <p>
+ * Ratings are computed on demand by fitting a Bradley-Terry model, in which
+ * player i scores against player j with probability g[i] / (g[i] + g[j]), to
+ * the points of all pairs of players, with the MM algorithm of Hunter (2004).
+ * A draw counts as half a win. Every player also gets one virtual draw against
+ * a player of average strength, so that a player that won or lost all its
+ * games still gets a finite rating. Ratings are in Elo, i.e. 400 log10(g),
+ * with an average of 0; the confidence interval of a rating is computed from
+ * the Fisher information of that rating alone.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ * @param <P> Player
+ */
+public class Standings<P extends Player<?, ?>> {
+
+    private static final int ITERATIONS = 10000;
+    private static final double PRECISION = 1e-9;
+
+    /**
+     * the score of one player.
+     *
+     * @param <P> Player
+     */
+    public static class Score<P extends Player<?, ?>> {
+
+        private final P player;
+        private final int wins, draws, losses, points;
+        private final double elo, eloError;
+
+        private Score(P player, int wins, int draws, int losses, int points, double elo, double eloError) {
+            this.player = player;
+            this.wins = wins;
+            this.draws = draws;
+            this.losses = losses;
+            this.points = points;
+            this.elo = elo;
+            this.eloError = eloError;
+        }
+
+        public P getPlayer() {
+            return player;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public int getGames() {
+            return wins + draws + losses;
+        }
+
+        /**
+         * @return the Elo rating of the player
+         */
+        public double getElo() {
+            return elo;
+        }
+
+        /**
+         * @return half the width of the 95% confidence interval of getElo()
+         */
+        public double getEloError() {
+            return eloError;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d\t%d\t%d\t%d\t%.0f\t%.0f\t%s",
+                    points, wins, draws, losses, elo, eloError, player.getName());
+        }
+    }
+
+    private final List<P> players = new ArrayList<>();
+    private final Map<Player<?, ?>, Integer> index = new IdentityHashMap<>();
+    private final int[] wins, draws, losses, points;
+    private final int[][] games;        // games[i][j]: number of games between i and j
+    private final int[][] pairPoints;   // pairPoints[i][j]: points of i against j
+
+    /**
+     * @param players the players in the competition
+     */
+    public Standings(List<? extends P> players) {
+        for (P p : players) {
+            index.put(p, this.players.size());
+            this.players.add(p);
+        }
+        int n = players.size();
+        wins = new int[n];
+        draws = new int[n];
+        losses = new int[n];
+        points = new int[n];
+        games = new int[n][n];
+        pairPoints = new int[n][n];
+    }
+
+    /**
+     * adds the result of the given, finished, game.
+     */
+    public void add(Game game) {
+        add(game, 1);
+    }
+
+    /**
+     * removes the result of the given game, e.g. before it is played again.
+     */
+    public void remove(Game game) {
+        add(game, -1);
+    }
+
+    private synchronized void add(Game game, int sign) {
+        Result r = game.getResult();
+        if (r != Result.UNKNOWN) {
+            int w = index.get(game.first), b = index.get(game.second);
+            add(w, b, r.getWhitePoints(), r.getBlackPoints(), sign);
+            add(b, w, r.getBlackPoints(), r.getWhitePoints(), sign);
+        }
+    }
+
+    private void add(int i, int j, int p, int q, int sign) {
+        points[i] += sign * p;
+        games[i][j] += sign;
+        pairPoints[i][j] += sign * p;
+        if (p > q) {
+            wins[i] += sign;
+        } else if (p < q) {
+            losses[i] += sign;
+        } else {
+            draws[i] += sign;
+        }
+    }
+
+    /**
+     * @return the scores of all players, sorted on decreasing number of points
+     * and, for equal points, on decreasing rating
+     */
+    public List<Score<P>> getRanking() {
+        int n = players.size();
+        int[][] games = new int[n][], pairPoints = new int[n][];
+        int[] wins, draws, losses, points;
+        synchronized (this) {
+            for (int i = 0; i < n; i++) {
+                games[i] = this.games[i].clone();
+                pairPoints[i] = this.pairPoints[i].clone();
+            }
+            wins = this.wins.clone();
+            draws = this.draws.clone();
+            losses = this.losses.clone();
+            points = this.points.clone();
+        }
+
+        // fit the Bradley-Terry model; Result points are half points, so a
+        // player has pairPoints/2 wins
+        double[] g = new double[n];
+        java.util.Arrays.fill(g, 1);
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            double change = 0;
+            double logMean = 0;
+            for (int i = 0; i < n; i++) {
+                double w = 0.5, d = 1 / (g[i] + 1); // the virtual draw
+                for (int j = 0; j < n; j++) {
+                    w += pairPoints[i][j] / 2.0;
+                    d += games[i][j] / (g[i] + g[j]);
+                }
+                double gi = w / d;
+                change = Math.max(change, Math.abs(Math.log(gi / g[i])));
+                g[i] = gi;
+            }
+            for (int i = 0; i < n; i++) {
+                logMean += Math.log(g[i]) / n;
+            }
+            for (int i = 0; i < n; i++) {
+                g[i] /= Math.exp(logMean);
+            }
+            if (change < PRECISION) {
+                break;
+            }
+        }
+
+        List<Score<P>> ranking = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double information = g[i] / (g[i] + 1) / (g[i] + 1);
+            for (int j = 0; j < n; j++) {
+                information += games[i][j] * g[i] * g[j] / (g[i] + g[j]) / (g[i] + g[j]);
+            }
+            double elo = 400 * Math.log10(g[i]);
+            double eloError = 1.96 * 400 / Math.log(10) / Math.sqrt(information);
+            ranking.add(new Score<>(players.get(i), wins[i], draws[i], losses[i], points[i], elo, eloError));
+        }
+        ranking.sort(Comparator.<Score<P>>comparingInt(Score::getPoints).thenComparingDouble(Score::getElo).reversed());
+        return ranking;
+    }
+}
@@ -0,0 +1,343 @@
+package nl.tue.s2id90.contest;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import net.xeoh.plugins.base.Plugin;
+import net.xeoh.plugins.base.PluginManager;
+import net.xeoh.plugins.base.impl.PluginManagerFactory;
+import net.xeoh.plugins.base.options.addpluginsfrom.OptionReportAfter;
+import net.xeoh.plugins.base.util.PluginManagerUtil;
+import net.xeoh.plugins.base.util.uri.ClassURI;
+import nl.tue.s2id90.draughts.DraughtsAdjudicator;
+import nl.tue.s2id90.draughts.DraughtsPlayerProvider;
+import nl.tue.s2id90.draughts.DraughtsPlugin;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.OpeningSuite;
+import nl.tue.s2id90.draughts.PdnArchive;
+import nl.tue.s2id90.draughts.RemoteDraughtsPlayer;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.draughts.player.SearchStats;
+import nl.tue.s2id90.game.Adjudicator;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.GameArchive;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+import org10x10.dam.game.Move;
+
+/**
+ * Plays a full competition between all computer players in the given plugin
+ * folders without a GUI, and writes the results to a file. Usage:
+ * <pre>
+ * java nl.tue.s2id90.contest.TournamentRunner [-time ms] [-moves n] [-adjudicate n] [-margin m] [-threads k]
+ *      [-openings file] [-sandbox heap] [-stats file] [-pdn file] [-out file] pluginFolder ...
+ * </pre>
+ * where -time is the thinking time per move (default 200 ms, which is what
+ * the competition gui uses by default), -moves the number of moves (plies)
+ * after which a game ends (default 300), -adjudicate the number of moves
+ * after which a player that is -margin men ahead wins (default 150 and 2, see
+ * DraughtsAdjudicator), -threads the maximum number of games
+ * that is played at the same time (default the number of processors),
+ * -openings a file with start positions (see OpeningSuite) and -out the
+ * results file (default results.txt). With an openings file, every pair of
+ * players plays every opening with both colours; otherwise all games start
+ * from the initial position. The results file has one line per game with the
+ * white player, the black player, the result, the number of moves and the
+ * number of the opening, separated by tabs, followed by the ranking with
+ * points, wins, draws, losses, Elo rating and the 95% error of the rating (see
+ * Standings).
+ * <p>
+ * With -pdn, every game is appended to the given PDN archive (see
+ * PdnArchive), with the names of the players, the result and the thinking
+ * time.</p>
+ * <p>
+ * Every game gets its own state and, if the plugin of a player has a factory
+ * for it (see PlayerProvider.getFactory), its own player instances. A player
+ * without a factory never plays two games at the same time.</p>
+ * <p>
+ * With -sandbox, every player plays every game in a vm of its own, with a
+ * heap of at most heap MB (see RemoteDraughtsPlayer). A player that crashes,
+ * runs out of memory or does not stop then loses only that game.</p>
+ * <p>
+ * With -stats, the search statistics of the players (see SearchStats) are
+ * written to the given file after every game, one line per iteration, in JSON
+ * if the name of the file ends with .json and in CSV otherwise. Iterations
+ * that did not fit in the statistics of a player during a game are reported
+ * as a warning. Sandboxed players do not report statistics, so -stats cannot
+ * be combined with -sandbox.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ * @param <Competitor> Player
+ * @param <P> PlayerProvider
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public class TournamentRunner<Competitor extends Player<M, S>, P extends PlayerProvider<Competitor>, M, S extends GameState<M>> {
+
+    private static final Logger LOG = Logger.getLogger(TournamentRunner.class.getName());
+    private static final String[] STATS_COLUMNS = {"white", "black", "opening", "player"};
+
+    private final Class<P> pluginType;
+    private final Predicate<Plugin> selector;
+    private List<Supplier<S>> openings;
+    private final UnaryOperator<S> copy;
+    private final Supplier<Adjudicator<M, S>> adjudicator;
+    private long moveTime = 200;
+    private File out = new File("results.txt");
+    private File statsFile; // null: no search statistics are written
+    private GameArchive<M, S> archive; // null: games are not archived
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final Map<Player<?, ?>, Supplier<Competitor>> factories = new IdentityHashMap<>(); // shared players supply themselves
+    private final Set<Player<?, ?>> shared = new HashSet<>(); // players without factory
+    private Function<Competitor, Supplier<Competitor>> sandbox; // null: players run in this vm
+
+    /**
+     * @param pluginType type of the plugins that take part
+     * @param selector selects the plugins that take part
+     * @param initialState creates the state in which a game starts
+     * @param copy makes a copy of a state
+     * @param adjudicator creates the adjudicator of a game
+     */
+    public TournamentRunner(Class<P> pluginType, Predicate<Plugin> selector, Supplier<S> initialState,
+            UnaryOperator<S> copy, Supplier<Adjudicator<M, S>> adjudicator) {
+        this.pluginType = pluginType;
+        this.selector = selector;
+        this.openings = Collections.singletonList(initialState);
+        this.copy = copy;
+        this.adjudicator = adjudicator;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] adjudication = {150, 2, 300}; // adjudicate after, margin, maximum number of moves
+        TournamentRunner<DraughtsPlayer, DraughtsPlayerProvider, Move, DraughtsState> runner = new TournamentRunner<>(
+                DraughtsPlayerProvider.class,
+                p -> p instanceof DraughtsPlugin,
+                DraughtsState::new,
+                DraughtsState::clone,
+                () -> new DraughtsAdjudicator(adjudication[0], adjudication[1], adjudication[2])
+        );
+        List<String> pluginFolders = new ArrayList<>();
+        PdnArchive pdn = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-time":
+                    runner.moveTime = Long.parseLong(args[++i]);
+                    break;
+                case "-moves":
+                    adjudication[2] = Integer.parseInt(args[++i]);
+                    break;
+                case "-adjudicate":
+                    adjudication[0] = Integer.parseInt(args[++i]);
+                    break;
+                case "-margin":
+                    adjudication[1] = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    runner.threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-out":
+                    runner.out = new File(args[++i]);
+                    break;
+                case "-stats":
+                    runner.statsFile = new File(args[++i]);
+                    break;
+                case "-pdn":
+                    pdn = new PdnArchive(new File(args[++i]), "TournamentRunner");
+                    runner.archive = pdn;
+                    break;
+                case "-openings":
+                    runner.openings = OpeningSuite.load(new File(args[++i])).getStates();
+                    break;
+                case "-sandbox":
+                    int heap = Integer.parseInt(args[++i]);
+                    runner.sandbox = player
+                            -> RemoteDraughtsPlayer.factory(player.getName(), pluginFolders, heap, (int) runner.moveTime);
+                    break;
+                default:
+                    pluginFolders.add(args[i]);
+            }
+        }
+        if (runner.sandbox != null && runner.statsFile != null) {
+            throw new IllegalArgumentException("-stats cannot be combined with -sandbox: "
+                    + "sandboxed players do not report search statistics");
+        }
+        try {
+            runner.go(pluginFolders.toArray(new String[0]));
+        } finally {
+            if (pdn != null) {
+                pdn.close();
+            }
+        }
+    }
+
+    void go(String[] pluginFolders) throws FileNotFoundException, InterruptedException {
+        List<Competitor> players = new ArrayList<>();
+        for (P plugin : getPlugins(pluginFolders)) {
+            for (Competitor player : plugin.getPlayers()) {
+                if (!player.isHuman()) {
+                    players.add(player);
+                    Supplier<Competitor> factory = sandbox != null ? sandbox.apply(player) : plugin.getFactory(player);
+                    if (factory == null) {
+                        shared.add(player);
+                        factory = () -> player;
+                    }
+                    factories.put(player, factory);
+                }
+            }
+        }
+        Competition competition = new Competition(players);
+        List<Game> pending = new LinkedList<>();
+        Map<Game, Integer> openingOf = new IdentityHashMap<>();
+        for (Game g : competition.getSchedule()) {
+            for (int i = 0; i < openings.size(); i++) {
+                Game game = new Game(g.first, g.second);
+                openingOf.put(game, i);
+                pending.add(game);
+            }
+        }
+        int total = pending.size();
+        Standings<Competitor> standings = new Standings<>(players);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Game> done = new ExecutorCompletionService<>(pool);
+        Set<Player<?, ?>> busy = new HashSet<>(); // shared players that are playing
+        int running = 0;
+        SearchStats.Format format = statsFile != null && statsFile.getName().endsWith(".json")
+                ? SearchStats.Format.JSON : SearchStats.Format.CSV;
+        try (PrintWriter results = new PrintWriter(out);
+                PrintWriter stats = statsFile == null ? null : new PrintWriter(statsFile)) {
+            if (stats != null && format == SearchStats.Format.CSV) {
+                stats.println(SearchStats.header(STATS_COLUMNS));
+            }
+            for (int count = 1; count <= total; count++) {
+                // start every game of which both players are free
+                for (Iterator<Game> it = pending.iterator(); it.hasNext() && running < threads;) {
+                    Game game = it.next();
+                    if (!busy.contains(game.first) && !busy.contains(game.second)) {
+                        if (shared.contains(game.first)) {
+                            busy.add(game.first);
+                        }
+                        if (shared.contains(game.second)) {
+                            busy.add(game.second);
+                        }
+                        it.remove();
+                        running++;
+                        int opening = openingOf.get(game);
+                        done.submit(() -> play(game, opening, standings, results, stats, format));
+                    }
+                }
+                Game game = done.take().get();
+                running--;
+                LOG.info(String.format("game %d/%d: %s: %s", count, total, game, game.getResult()));
+                busy.remove(game.first);
+                busy.remove(game.second);
+            }
+            results.println();
+            standings.getRanking().forEach(results::println);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * plays the given game from the given opening and adds its result to the
+     * standings and the results file.
+     *
+     * @return game
+     */
+    private Game play(Game game, int opening, Standings<Competitor> standings, PrintWriter results,
+            PrintWriter stats, SearchStats.Format format) {
+        Competitor white = factories.get(game.first).get();
+        Competitor black = factories.get(game.second).get();
+        GameRunner<M, S> gameRunner = new GameRunner<>(moveTime, adjudicator.get(), copy);
+        S start = openings.get(opening).get();
+        try {
+            game.setResult(gameRunner.play(white, black, copy.apply(start)));
+        } finally {
+            gameRunner.shutdown();
+            if (white != game.first) {
+                white.release();
+            }
+            if (black != game.second) {
+                black.release();
+            }
+        }
+        standings.add(game);
+        if (archive != null) {
+            archive.add(game, start, gameRunner.getMoves(), moveTime);
+        }
+        if (stats != null) {
+            synchronized (stats) {
+                writeStats(white, game, opening, stats, format);
+                writeStats(black, game, opening, stats, format);
+                stats.flush();
+            }
+        }
+        synchronized (results) {
+            results.format("%s\t%s\t%s\t%d\t%d\n",
+                    white.getName(), black.getName(), game.getResult(), gameRunner.getMoves().size(), opening);
+            results.flush(); // partial results survive a crash or kill
+        }
+        return game;
+    }
+
+    /**
+     * writes and clears the search statistics of the given player, if it keeps
+     * them.
+     */
+    private static void writeStats(Player<?, ?> player, Game game, int opening, PrintWriter stats, SearchStats.Format format) {
+        if (player instanceof DraughtsPlayer) {
+            SearchStats s = ((DraughtsPlayer) player).getSearchStats();
+            if (s != null) {
+                if (s.getDropped() > 0) {
+                    LOG.warning(String.format("%s: %d iterations of %s were dropped from the search statistics",
+                            game, s.getDropped(), player.getName()));
+                }
+                s.write(stats, format, STATS_COLUMNS,
+                        game.first.getName(), game.second.getName(), "" + opening, player.getName());
+            }
+        }
+    }
+
+    private List<P> getPlugins(String[] pluginFolders) {
+        return getPlugins(pluginFolders, pluginType, selector);
+    }
+
+    /**
+     * @return the plugins on the class path and in the given folders that are
+     * of the given type and accepted by the selector
+     */
+    public static <P> List<P> getPlugins(String[] pluginFolders, Class<P> type, Predicate<Plugin> selector) {
+        PluginManager pm = PluginManagerFactory.createPluginManager();
+        pm.addPluginsFrom(ClassURI.CLASSPATH, new OptionReportAfter());
+        Arrays.asList(pluginFolders).stream().forEach(folder -> {
+            pm.addPluginsFrom(new File(folder).toURI(), new OptionReportAfter());
+        });
+        PluginManagerUtil pmu = new PluginManagerUtil(pm);
+        return pmu.getPlugins(Plugin.class).stream().filter(selector).filter(type::isInstance).map(type::cast).collect(Collectors.toList());
+    }
+}
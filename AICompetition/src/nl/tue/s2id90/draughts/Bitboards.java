@@ -0,0 +1,57 @@
+package nl.tue.s2id90.draughts;
+
+import org10x10.dam.game.BoardState;
+
+/**
+ * Converts a DraughtsState to three bitboards and back: the white pieces, the
+ * black pieces and the kings of both colours, with bit f for field f. Bit 0
+ * of the kings is set if white is to move, so the three longs hold the whole
+ * state.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class Bitboards {
+
+    static final int WHITE = 0, BLACK = 1, KINGS = 2;
+
+    private Bitboards() {
+    }
+
+    /**
+     * @return the white pieces, the black pieces and the kings of s, with
+     * bit 0 of the kings set if white is to move
+     */
+    static long[] of(DraughtsState s) {
+        long white = 0, black = 0, kings = s.isWhiteToMove() ? 1 : 0;
+        int[] pieces = s.getPieces();
+        for (int f = 1; f <= 50; f++) {
+            long bit = 1L << f;
+            switch (pieces[f]) {
+                case DraughtsState.WHITEPIECE: white |= bit; break;
+                case DraughtsState.WHITEKING:  white |= bit; kings |= bit; break;
+                case DraughtsState.BLACKPIECE: black |= bit; break;
+                case DraughtsState.BLACKKING:  black |= bit; kings |= bit; break;
+            }
+        }
+        return new long[]{white, black, kings};
+    }
+
+    /**
+     * @return a new state with the given pieces, see of()
+     */
+    static DraughtsState state(long white, long black, long kings) {
+        BoardState bs = new BoardState(10, 10);
+        bs.setEmpty();
+        for (int f = 1; f <= 50; f++) {
+            long bit = 1L << f;
+            boolean king = (kings & bit) != 0;
+            if ((white & bit) != 0) {
+                bs.setPiece(f, king ? DraughtsState.WHITEKING : DraughtsState.WHITEPIECE);
+            } else if ((black & bit) != 0) {
+                bs.setPiece(f, king ? DraughtsState.BLACKKING : DraughtsState.BLACKPIECE);
+            }
+        }
+        bs.setWhiteToMove((kings & 1) != 0);
+        return new DraughtsState(bs);
+    }
+}
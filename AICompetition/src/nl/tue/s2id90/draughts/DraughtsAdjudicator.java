@@ -0,0 +1,206 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nl.tue.s2id90.game.Adjudicator;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+
+/**
+ * Adjudicates draughts games with the draw rules of the FMJD:
+ * <ul>
+ * <li> the same position occurs for the third time with the same player to
+ * move;
+ * <li> both players only moved kings, without capturing, for 25 moves each;
+ * <li> three pieces, at least one of them a king, against a single king: 16
+ * moves each;
+ * <li> two pieces, at least one of them a king, against a single king: 5 moves
+ * each.
+ * </ul>
+ * A player that cannot move loses. Optionally, a game is adjudicated on
+ * material: after a given number of moves a player that is at least margin
+ * ahead wins, and at the maximum number of moves the game ends, with a win
+ * for a player that is at least margin ahead, or a draw; adjudicate() applies
+ * the same margin. Material is counted as 1 per man and 3 per king. Move counts are in plies, i.e. moves of one player.
+ * <p>
+ * Material only decides a game in a quiet position, i.e. one in which the
+ * player to move has no capture: in the middle of an exchange the side that
+ * is ahead may be about to lose the material back. A game that reaches the
+ * maximum number of moves during an exchange goes on until the exchange is
+ * over, for at most EXCHANGE_MOVES more moves. When a game must be decided
+ * in a position that is not quiet, adjudicate() counts the material after
+ * the captures that follow, with both players capturing as well as they can.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class DraughtsAdjudicator implements Adjudicator<Move, DraughtsState> {
+
+    private static final int KING_MOVES = 50;
+    private static final int THREE_AGAINST_KING = 32;
+    private static final int TWO_AGAINST_KING = 10;
+    private static final int EXCHANGE_MOVES = 20;   // moves after maxMoves to finish an exchange
+    private static final int EXCHANGE_DEPTH = 16;   // maximum length of the exchange that adjudicate() resolves
+
+    private final int adjudicateAfter;
+    private final int margin;
+    private final int maxMoves;
+
+    private final Map<String, Integer> positions = new HashMap<>();
+    private int moves;
+    private int kingMoves;          // number of consecutive king moves without capture
+    private int endgameMoves;       // number of moves in the current endgame
+    private int endgameLimit = Integer.MAX_VALUE; // maximum length of the current endgame
+
+    /**
+     * creates an adjudicator that only applies the draw rules.
+     */
+    public DraughtsAdjudicator() {
+        this(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param adjudicateAfter number of moves after which a player that is at
+     * least margin ahead wins
+     * @param margin material difference that decides a game
+     * @param maxMoves number of moves after which the game ends, as soon as
+     * the position is quiet; a player that is at least margin ahead wins,
+     * otherwise it is a draw
+     */
+    public DraughtsAdjudicator(int adjudicateAfter, int margin, int maxMoves) {
+        this.adjudicateAfter = adjudicateAfter;
+        this.margin = margin;
+        this.maxMoves = maxMoves;
+    }
+
+    @Override
+    public void start(DraughtsState s) {
+        positions.clear();
+        moves = kingMoves = endgameMoves = 0;
+        endgameLimit = endgameLimit(s.getPieces());
+        positions.put(key(s), 1);
+    }
+
+    @Override
+    public Result moved(DraughtsState s, Move m) {
+        moves++;
+        if (m.isKingMove() && !m.isCapture()) {
+            kingMoves++;
+        } else {
+            // earlier positions can not occur again
+            positions.clear();
+            kingMoves = 0;
+        }
+        if (positions.merge(key(s), 1, Integer::sum) >= 3 || kingMoves >= KING_MOVES) {
+            return Result.DRAW;
+        }
+
+        int[] pieces = s.getPieces();
+        int limit = endgameLimit(pieces);
+        endgameMoves = limit == endgameLimit ? endgameMoves + 1 : 0;
+        endgameLimit = limit;
+        if (endgameMoves >= endgameLimit) {
+            return Result.DRAW;
+        }
+
+        if (s.isEndState()) {
+            return Result.UNKNOWN;
+        }
+        boolean quiet = !s.getMoves().get(0).isCapture();   // captures are forced
+        if (moves >= maxMoves && (quiet || moves - maxMoves >= EXCHANGE_MOVES)) {
+            return adjudicate(s);
+        }
+        int material = material(pieces);
+        if (quiet && moves >= adjudicateAfter && Math.abs(material) >= margin) {
+            return material > 0 ? Result.WHITE_WINS : Result.BLACK_WINS;
+        }
+        return Result.UNKNOWN;
+    }
+
+    /**
+     * @return a loss for the player to move if it cannot move, a win for the
+     * player that is at least margin ahead after the pending captures, or a
+     * draw
+     */
+    @Override
+    public Result adjudicate(DraughtsState s) {
+        if (s.isEndState()) {
+            return Adjudicator.loss(s);
+        }
+        int material = exchange(s.clone(), EXCHANGE_DEPTH);
+        if (Math.abs(material) >= margin) {
+            return material > 0 ? Result.WHITE_WINS : Result.BLACK_WINS;
+        }
+        return Result.DRAW;
+    }
+
+    /**
+     * plays out the captures of s, where white maximizes and black minimizes
+     * the material.
+     *
+     * @param s a state, that is restored before returning
+     * @param depth maximum number of captures
+     * @return material of white minus material of black once s is quiet, or
+     * after depth captures
+     */
+    static int exchange(DraughtsState s, int depth) {
+        List<Move> moves = s.getMoves();
+        if (depth == 0 || moves.isEmpty() || !moves.get(0).isCapture()) {
+            return material(s.getPieces());
+        }
+        boolean white = s.isWhiteToMove();
+        int best = white ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (Move m : new ArrayList<>(moves)) {
+            s.doMove(m);
+            int material = exchange(s, depth - 1);
+            s.undoMove(m);
+            best = white ? Math.max(best, material) : Math.min(best, material);
+        }
+        return best;
+    }
+
+    /**
+     * @return material of white minus material of black
+     */
+    static int material(int[] pieces) {
+        int material = 0;
+        for (int f = 1; f < pieces.length; f++) {
+            switch (pieces[f]) {
+                case DraughtsState.WHITEPIECE: material += 1; break;
+                case DraughtsState.WHITEKING:  material += 3; break;
+                case DraughtsState.BLACKPIECE: material -= 1; break;
+                case DraughtsState.BLACKKING:  material -= 3; break;
+            }
+        }
+        return material;
+    }
+
+    /**
+     * @return maximum number of moves in the endgame on the board, or
+     * Integer.MAX_VALUE if no endgame rule applies.
+     */
+    private static int endgameLimit(int[] pieces) {
+        int white = 0, whiteKings = 0, black = 0, blackKings = 0;
+        for (int f = 1; f < pieces.length; f++) {
+            switch (pieces[f]) {
+                case DraughtsState.WHITEPIECE: white++; break;
+                case DraughtsState.WHITEKING:  white++; whiteKings++; break;
+                case DraughtsState.BLACKPIECE: black++; break;
+                case DraughtsState.BLACKKING:  black++; blackKings++; break;
+            }
+        }
+        if (white == 1 && whiteKings == 1 && blackKings > 0) {
+            return black == 3 ? THREE_AGAINST_KING : black <= 2 ? TWO_AGAINST_KING : Integer.MAX_VALUE;
+        }
+        if (black == 1 && blackKings == 1 && whiteKings > 0) {
+            return white == 3 ? THREE_AGAINST_KING : white <= 2 ? TWO_AGAINST_KING : Integer.MAX_VALUE;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static String key(DraughtsState s) {
+        return Arrays.toString(s.getPieces()) + s.isWhiteToMove();
+    }
+}
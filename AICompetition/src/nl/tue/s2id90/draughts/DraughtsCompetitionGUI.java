@@ -1,22 +1,37 @@
 package nl.tue.s2id90.draughts;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import nl.tue.s2id90.contest.CompetitionGUI;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import org10x10.dam.game.Move;
 
 /**
+ * The competition gui for draughts. Every finished game is appended to the PDN
+ * archive given by the system property pdn.archive, by default games.pdn in
+ * the working directory; see PdnArchive.
  *
  * @author huub
  */
 public  class DraughtsCompetitionGUI extends CompetitionGUI<DraughtsPlayer,DraughtsPlayerProvider, Move, DraughtsState> {
     DraughtsCompetitionGUI(String[] pluginFolders) {
-        super(p->(p instanceof DraughtsPlugin)&& (p instanceof DraughtsPlayerProvider), pluginFolders);
+        super(p->(p instanceof DraughtsPlugin)&& (p instanceof DraughtsPlayerProvider), pluginFolders, new DraughtsAdjudicator());
         DraughtsGUI gui = new DraughtsGUI();
         initComponents(gui);
         
         // listen to eachother's events
         this.add(gui);
         gui.add(this);
+
+        File pdn = new File(System.getProperty("pdn.archive", "games.pdn"));
+        try {
+            setArchive(new PdnArchive(pdn, "CompetitionGUI"));
+        } catch (IOException ex) {
+            Logger.getLogger(DraughtsCompetitionGUI.class.getName()).log(Level.WARNING,
+                    "unable to open the game archive " + pdn, ex);
+        }
     }
     
    /**
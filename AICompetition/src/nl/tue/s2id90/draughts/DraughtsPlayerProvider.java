@@ -2,7 +2,10 @@ package nl.tue.s2id90.draughts;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import nl.tue.s2id90.contest.PlayerProvider;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 
@@ -12,13 +15,34 @@ import nl.tue.s2id90.draughts.player.DraughtsPlayer;
  */
 public class DraughtsPlayerProvider extends PlayerProvider<DraughtsPlayer> {
     private final List<DraughtsPlayer> players;
+    private final Map<DraughtsPlayer, Supplier<DraughtsPlayer>> factories = new IdentityHashMap<>();
     public DraughtsPlayerProvider(DraughtsPlayer ... arg) {
         this.players = new ArrayList<>();
         players.addAll(Arrays.asList(arg));
     }
 
+    /**
+     * creates a provider with one player per factory; further instances of a
+     * player are created on demand by its factory, see getFactory().
+     * @param arg factories of players, e.g. {@code () -> new MyPlayer(10)}
+     */
+    @SafeVarargs
+    public DraughtsPlayerProvider(Supplier<? extends DraughtsPlayer> ... arg) {
+        this.players = new ArrayList<>();
+        for (Supplier<? extends DraughtsPlayer> factory : arg) {
+            DraughtsPlayer player = factory.get();
+            players.add(player);
+            factories.put(player, factory::get);
+        }
+    }
+
     @Override
     public List<DraughtsPlayer> getPlayers() {
         return players;
-    }       
+    }
+
+    @Override
+    public Supplier<DraughtsPlayer> getFactory(DraughtsPlayer player) {
+        return factories.get(player);
+    }
 }
@@ -97,6 +97,16 @@ public class DraughtsState implements GameState<Move> {
         return moves;
     }
 
+    /**
+     * compares moves by their MoveCode, instead of with equals().
+     * @param m a move
+     * @return whether m is one of the valid moves in this state
+     */
+    @Override
+    public boolean isLegal(Move m) {
+        return m != null && MoveCode.encode(this, m) != MoveCode.NONE;
+    }
+
     /**
      *
      * @return
@@ -0,0 +1,154 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+
+/**
+ * A game in a compact binary format, for storing large numbers of games, e.g.
+ * of self play. A record consists of:
+ * <pre>
+ *   flags:byte          bits 0-1: ordinal of the result,
+ *                       bit 2: the start position follows
+ *   [white:long black:long kings:long]    start position, see PlayerHost
+ *   count:varint        number of moves
+ *   count x move:varint index of the MoveCode of the move in the sorted codes
+ *                       of the legal moves of its position
+ * </pre>
+ * A varint is an unsigned number in groups of 7 bits, least significant group
+ * first, with the high bit of a byte set if another byte follows. As a
+ * position rarely has more than 127 legal moves, a move takes one byte, and
+ * a game of 80 moves about 82 bytes. A forced move still takes a byte, so a
+ * record can be skipped without knowing its positions; decoding a move, when
+ * a record is written or read, does generate the legal moves of its position,
+ * see MoveCode. Records can be written one after another to a stream and read
+ * back with read() until it returns null.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class GameRecord {
+
+    private static final int RESULT_MASK = 3;
+    private static final int HAS_START = 4;
+
+    private final DraughtsState start;
+    private final List<Move> moves;
+    private final Result result;
+
+    /**
+     * @param start position in which the game started
+     * @param moves the moves of the game, legal moves from start
+     * @param result result of the game, UNKNOWN if it has no result
+     */
+    public GameRecord(DraughtsState start, List<Move> moves, Result result) {
+        this.start = start.clone();
+        this.moves = Collections.unmodifiableList(new ArrayList<>(moves));
+        this.result = result;
+    }
+
+    /**
+     * @return a new state with the position in which this game started
+     */
+    public DraughtsState getStart() {
+        return start.clone();
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    /**
+     * writes this record to out.
+     *
+     * @throws IllegalArgumentException if a move is not legal in its position
+     */
+    public void write(DataOutput out) throws IOException {
+        boolean initial = isInitial(start);
+        out.writeByte(result.ordinal() | (initial ? 0 : HAS_START));
+        if (!initial) {
+            PlayerHost.writeState(out, start);
+        }
+        writeVarint(out, moves.size());
+        DraughtsState s = start.clone();
+        for (Move m : moves) {
+            int code = MoveCode.encode(s, m);
+            if (code == MoveCode.NONE) {
+                throw new IllegalArgumentException("illegal move " + m);
+            }
+            writeVarint(out, Arrays.binarySearch(MoveCode.encode(s), code));
+            s.doMove(m);
+        }
+    }
+
+    /**
+     * @return the next record of in, or null if in is at its end
+     * @throws IOException if in can not be read, ends in the middle of a
+     * record or has a move that is not legal
+     */
+    public static GameRecord read(DataInput in) throws IOException {
+        int flags;
+        try {
+            flags = in.readUnsignedByte();
+        } catch (EOFException ex) {
+            return null;
+        }
+        Result result = Result.values()[flags & RESULT_MASK];
+        DraughtsState start = (flags & HAS_START) != 0 ? PlayerHost.readState(in) : new DraughtsState();
+        int count = readVarint(in);
+        List<Move> moves = new ArrayList<>(count);
+        DraughtsState s = start.clone();
+        for (int i = 0; i < count; i++) {
+            int[] codes = MoveCode.encode(s);
+            int index = readVarint(in);
+            if (index >= codes.length) {
+                throw new IOException("illegal move " + index + " in move " + (i + 1));
+            }
+            Move m = MoveCode.decode(s, codes[index]);
+            s.doMove(m);
+            moves.add(m);
+        }
+        return new GameRecord(start, moves, result);
+    }
+
+    private static boolean isInitial(DraughtsState s) {
+        DraughtsState initial = new DraughtsState();
+        return s.isWhiteToMove() == initial.isWhiteToMove()
+                && Arrays.equals(s.getPieces(), initial.getPieces());
+    }
+
+    static void writeVarint(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    @Override
+    public String toString() {
+        return moves.size() + " moves: " + result;
+    }
+}
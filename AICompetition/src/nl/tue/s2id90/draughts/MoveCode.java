@@ -0,0 +1,190 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.Arrays;
+import java.util.List;
+import org10x10.dam.game.Move;
+
+/**
+ * Encodes a move of a position as an int, so that moves can be stored and
+ * compared without Move objects:
+ * <pre>
+ *   bits  0-5   begin field
+ *   bits  6-11  end field
+ *   bits 12-16  number of captured pieces
+ *   bits 17-31  index of the captured fields
+ * </pre>
+ * The index tells apart the captures with the same begin field, end field and
+ * number of captured pieces, e.g. the two ways in which a king can capture
+ * from 48 to 10: it is the number of such legal moves of which the set of
+ * captured fields, as a bitmask with bit f for field f, is smaller than that of
+ * the move. So the index of all other moves is 0, and a code is the same for
+ * every position in which the move is the only one of its kind. A code can be
+ * decoded back to the Move with decode() in the position in which it was
+ * encoded. Moves that capture the same pieces are the same move by the rules
+ * of the game, and equal by Move.equals(), so they have the same code, even
+ * if the move generator returns them for each of their paths.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class MoveCode {
+
+    /**
+     * code of no move; it is never the code of a legal move.
+     */
+    public static final int NONE = 0;
+
+    private static final int FIELD_BITS = 6, FIELD_MASK = 63;
+    private static final int CAPTURES_SHIFT = 12, CAPTURES_MASK = 31;
+    private static final int INDEX_SHIFT = 17;
+
+    private MoveCode() {
+    }
+
+    /**
+     * @return the code of m in s, or NONE if m is not a legal move of s
+     */
+    public static int encode(DraughtsState s, Move m) {
+        return encode(s.getMoves(), m);
+    }
+
+    /**
+     * @param moves the legal moves of a position
+     * @return the code of m in that position, or NONE if m is not in moves
+     */
+    public static int encode(List<Move> moves, Move m) {
+        long mask = capturedMask(m);
+        int index = 0;
+        boolean legal = false;
+        for (Move other : moves) {
+            if (sameKind(other, m)) {
+                long otherMask = capturedMask(other);
+                if (otherMask == mask) {
+                    legal = true;
+                } else if (Long.compareUnsigned(otherMask, mask) < 0) {
+                    index++;
+                }
+            }
+        }
+        return legal ? code(m, index) : NONE;
+    }
+
+    /**
+     * @return the codes of the legal moves of s, in increasing order; moves
+     * that capture the same pieces along different paths have one code
+     */
+    public static int[] encode(DraughtsState s) {
+        return encode(s.getMoves());
+    }
+
+    /**
+     * encodes all moves in one pass: the captured fields of every move are
+     * collected once, and only captures are compared with each other, as a
+     * move without captures is the only one of its kind.
+     *
+     * @param moves the legal moves of a position
+     * @return the codes of moves, in increasing order; moves that capture the
+     * same pieces along different paths have one code
+     */
+    public static int[] encode(List<Move> moves) {
+        int[] codes = new int[moves.size()];
+        long[] masks = new long[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            masks[i] = capturedMask(moves.get(i));
+        }
+        for (int i = 0; i < codes.length; i++) {
+            Move m = moves.get(i);
+            int index = 0;
+            for (int j = 0; m.isCapture() && j < codes.length; j++) {
+                if (sameKind(moves.get(j), m) && Long.compareUnsigned(masks[j], masks[i]) < 0) {
+                    index++;
+                }
+            }
+            codes[i] = code(m, index);
+        }
+        Arrays.sort(codes);
+        int n = 0;
+        for (int code : codes) {
+            if (n == 0 || codes[n - 1] != code) {
+                codes[n++] = code;
+            }
+        }
+        return Arrays.copyOf(codes, n);
+    }
+
+    /**
+     * @return the legal move of s with the given code, or null if s has no
+     * such move
+     */
+    public static Move decode(DraughtsState s, int code) {
+        return decode(s.getMoves(), code);
+    }
+
+    /**
+     * @param moves the legal moves of a position
+     * @return the move of moves with the given code, or null if there is no
+     * such move
+     */
+    public static Move decode(List<Move> moves, int code) {
+        if (code == NONE) {
+            return null;
+        }
+        for (Move m : moves) {
+            if (from(code) == m.getBeginField() && to(code) == m.getEndField()
+                    && captures(code) == m.getCaptureCount()
+                    && (captures(code) == 0 || encode(moves, m) == code)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the begin field of the move with the given code
+     */
+    public static int from(int code) {
+        return code & FIELD_MASK;
+    }
+
+    /**
+     * @return the end field of the move with the given code
+     */
+    public static int to(int code) {
+        return (code >>> FIELD_BITS) & FIELD_MASK;
+    }
+
+    /**
+     * @return the number of pieces captured by the move with the given code
+     */
+    public static int captures(int code) {
+        return (code >>> CAPTURES_SHIFT) & CAPTURES_MASK;
+    }
+
+    /**
+     * @return the index of the captured fields of the move with the given
+     * code, 0 unless there are several captures of its kind
+     */
+    public static int index(int code) {
+        return code >>> INDEX_SHIFT;
+    }
+
+    /**
+     * @return the fields captured by m, with bit f for field f
+     */
+    public static long capturedMask(Move m) {
+        long mask = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            mask |= 1L << m.getCapturedField(i);
+        }
+        return mask;
+    }
+
+    private static boolean sameKind(Move a, Move b) {
+        return a.getBeginField() == b.getBeginField() && a.getEndField() == b.getEndField()
+                && a.getCaptureCount() == b.getCaptureCount();
+    }
+
+    private static int code(Move m, int index) {
+        return m.getBeginField() | m.getEndField() << FIELD_BITS
+                | m.getCaptureCount() << CAPTURES_SHIFT | index << INDEX_SHIFT;
+    }
+}
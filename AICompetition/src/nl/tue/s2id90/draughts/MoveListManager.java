@@ -63,7 +63,7 @@ public class MoveListManager {
         int selection = moveList.getSelectedIndex();
         if (selection == moveList.getModel().size() - 1) {
             newMove = true;
-        } else if (!m.equals(moveList.getModel().get(selection + 1))) {
+        } else if (!sameMove(selection, m)) {
             moveList.getModel().subList(selection + 1, moveList.getModel().size()).clear(); // remove this range from moveModel
             newMove = true;
         }
@@ -75,6 +75,16 @@ public class MoveListManager {
         }
     }
 
+    /**
+     * @return whether m is the move after the move with the given index,
+     * compared by their MoveCode in the position before the move
+     */
+    private boolean sameMove(int index, Move m) {
+        DraughtsState s = new DraughtsState(moveList.getModel().getBoardState(index));
+        int code = MoveCode.encode(s, m);
+        return code != MoveCode.NONE && code == MoveCode.encode(s, moveList.getModel().get(index + 1));
+    }
+
     @SuppressWarnings("empty-statement")
     private void handleForcedMove() {
         MoveGenerator g = new MoveGenerator();
@@ -0,0 +1,141 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+
+/**
+ * A set of start positions for games. A suite is read from a text file with
+ * one position per line, in one of the following forms:
+ * <ul>
+ * <li> a FEN string, e.g. {@code W:W31,32,33,34,35,36,37,38,39,40,41,42,43,44,45,46,47,48,49,50:B1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20};
+ * <li> a PDN FEN tag, e.g. {@code [FEN "B:W18,24,27,28,K10,K15:B12,16,20,K22,K25,K29"]};
+ * <li> the moves of an opening in PDN notation, played from the initial
+ * position, e.g. {@code 1. 32-28 19-23 2. 28x19 14x23}.
+ * </ul>
+ * Empty lines, lines starting with # and other PDN tags are skipped.
+ * <p>
+ * The positions are parsed once, with PDNUtil, and stored as three bitboards
+ * per position, see Bitboards, so a suite is small and can be shared by game
+ * threads without locking; get() creates a fresh DraughtsState for every
+ * game.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class OpeningSuite {
+
+    private final long[] white;  // white pieces per position, bit f for field f
+    private final long[] black;  // black pieces per position
+    private final long[] kings;  // kings per position; bit 0 is set if white is to move
+
+    private OpeningSuite(List<DraughtsState> positions) {
+        int n = positions.size();
+        white = new long[n];
+        black = new long[n];
+        kings = new long[n];
+        for (int i = 0; i < n; i++) {
+            long[] b = Bitboards.of(positions.get(i));
+            white[i] = b[Bitboards.WHITE];
+            black[i] = b[Bitboards.BLACK];
+            kings[i] = b[Bitboards.KINGS];
+        }
+    }
+
+    /**
+     * reads a suite of positions from the given file.
+     *
+     * @throws IOException if the file can not be read, contains a line that
+     * can not be parsed or contains no positions
+     */
+    public static OpeningSuite load(File file) throws IOException {
+        List<DraughtsState> positions = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            for (int number = 1; (line = in.readLine()) != null; number++) {
+                line = line.trim();
+                try {
+                    if (line.startsWith("[FEN")) {
+                        String fen = line.substring(4, line.length() - 1).trim().replace("\"", "");
+                        positions.add(new DraughtsState(PDNUtil.Fen2BoardState(fen)));
+                    } else if (line.matches("[WB]:.*")) {
+                        positions.add(new DraughtsState(PDNUtil.Fen2BoardState(line)));
+                    } else if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("[")) {
+                        positions.add(play(line));
+                    }
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException(file + ":" + number + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        if (positions.isEmpty()) {
+            throw new IOException(file + ": no positions");
+        }
+        return new OpeningSuite(positions);
+    }
+
+    /**
+     * @return the position after the given moves, in PDN notation
+     */
+    private static DraughtsState play(String moves) {
+        DraughtsState s = new DraughtsState();
+        for (String token : moves.split("\\s+")) {
+            if (token.matches("\\d+\\.+|\\*|1-0|0-1|2-0|0-2|1-1")) {
+                continue; // move number or game result
+            }
+            Move move = null;
+            for (Move m : s.getMoves()) {
+                if (m.getNotation().trim().equals(token)) {
+                    move = m;
+                    break;
+                }
+            }
+            if (move == null) {
+                throw new IllegalArgumentException("illegal move " + token);
+            }
+            s.doMove(move);
+        }
+        return s;
+    }
+
+    /**
+     * @return number of positions in this suite
+     */
+    public int size() {
+        return white.length;
+    }
+
+    /**
+     * @return a new state with the i-th position of this suite
+     */
+    public DraughtsState get(int i) {
+        return Bitboards.state(white[i], black[i], kings[i]);
+    }
+
+    /**
+     * @return for every position a supplier of fresh states with that
+     * position, as used by TournamentRunner and MatchRunner
+     */
+    public List<Supplier<DraughtsState>> getStates() {
+        return new AbstractList<Supplier<DraughtsState>>() {
+            @Override
+            public Supplier<DraughtsState> get(int i) {
+                return () -> OpeningSuite.this.get(i);
+            }
+
+            @Override
+            public int size() {
+                return OpeningSuite.this.size();
+            }
+        };
+    }
+}
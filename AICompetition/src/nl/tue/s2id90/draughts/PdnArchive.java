@@ -0,0 +1,134 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import nl.tue.s2id90.game.GameArchive;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+
+/**
+ * A PDN file to which finished games are appended, one at a time, as written
+ * by PDNUtil.game2PDN: the seven standard tags, with the names of the players
+ * and the result, followed by a TimeControl tag with the thinking time per
+ * move, e.g. {@code [TimeControl "200ms/move"]}, a FEN tag if the game did not
+ * start in the initial position, and the moves. A capture that can not be
+ * told apart from another capture by its begin and end field is written with
+ * all its fields, e.g. 48x37x23x10. Results are written as 2-0,
+ * 1-1 and 0-2, or * if the game has no result. The file is flushed after
+ * every game, so the games survive a crash or kill of the program; the games
+ * can be read back with PdnReader.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class PdnArchive implements GameArchive<Move, DraughtsState>, Closeable {
+
+    private final PrintWriter out;
+    private final String event;
+
+    /**
+     * opens the given file for appending games.
+     *
+     * @param event value of the Event tag of the games, e.g. the name of the
+     * program that played them
+     * @throws IOException if the file can not be opened
+     */
+    public PdnArchive(File file, String event) throws IOException {
+        this.out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)));
+        this.event = event;
+    }
+
+    @Override
+    public void add(Game game, DraughtsState start, List<Move> moves, long moveTime) {
+        String date = new SimpleDateFormat("yyyy.MM.dd").format(new Date());
+        String pdn = PDNUtil.game2PDN(boardState(start), event, "?", date, "?",
+                name(game.first.getName()), name(game.second.getName()), result(game.getResult()),
+                unambiguous(start, moves));
+        // the time control follows the seven standard tags
+        int end = pdn.indexOf('\n', pdn.indexOf("[Result")) + 1;
+        String timeControl = String.format("[TimeControl \"%dms/move\"]\n", moveTime);
+        synchronized (out) {
+            out.print(pdn.substring(0, end) + timeControl + pdn.substring(end));
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        out.close();
+    }
+
+    /**
+     * @return the given moves, played from start, in which every move of
+     * which the notation is ambiguous is replaced by a move with its full
+     * notation as notation
+     */
+    private static List<Move> unambiguous(DraughtsState start, List<Move> moves) {
+        List<Move> result = new ArrayList<>(moves.size());
+        DraughtsState s = start.clone();
+        for (Move m : moves) {
+            boolean ambiguous = false;
+            if (m.getCaptureCount() > 1) {
+                for (Move other : s.getMoves()) {
+                    ambiguous |= other != m && !other.equals(m) && other.getNotation().equals(m.getNotation());
+                }
+            }
+            result.add(!ambiguous ? m : new Move(m) {
+                @Override
+                public String getNotation() {
+                    return getFullNotation();
+                }
+            });
+            s.doMove(m);
+        }
+        return result;
+    }
+
+    /**
+     * @return the PDN result of r
+     */
+    static String result(Result r) {
+        switch (r) {
+            case WHITE_WINS: return "2-0";
+            case BLACK_WINS: return "0-2";
+            case DRAW: return "1-1";
+            default: return "*";
+        }
+    }
+
+    /**
+     * @return the name of a player, without the quotes that would end a tag
+     */
+    private static String name(String name) {
+        return name.replace('"', '\'');
+    }
+
+    /**
+     * @return the board of the given state
+     */
+    private static BoardState boardState(DraughtsState s) {
+        BoardState bs = new BoardState(10, 10);
+        bs.setEmpty();
+        int[] pieces = s.getPieces();
+        for (int f = 1; f <= 50; f++) {
+            if (pieces[f] != DraughtsState.EMPTY) {
+                bs.setPiece(f, pieces[f]);
+            }
+        }
+        bs.setWhiteToMove(s.isWhiteToMove());
+        return bs;
+    }
+}
@@ -0,0 +1,78 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+
+/**
+ * A game as read from a PDN archive by PdnReader: its tags, the position in
+ * which it started, its moves and its result.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class PdnGame {
+
+    private final Map<String, String> tags;
+    private final DraughtsState start;
+    private final List<Move> moves;
+    private final Result result;
+
+    PdnGame(Map<String, String> tags, DraughtsState start, List<Move> moves, Result result) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.start = start;
+        this.moves = Collections.unmodifiableList(moves);
+        this.result = result;
+    }
+
+    /**
+     * @return the tags of this game, in the order of the archive, e.g. Event,
+     * White, Black and Result
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return the value of the given tag, or null if this game does not have
+     * it
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * @return a new state with the position in which this game started
+     */
+    public DraughtsState getStart() {
+        return start.clone();
+    }
+
+    /**
+     * @return whether this game started in the initial position
+     */
+    public boolean isFromInitialPosition() {
+        return !tags.containsKey("FEN");
+    }
+
+    /**
+     * @return the moves of this game, which are legal moves from getStart();
+     * if the archive has an illegal move, the moves before it
+     */
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return the result of this game, UNKNOWN if it has no result
+     */
+    public Result getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return tags.get("White") + " - " + tags.get("Black") + ": " + result;
+    }
+}
@@ -0,0 +1,283 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+
+/**
+ * Reads the games of a PDN archive, such as those written by PdnArchive, one
+ * at a time, so that archives of millions of games can be read without
+ * holding them in memory:
+ * <pre>
+ * try (PdnReader games = new PdnReader(file)) {
+ *     while (games.hasNext()) {
+ *         PdnGame game = games.next();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Tags are read as {@code [Name "value"]}, one per line. In the moves, move
+ * numbers, comments between braces, variations between parentheses and the
+ * annotations ! and ? are skipped; a game ends with a result (2-0, 1-1, 0-2,
+ * also 1-0, 0-1 and 1/2-1/2, or *) or with the tags of the next game. A
+ * position in a FEN tag is parsed with PDNUtil. The moves are checked against
+ * the legal moves; a game with an illegal move keeps the moves before it. A
+ * game with a FEN tag that can not be parsed is skipped with a warning.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class PdnReader implements Iterator<PdnGame>, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(PdnReader.class.getName());
+    private static final Pattern TAG = Pattern.compile("\\[(\\w+)\\s+\"(.*)\"\\s*\\]");
+    private static final Pattern END = Pattern.compile(".*(^|\\s)(2-0|0-2|1-1|1-0|0-1|1/2-1/2|\\*)$");
+
+    private final File file;
+    private final BufferedReader in;
+    private String pending;     // a line that was read ahead, or null
+    private int lineNumber;
+    private PdnGame next;       // the game that was read ahead, or null
+
+    /**
+     * opens the given archive.
+     *
+     * @throws IOException if the file can not be opened
+     */
+    public PdnReader(File file) throws IOException {
+        this.file = file;
+        this.in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws UncheckedIOException if the archive can not be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws UncheckedIOException if the archive can not be read
+     */
+    @Override
+    public PdnGame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PdnGame game = next;
+        next = null;
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return the next game in the archive, or null at the end of the archive
+     */
+    private PdnGame read() throws IOException {
+        while (true) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            StringBuilder text = new StringBuilder();
+            int comments = 0;   // number of open comments
+            int first = lineNumber + 1;
+            String line;
+            while ((line = readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (comments == 0 && line.startsWith("[")) {
+                    if (text.length() > 0) {    // the tags of the next game
+                        pending = line;
+                        lineNumber--;
+                        break;
+                    }
+                    Matcher m = TAG.matcher(line);
+                    if (m.matches()) {
+                        tags.put(m.group(1), m.group(2));
+                    }
+                    continue;
+                }
+                text.append(line).append(' ');
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    comments += c == '{' ? 1 : c == '}' && comments > 0 ? -1 : 0;
+                }
+                if (comments == 0 && END.matcher(line).matches()) {
+                    break;
+                }
+            }
+            if (line == null && tags.isEmpty() && text.toString().trim().isEmpty()) {
+                return null;
+            }
+            PdnGame game = parse(tags, text.toString(), first);
+            if (game != null) {
+                return game;
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        lineNumber++;
+        if (pending != null) {
+            String line = pending;
+            pending = null;
+            return line;
+        }
+        return in.readLine();
+    }
+
+    /**
+     * @return the game with the given tags and moves, or null if its start
+     * position can not be parsed
+     */
+    private PdnGame parse(Map<String, String> tags, String text, int line) {
+        DraughtsState s;
+        String fen = tags.get("FEN");
+        try {
+            s = fen == null ? new DraughtsState() : new DraughtsState(PDNUtil.Fen2BoardState(fen));
+        } catch (RuntimeException ex) {
+            LOG.warning(String.format("%s:%d: skipped a game with FEN %s", file, line, fen));
+            return null;
+        }
+        DraughtsState start = s.clone();
+        List<Move> moves = new ArrayList<>();
+        String last = "*";
+        for (String token : tokens(text)) {
+            if (token.matches("\\d+\\.*|\\.+")) {
+                continue;   // move number
+            }
+            if (token.equals("*") || result(token) != Result.UNKNOWN) {
+                last = token;
+                continue;
+            }
+            Move move = find(s, token.replaceAll("[!?]+$", ""));
+            if (move == null) {
+                LOG.warning(String.format("%s:%d: illegal move %s in game %s - %s",
+                        file, line, token, tags.get("White"), tags.get("Black")));
+                break;
+            }
+            s.doMove(move);
+            moves.add(move);
+        }
+        Result result = result(tags.getOrDefault("Result", "*"));
+        return new PdnGame(tags, start, moves, result != Result.UNKNOWN ? result : result(last));
+    }
+
+    /**
+     * @return the tokens of the given movetext, without comments and
+     * variations
+     */
+    private static String[] tokens(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        int comments = 0, variations = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                comments++;
+            } else if (c == '}' && comments > 0) {
+                comments--;
+            } else if (comments == 0 && c == '(') {
+                variations++;
+            } else if (comments == 0 && c == ')' && variations > 0) {
+                variations--;
+            } else if (comments == 0 && variations == 0) {
+                sb.append(c);
+                continue;
+            }
+            sb.append(' ');
+        }
+        String s = sb.toString().trim();
+        return s.isEmpty() ? new String[0] : s.split("\\s+");
+    }
+
+    /**
+     * @return the legal move of s with the given notation, or null if there is
+     * no such move or if the notation fits several captures of different
+     * pieces. A capture may also be written with all its fields, e.g. 28x17x8
+     * instead of 28x8, which is needed if there are several such captures
+     * from 28 to 8.
+     */
+    static Move find(DraughtsState s, String notation) {
+        List<Move> moves = s.getMoves();
+        Move found = null;
+        for (Move m : moves) {
+            if (m.getNotation().trim().equals(notation)) {
+                if (found != null && !found.equals(m)) {
+                    return null;    // ambiguous
+                }
+                found = found != null ? found : m;
+            }
+        }
+        if (found != null) {
+            return found;
+        }
+        for (Move m : moves) {
+            if (m.getFullNotation().equals(notation)) {
+                return m;
+            }
+        }
+        String[] fields = notation.split("[-x]");
+        if (fields.length < 2 || !notation.matches("\\d+([-x]\\d+)+")) {
+            return null;
+        }
+        int begin = Integer.parseInt(fields[0]);
+        int end = Integer.parseInt(fields[fields.length - 1]);
+        for (Move m : moves) {
+            if (m.getBeginField() == begin && m.getEndField() == end) {
+                if (found != null && !found.equals(m)) {
+                    return null;    // ambiguous
+                }
+                found = found != null ? found : m;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the result with the given PDN notation, UNKNOWN if it is not a
+     * result
+     */
+    public static Result result(String notation) {
+        switch (notation) {
+            case "2-0":
+            case "1-0":
+                return Result.WHITE_WINS;
+            case "1-1":
+            case "1/2-1/2":
+                return Result.DRAW;
+            case "0-2":
+            case "0-1":
+                return Result.BLACK_WINS;
+            default:
+                return Result.UNKNOWN;
+        }
+    }
+}
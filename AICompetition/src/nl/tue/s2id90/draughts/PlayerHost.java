@@ -0,0 +1,226 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.contest.TournamentRunner;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import org10x10.dam.game.Move;
+
+/**
+ * Hosts a single draughts player in its own vm, on behalf of a
+ * RemoteDraughtsPlayer. Usage:
+ * <pre>
+ * java nl.tue.s2id90.draughts.PlayerHost name pluginFolder ...
+ * </pre>
+ * The host loads the plugins, looks up the player with the given name and then
+ * serves requests on stdin, with replies on stdout. Everything the player
+ * prints on System.out goes to stderr instead.
+ * <p>
+ * The protocol is binary, in the format of DataInput and DataOutput:</p>
+ * <pre>
+ *   host -&gt; player vm:
+ *     MOVE  white:long black:long kings:long time:int   search a move
+ *     STOP                                             stop the search
+ *     QUIT                                             exit
+ *   player vm -&gt; host:
+ *     READY                                            player is loaded
+ *     VALUE index:short value:int hasValue:boolean     move of a search
+ * </pre>
+ * A position is sent as three bitboards, with bit f for field f, and bit 0 of
+ * kings set if white is to move. A move is sent as its index in getMoves() of
+ * the position, or -1 if the player did not return a legal move. If time is
+ * positive, the player is stopped after time milliseconds of cpu time of its
+ * search.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class PlayerHost {
+
+    private static final Logger LOG = Logger.getLogger(PlayerHost.class.getName());
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    static final byte MOVE = 'M', STOP = 'S', QUIT = 'Q', READY = 'R', VALUE = 'V';
+
+    private final DraughtsPlayer player;
+    private final DataOutputStream out;
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> daemon(r, "search"));
+    private final ExecutorService clock = Executors.newSingleThreadExecutor(r -> daemon(r, "clock"));
+    private volatile Thread searchThread;
+    private volatile boolean searching;
+
+    private PlayerHost(DraughtsPlayer player, DataOutputStream out) {
+        this.player = player;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // stdout is reserved for the protocol
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+
+        String name = args[0];
+        String[] pluginFolders = Arrays.copyOfRange(args, 1, args.length);
+        DraughtsPlayer player = find(name, pluginFolders);
+        if (player == null) {
+            LOG.log(Level.SEVERE, "unknown player {0}", name);
+            System.exit(2);
+        }
+        new PlayerHost(player, out).serve(in);
+        System.exit(0); // also if a search hangs
+    }
+
+    private static DraughtsPlayer find(String name, String[] pluginFolders) {
+        List<DraughtsPlayerProvider> plugins = TournamentRunner.getPlugins(pluginFolders,
+                DraughtsPlayerProvider.class, p -> p instanceof DraughtsPlugin);
+        for (DraughtsPlayerProvider plugin : plugins) {
+            for (DraughtsPlayer player : plugin.getPlayers()) {
+                if (player.getName().equals(name)) {
+                    return player;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * serves requests until QUIT or the end of the input.
+     */
+    private void serve(DataInputStream in) throws IOException {
+        reply(o -> o.writeByte(READY));
+        while (true) {
+            int command = in.read();
+            switch (command) {
+                case MOVE:
+                    DraughtsState s = readState(in);
+                    search(s, in.readInt());
+                    break;
+                case STOP:
+                    if (searching) {
+                        player.stop();
+                    }
+                    break;
+                case QUIT:
+                case -1:
+                    return;
+                default:
+                    throw new IOException("unknown command " + command);
+            }
+        }
+    }
+
+    private void search(DraughtsState s, int moveTime) {
+        searching = true;
+        Future<?> search = searcher.submit(() -> {
+            searchThread = Thread.currentThread();
+            Move m = null;
+            Integer value = null;
+            try {
+                m = player.getMove(s.clone());
+                value = player.getValue();
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "exception in player " + player.getName(), ex);
+            }
+            searching = false;
+            short index = (short) s.getMoves().indexOf(m);
+            int v = value == null ? 0 : value;
+            boolean hasValue = value != null;
+            reply(o -> {
+                o.writeByte(VALUE);
+                o.writeShort(index);
+                o.writeInt(v);
+                o.writeBoolean(hasValue);
+            });
+            return null;
+        });
+        if (moveTime > 0) {
+            clock.execute(() -> awaitMoveTime(search, moveTime));
+        }
+    }
+
+    /**
+     * stops the player when the search has used its cpu time.
+     */
+    private void awaitMoveTime(Future<?> search, int moveTime) {
+        long budget = TimeUnit.MILLISECONDS.toNanos(moveTime);
+        long start = System.nanoTime();
+        long cpuStart = -1;
+        try {
+            while (!search.isDone()) {
+                long used = System.nanoTime() - start;
+                Thread t = searchThread;
+                if (t != null && THREADS.isThreadCpuTimeSupported()) {
+                    long cpu = THREADS.getThreadCpuTime(t.getId());
+                    if (cpuStart < 0) {
+                        cpuStart = cpu;
+                    }
+                    used = cpu - cpuStart;
+                }
+                if (used >= budget) {
+                    player.stop();
+                    return;
+                }
+                Thread.sleep(Math.max(1, moveTime / 20));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Message {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private void reply(Message message) {
+        synchronized (out) {
+            try {
+                message.write(out);
+                out.flush();
+            } catch (IOException ex) {
+                System.exit(1); // the host is gone
+            }
+        }
+    }
+
+    /**
+     * writes s as three bitboards, see Bitboards.
+     */
+    static void writeState(DataOutput out, DraughtsState s) throws IOException {
+        long[] b = Bitboards.of(s);
+        out.writeLong(b[Bitboards.WHITE]);
+        out.writeLong(b[Bitboards.BLACK]);
+        out.writeLong(b[Bitboards.KINGS]);
+    }
+
+    /**
+     * @return a state read with the format of writeState()
+     */
+    static DraughtsState readState(DataInput in) throws IOException {
+        long white = in.readLong(), black = in.readLong(), kings = in.readLong();
+        return Bitboards.state(white, black, kings);
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,216 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import org10x10.dam.game.Move;
+
+/**
+ * A draughts player that runs in a vm of its own, see PlayerHost. The vm has
+ * its own heap, of a limited size, so a player that runs out of memory or
+ * hangs does not affect other players or the vm that runs the games.
+ * <p>
+ * A player that does not reply within GRACE milliseconds after stop() has
+ * been called, or within STARTUP milliseconds after its vm was started, is
+ * killed; from then on getMove() returns null, i.e. the player loses its
+ * current game. A RemoteDraughtsPlayer is meant to play a single game, see
+ * factory().</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class RemoteDraughtsPlayer extends DraughtsPlayer {
+
+    private static final Logger LOG = Logger.getLogger(RemoteDraughtsPlayer.class.getName());
+
+    private static final long STARTUP = 60000;
+    private static final long GRACE = 1000;
+
+    private static final ScheduledExecutorService KILLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "killer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final int moveTime;
+    private final Process process;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private volatile boolean alive;
+    private volatile boolean searching;
+    private ScheduledFuture<?> kill;
+    private Integer value;
+
+    /**
+     * starts a vm with the given player, and waits until it is loaded.
+     *
+     * @param name name of the player
+     * @param pluginFolders folders in which the vm searches the player
+     * @param heap maximum heap size of the vm in MB
+     * @param moveTime cpu time per move in milliseconds after which the vm
+     * itself stops the player; 0 if the player is only stopped by stop()
+     * @throws IOException if the vm can not be started
+     */
+    public RemoteDraughtsPlayer(String name, List<String> pluginFolders, int heap, int moveTime) throws IOException {
+        this.name = name;
+        this.moveTime = moveTime;
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Xmx" + heap + "m");
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PlayerHost.class.getName());
+        command.add(name);
+        command.addAll(pluginFolders);
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+
+        ScheduledFuture<?> startup = KILLER.schedule(this::kill, STARTUP, TimeUnit.MILLISECONDS);
+        try {
+            alive = in.readByte() == PlayerHost.READY;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "{0} did not start", name);
+        } finally {
+            startup.cancel(false);
+        }
+        if (!alive) {
+            kill();
+        }
+    }
+
+    /**
+     * @return a factory of remote instances of the named player, each in its
+     * own vm; an instance that can not be started never returns a move
+     */
+    public static Supplier<DraughtsPlayer> factory(String name, List<String> pluginFolders, int heap, int moveTime) {
+        return () -> {
+            try {
+                return new RemoteDraughtsPlayer(name, pluginFolders, heap, moveTime);
+            } catch (IOException ex) {
+                throw new IllegalStateException("can not start a vm for " + name, ex);
+            }
+        };
+    }
+
+    @Override
+    public Move getMove(DraughtsState s) {
+        value = null;
+        if (searching) {
+            // an earlier search was abandoned and still blocks the vm
+            kill();
+        }
+        if (!alive) {
+            return null;
+        }
+        searching = true;
+        try {
+            synchronized (out) {
+                out.writeByte(PlayerHost.MOVE);
+                PlayerHost.writeState(out, s);
+                out.writeInt(moveTime);
+                out.flush();
+            }
+            if (in.readByte() != PlayerHost.VALUE) {
+                throw new IOException("protocol error");
+            }
+            short index = in.readShort();
+            int v = in.readInt();
+            value = in.readBoolean() ? v : null;
+            return index >= 0 && index < s.getMoves().size() ? s.getMoves().get(index) : null;
+        } catch (IOException ex) {
+            if (alive) {
+                LOG.log(Level.WARNING, name + " died", ex);
+            }
+            kill();
+            return null;
+        } finally {
+            synchronized (this) {
+                searching = false;
+                if (kill != null) {
+                    kill.cancel(false);
+                    kill = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Integer getValue() {
+        return value;
+    }
+
+    /**
+     * asks the player to stop, and kills it if it does not reply in time.
+     */
+    @Override
+    public synchronized void stop() {
+        if (searching && alive) {
+            try {
+                synchronized (out) {
+                    out.writeByte(PlayerHost.STOP);
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                // the player is dead already; getMove() notices that
+            }
+            if (kill == null) {
+                kill = KILLER.schedule(() -> {
+                    LOG.log(Level.WARNING, "{0} does not stop, killed", name);
+                    kill();
+                }, GRACE, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * ends the vm of this player.
+     */
+    @Override
+    public void release() {
+        if (alive) {
+            alive = false;
+            try {
+                synchronized (out) {
+                    out.writeByte(PlayerHost.QUIT);
+                    out.flush();
+                }
+                process.waitFor(GRACE, TimeUnit.MILLISECONDS);
+            } catch (IOException ex) {
+                // killed below
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        kill();
+    }
+
+    private void kill() {
+        alive = false;
+        process.destroyForcibly();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "[remote " + name + "]";
+    }
+}
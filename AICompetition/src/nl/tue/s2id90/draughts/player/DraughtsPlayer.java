@@ -68,6 +68,14 @@ public abstract class DraughtsPlayer implements Player<Move,DraughtsState> {
         return getClass().getSimpleName();
     }
     
+    /** @return statistics of the searches of this player, or null if this
+     * player does not keep them. This implementation returns null.
+     * @see SearchStats
+     **/
+    public SearchStats getSearchStats() {
+        return null;
+    }
+    
     /** returns whether or not the current player is a human player.
      * This implementation returns false.
      **/
@@ -0,0 +1,263 @@
+package nl.tue.s2id90.draughts.player;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Statistics of the searches of a player, per iteration of an iterative
+ * deepening search. The search counts nodes, quiescence nodes, probes of its
+ * hash table and cutoffs while it runs; endIteration() stores the counts of
+ * the iteration in a ring buffer with the last capacity iterations, and starts
+ * counting the next iteration. An iteration that is stopped before it is
+ * complete is stored with stopIteration(); its complete field is 0. If the
+ * ring buffer is full, the oldest iteration is overwritten and counted as
+ * dropped, see getDropped(); so capacity should be large enough for the
+ * iterations between two calls of write().
+ * <p>
+ * Counting is not synchronized: the counters should be updated by the thread
+ * that searches only. The ring buffer may be read by another thread, e.g. by a
+ * tournament runner after a game, see write().</p>
+ * <p>
+ * Typical use in a player:</p>
+ * <pre>
+ *   stats.startSearch();
+ *   for (depth = 1; ...; depth++) {
+ *       value = search(depth);    // calls stats.node(ply), stats.cutoff(i), ...
+ *       stats.endIteration(depth, value);
+ *   }
+ * </pre>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class SearchStats {
+
+    /**
+     * output formats of write().
+     */
+    public enum Format {
+        /** comma separated values with a header line, see header() **/
+        CSV,
+        /** one JSON object per line **/
+        JSON
+    }
+
+    /**
+     * names of the fields of an iteration, in the order in which they are
+     * written.
+     */
+    public static final String[] FIELDS = {"search", "depth", "seldepth", "nodes", "qnodes",
+        "nps", "hashProbes", "hashHits", "cutoffs", "firstMoveCutoffs", "micros", "value", "complete"};
+
+    private static final int SEARCH = 0, DEPTH = 1, SELDEPTH = 2, NODES = 3, QNODES = 4,
+            NPS = 5, PROBES = 6, HITS = 7, CUTOFFS = 8, FIRST_CUTOFFS = 9, MICROS = 10, VALUE = 11, COMPLETE = 12;
+
+    private final int capacity;
+    private final long[] ring;      // FIELDS.length values per iteration
+    private int next;               // index of the next iteration in the ring
+    private int size;               // number of iterations in the ring
+    private long dropped;           // iterations overwritten before they were written
+
+    private long searches;
+    private long start;             // System.nanoTime() at the start of the iteration
+    private long nodes, qnodes, probes, hits, cutoffs, firstCutoffs;
+    private int seldepth;
+
+    /**
+     * @param capacity maximum number of iterations that are kept
+     */
+    public SearchStats(int capacity) {
+        this.capacity = capacity;
+        this.ring = new long[capacity * FIELDS.length];
+    }
+
+    /**
+     * starts counting a new search, i.e. a new move.
+     */
+    public void startSearch() {
+        searches++;
+        startIteration();
+    }
+
+    private void startIteration() {
+        nodes = qnodes = probes = hits = cutoffs = firstCutoffs = 0;
+        seldepth = 0;
+        start = System.nanoTime();
+    }
+
+    /**
+     * counts a node of the regular search at the given distance from the root.
+     */
+    public void node(int ply) {
+        nodes++;
+        if (ply > seldepth) {
+            seldepth = ply;
+        }
+    }
+
+    /**
+     * counts a node of the quiescence search at the given distance from the
+     * root.
+     */
+    public void qnode(int ply) {
+        qnodes++;
+        if (ply > seldepth) {
+            seldepth = ply;
+        }
+    }
+
+    /**
+     * counts a probe of the hash table of the search.
+     */
+    public void probe(boolean hit) {
+        probes++;
+        if (hit) {
+            hits++;
+        }
+    }
+
+    /**
+     * counts a beta cutoff.
+     *
+     * @param moveIndex index of the move that caused the cutoff among the
+     * moves that were searched in the node
+     */
+    public void cutoff(int moveIndex) {
+        cutoffs++;
+        if (moveIndex == 0) {
+            firstCutoffs++;
+        }
+    }
+
+    /**
+     * stores the counts of the iteration that ended, and starts the next
+     * iteration.
+     *
+     * @param depth nominal depth of the iteration
+     * @param value value of the root
+     */
+    public void endIteration(int depth, int value) {
+        store(depth, value, true);
+    }
+
+    /**
+     * stores the counts of the iteration that was stopped.
+     *
+     * @param depth nominal depth of the iteration
+     */
+    public void stopIteration(int depth) {
+        store(depth, 0, false);
+    }
+
+    private void store(int depth, int value, boolean complete) {
+        long micros = (System.nanoTime() - start) / 1000;
+        synchronized (this) {
+            int i = next * FIELDS.length;
+            ring[i + SEARCH] = searches;
+            ring[i + DEPTH] = depth;
+            ring[i + SELDEPTH] = seldepth;
+            ring[i + NODES] = nodes;
+            ring[i + QNODES] = qnodes;
+            ring[i + NPS] = micros == 0 ? 0 : (nodes + qnodes) * 1000000 / micros;
+            ring[i + PROBES] = probes;
+            ring[i + HITS] = hits;
+            ring[i + CUTOFFS] = cutoffs;
+            ring[i + FIRST_CUTOFFS] = firstCutoffs;
+            ring[i + MICROS] = micros;
+            ring[i + VALUE] = value;
+            ring[i + COMPLETE] = complete ? 1 : 0;
+            next = (next + 1) % capacity;
+            if (size == capacity) {
+                dropped++;
+            } else {
+                size++;
+            }
+        }
+        startIteration();
+    }
+
+    /**
+     * @return number of iterations in the ring buffer
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return number of iterations that were overwritten in the full ring
+     * buffer since the last write(), and so were never written
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the given field of the i-th oldest iteration in the ring buffer
+     */
+    public synchronized long get(int i, String field) {
+        int f = Arrays.asList(FIELDS).indexOf(field);
+        if (i < 0 || i >= size || f < 0) {
+            throw new IllegalArgumentException(field + " of iteration " + i);
+        }
+        return ring[index(i) * FIELDS.length + f];
+    }
+
+    /**
+     * @return the header line of the CSV format, preceded by the given
+     * columns
+     */
+    public static String header(String... columns) {
+        StringBuilder sb = new StringBuilder();
+        for (String c : columns) {
+            sb.append(c).append(',');
+        }
+        return sb.append(String.join(",", FIELDS)).toString();
+    }
+
+    /**
+     * writes the iterations in the ring buffer, oldest first, and empties the
+     * buffer; this also resets the number of dropped iterations. Every iteration is preceded by the given columns, e.g. the game
+     * and the name of the player, which are written as strings.
+     *
+     * @param columns names of the extra columns, as in header()
+     * @param values values of the extra columns
+     */
+    public synchronized void write(PrintWriter out, Format format, String[] columns, String... values) {
+        for (int i = 0; i < size; i++) {
+            int base = index(i) * FIELDS.length;
+            if (format == Format.CSV) {
+                for (String v : values) {
+                    out.print(csv(v));
+                    out.print(',');
+                }
+                for (int f = 0; f < FIELDS.length; f++) {
+                    out.print(f == 0 ? "" : ",");
+                    out.print(ring[base + f]);
+                }
+            } else {
+                out.print('{');
+                for (int c = 0; c < columns.length; c++) {
+                    out.print('"' + columns[c] + "\":\"" + json(values[c]) + "\",");
+                }
+                for (int f = 0; f < FIELDS.length; f++) {
+                    out.print((f == 0 ? "\"" : ",\"") + FIELDS[f] + "\":" + ring[base + f]);
+                }
+                out.print('}');
+            }
+            out.println();
+        }
+        size = 0;
+        dropped = 0;
+    }
+
+    private int index(int i) {
+        return (next - size + i + capacity) % capacity;
+    }
+
+    private static String csv(String s) {
+        return s.contains(",") || s.contains("\"") ? '"' + s.replace("\"", "\"\"") + '"' : s;
+    }
+
+    private static String json(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,44 @@
+package nl.tue.s2id90.game;
+
+import nl.tue.s2id90.game.Game.Result;
+
+/**
+ * decides the result of a game. An adjudicator follows one game at a time:
+ * start() is called when the game starts, moved() after every move.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ * @param <Move>
+ * @param <State>
+ */
+public interface Adjudicator<Move, State extends GameState<Move>> {
+
+    /**
+     * starts a new game in state s.
+     * @param s initial state of the game
+     */
+    void start(State s);
+
+    /**
+     * registers move m, that has just been applied in state s.
+     * @param s state after move m
+     * @param m the last move
+     * @return the result if the game is decided by this move, e.g. by a draw
+     * rule, and UNKNOWN if the game goes on.
+     */
+    Result moved(State s, Move m);
+
+    /**
+     * @param s state in which the game ends, or is stopped
+     * @return the result of a game that ends in state s.
+     */
+    Result adjudicate(State s);
+
+    /**
+     * @param s a game state
+     * @return the result when the player to move in s loses, e.g. because he
+     * has no moves left or tries an illegal move.
+     */
+    static Result loss(GameState<?> s) {
+        return s.isWhiteToMove() ? Result.BLACK_WINS : Result.WHITE_WINS;
+    }
+}
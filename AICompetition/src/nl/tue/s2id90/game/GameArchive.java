@@ -0,0 +1,25 @@
+package nl.tue.s2id90.game;
+
+import java.util.List;
+
+/**
+ * keeps finished games, e.g. in a file, for use after the competition.
+ * Implementations are thread safe, so that one archive can be shared by games
+ * that are played at the same time.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ * @param <Move>
+ * @param <State>
+ */
+public interface GameArchive<Move, State extends GameState<Move>> {
+
+    /**
+     * adds a finished game to this archive.
+     *
+     * @param game the game with its players and result
+     * @param start state in which the game started
+     * @param moves the moves of the game
+     * @param moveTime thinking time per move in milliseconds
+     */
+    void add(Game game, State start, List<Move> moves, long moveTime);
+}
@@ -14,6 +14,14 @@ public interface GameState<Move> {
      */
     List<Move> getMoves();
 
+    /**
+     * @param m a move
+     * @return whether m is one of the valid moves in this state
+     */
+    default boolean isLegal(Move m) {
+        return m != null && getMoves().contains(m);
+    }
+
     /**
      * @return whether or not there are any valid moves in this state
      */
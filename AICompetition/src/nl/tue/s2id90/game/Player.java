@@ -30,4 +30,11 @@ public interface Player<Move,State extends GameState<Move>>  extends Identity
     
     /** @return whether or not this is a human player **/
     boolean isHuman();
+    
+    /** called when this player will not be used anymore, e.g. at the end of
+     * a game in which a fresh instance of a player was used. A player can
+     * give its resources, like caches, back for reuse by other instances.
+     * The default implementation does nothing.
+     */
+    default void release() {}
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package nl.tue.s2id90.contest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Sprt: the test accepts the hypothesis that fits the pair scores,
+ * and estimates the Elo difference of the players.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class SprtTest {
+
+    private static Sprt sprt() {
+        return new Sprt(0, 10, 0.05, 0.05);
+    }
+
+    @Test
+    public void boundsFollowFromErrorProbabilities() {
+        Sprt sprt = sprt();
+        assertEquals(Math.log(0.05 / 0.95), sprt.getLowerBound(), 1e-12);
+        assertEquals(Math.log(0.95 / 0.05), sprt.getUpperBound(), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elo1MustBeLargerThanElo0() {
+        new Sprt(10, 10, 0.05, 0.05);
+    }
+
+    @Test
+    public void noPairsNoDecision() {
+        Sprt sprt = sprt();
+        assertEquals(0, sprt.llr(), 0);
+        assertEquals(Sprt.Decision.NONE, sprt.getDecision());
+        assertEquals(0, sprt.elo(), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, sprt.eloError(), 0);
+    }
+
+    @Test
+    public void strongerPlayerIsAccepted() {
+        Sprt sprt = sprt();
+        // A scores 55%: about 35 Elo
+        for (int i = 0; i < 100 && sprt.getDecision() == Sprt.Decision.NONE; i++) {
+            sprt.add(4);
+            sprt.add(2);
+            sprt.add(2);
+            sprt.add(3);
+            sprt.add(1);
+            sprt.add(2);
+            sprt.add(3);
+            sprt.add(2);
+            sprt.add(0);
+            sprt.add(3);
+        }
+        assertEquals(Sprt.Decision.H1, sprt.getDecision());
+        assertTrue(sprt.elo() > 10);
+    }
+
+    @Test
+    public void equalPlayersAreAcceptedAsEqual() {
+        Sprt sprt = sprt();
+        for (int i = 0; i < 10000 && sprt.getDecision() == Sprt.Decision.NONE; i++) {
+            sprt.add(i % 5);        // symmetric around 2 points per pair
+        }
+        assertEquals(Sprt.Decision.H0, sprt.getDecision());
+        assertTrue(sprt.eloError() > 0);
+        assertEquals(0, sprt.elo(), sprt.eloError());
+    }
+
+    @Test
+    public void varianceIncludesThePrior() {
+        Sprt sprt = sprt();
+        // without pairs, the prior alone: scores 0, 1/4, ..., 1 once each
+        assertEquals(0.5, sprt.mean(), 1e-12);
+        assertEquals(0.125, sprt.variance(), 1e-12);
+        for (int i = 0; i < 1000; i++) {
+            sprt.add(4);
+            sprt.add(0);
+        }
+        // 1000.25 times 0 and 1, 0.25 times 1/4, 1/2 and 3/4, out of 2001.25
+        double expected = (2 * 1000.25 * 0.25 + 2 * 0.25 / 16) / 2001.25;
+        assertEquals(0.5, sprt.mean(), 1e-12);
+        assertEquals(expected, sprt.variance(), 1e-12);
+        assertEquals(0.25, sprt.variance(), 1e-3);
+    }
+
+    @Test
+    public void pairsAreCounted() {
+        Sprt sprt = sprt();
+        sprt.add(4);
+        sprt.add(4);
+        sprt.add(1);
+        assertEquals(3, sprt.getPairs());
+        assertEquals(2, sprt.getPairs(4));
+        assertEquals(1, sprt.getPairs(1));
+        assertEquals(0, sprt.getPairs(2));
+    }
+
+    @Test
+    public void eloAndScoreAreInverse() {
+        for (double elo = -800; elo <= 800; elo += 50) {
+            assertEquals(elo, Sprt.elo(Sprt.score(elo)), 1e-6);
+        }
+        assertEquals(0.5, Sprt.score(0), 1e-12);
+        assertEquals(1 / 1.1, Sprt.score(400), 1e-12);
+    }
+}
@@ -0,0 +1,168 @@
+package nl.tue.s2id90.contest;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Standings: the counts of the results, and the ratings of the
+ * Bradley-Terry model that is fitted to them.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class StandingsTest {
+
+    private static final double EPSILON = 1e-6;
+
+    private final List<DraughtsPlayer> players = new ArrayList<>();
+
+    private DraughtsPlayer player(String name) {
+        DraughtsPlayer p = new DraughtsPlayer((URL) null) {
+            @Override
+            public Move getMove(DraughtsState s) {
+                return null;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+        players.add(p);
+        return p;
+    }
+
+    private static void add(Standings<DraughtsPlayer> standings, DraughtsPlayer white, DraughtsPlayer black, Result result, int times) {
+        for (int i = 0; i < times; i++) {
+            standings.add(game(white, black, result));
+        }
+    }
+
+    private static Game game(DraughtsPlayer white, DraughtsPlayer black, Result result) {
+        Game game = new Game(white, black);
+        game.setResult(result);
+        return game;
+    }
+
+    private static Standings.Score<DraughtsPlayer> score(Standings<DraughtsPlayer> standings, DraughtsPlayer p) {
+        for (Standings.Score<DraughtsPlayer> s : standings.getRanking()) {
+            if (s.getPlayer() == p) {
+                return s;
+            }
+        }
+        throw new AssertionError(p.getName() + " is not ranked");
+    }
+
+    @Test
+    public void playersWithoutGamesAreRatedZero() {
+        Standings<DraughtsPlayer> standings = new Standings<>(Arrays.asList(player("a"), player("b")));
+        for (Standings.Score<DraughtsPlayer> s : standings.getRanking()) {
+            assertEquals(0, s.getElo(), EPSILON);
+            assertEquals(0, s.getGames());
+        }
+    }
+
+    @Test
+    public void resultsAreCounted() {
+        DraughtsPlayer a = player("a"), b = player("b");
+        Standings<DraughtsPlayer> standings = new Standings<>(players);
+        add(standings, a, b, Result.WHITE_WINS, 2);
+        add(standings, b, a, Result.DRAW, 1);
+        add(standings, b, a, Result.WHITE_WINS, 1);
+        add(standings, a, b, Result.UNKNOWN, 1);
+        Standings.Score<DraughtsPlayer> sa = score(standings, a);
+        assertEquals(2, sa.getWins());
+        assertEquals(1, sa.getDraws());
+        assertEquals(1, sa.getLosses());
+        assertEquals(4, sa.getGames());
+        assertEquals(2 * 2 + 1, sa.getPoints());
+        assertSame(a, standings.getRanking().get(0).getPlayer());
+    }
+
+    @Test
+    public void removeUndoesAdd() {
+        DraughtsPlayer a = player("a"), b = player("b");
+        Standings<DraughtsPlayer> standings = new Standings<>(players);
+        add(standings, a, b, Result.DRAW, 3);
+        double elo = score(standings, a).getElo();
+        Game game = game(a, b, Result.WHITE_WINS);
+        standings.add(game);
+        standings.remove(game);
+        assertEquals(3, score(standings, a).getGames());
+        assertEquals(3, score(standings, a).getPoints());
+        assertEquals(elo, score(standings, a).getElo(), EPSILON);
+    }
+
+    @Test
+    public void equalResultsGiveEqualRatings() {
+        DraughtsPlayer a = player("a"), b = player("b");
+        Standings<DraughtsPlayer> standings = new Standings<>(players);
+        add(standings, a, b, Result.WHITE_WINS, 3);
+        add(standings, b, a, Result.WHITE_WINS, 3);
+        assertEquals(0, score(standings, a).getElo(), EPSILON);
+        assertEquals(0, score(standings, b).getElo(), EPSILON);
+    }
+
+    @Test
+    public void winnerOfAllGamesHasFiniteRating() {
+        DraughtsPlayer a = player("a"), b = player("b");
+        Standings<DraughtsPlayer> standings = new Standings<>(players);
+        add(standings, a, b, Result.WHITE_WINS, 10);
+        double elo = score(standings, a).getElo();
+        assertTrue(elo > 0 && !Double.isInfinite(elo));
+        assertEquals(-elo, score(standings, b).getElo(), EPSILON);
+    }
+
+    /**
+     * The ratings are the fixpoint of the minorization-maximization update,
+     * scaled to an average of 0: for every player, the ratio of its actual
+     * number of wins, counting draws as half, to its expected number of wins,
+     * both including the virtual draw against a player rated 0, is about the
+     * same, and close to 1. The players are updated one after the other, so
+     * the ratios differ slightly.
+     */
+    @Test
+    public void ratingsFitTheModel() {
+        DraughtsPlayer a = player("a"), b = player("b"), c = player("c");
+        Standings<DraughtsPlayer> standings = new Standings<>(players);
+        add(standings, a, b, Result.WHITE_WINS, 5);
+        add(standings, b, a, Result.WHITE_WINS, 2);
+        add(standings, a, c, Result.DRAW, 4);
+        add(standings, c, b, Result.BLACK_WINS, 3);
+        add(standings, c, b, Result.WHITE_WINS, 1);
+
+        double mean = 0;
+        double[] g = new double[players.size()];
+        for (int i = 0; i < g.length; i++) {
+            double elo = score(standings, players.get(i)).getElo();
+            mean += elo / g.length;
+            g[i] = Math.pow(10, elo / 400);
+        }
+        assertEquals(0, mean, EPSILON);
+
+        int[][] games = {{0, 7, 4}, {7, 0, 4}, {4, 4, 0}};
+        double[] ratio = new double[g.length];
+        for (int i = 0; i < g.length; i++) {
+            double expected = g[i] / (g[i] + 1), actual = 0.5 + score(standings, players.get(i)).getPoints() / 2.0;
+            for (int j = 0; j < g.length; j++) {
+                expected += games[i][j] * g[i] / (g[i] + g[j]);
+            }
+            ratio[i] = actual / expected;
+        }
+        for (int i = 0; i < g.length; i++) {
+            assertEquals(players.get(i).getName(), ratio[0], ratio[i], 1e-4);
+        }
+        assertEquals(1, ratio[0], 0.01);
+        assertTrue(score(standings, a).getElo() > score(standings, b).getElo());
+    }
+}
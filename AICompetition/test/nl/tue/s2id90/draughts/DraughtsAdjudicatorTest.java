@@ -0,0 +1,155 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests of DraughtsAdjudicator: the draw rules, and material that only
+ * decides a game in a quiet position.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class DraughtsAdjudicatorTest {
+
+    private static DraughtsState state(String fen) {
+        return new DraughtsState(PDNUtil.Fen2BoardState(fen));
+    }
+
+    /**
+     * @return the legal move from field from to field to in s
+     */
+    private static Move move(DraughtsState s, int from, int to) {
+        for (Move m : s.getMoves()) {
+            if (m.getBeginField() == from && m.getEndField() == to) {
+                return m;
+            }
+        }
+        throw new AssertionError(from + "-" + to + " is not legal in " + s);
+    }
+
+    private static Result play(DraughtsAdjudicator adjudicator, DraughtsState s, int from, int to) {
+        Move m = move(s, from, to);
+        s.doMove(m);
+        return adjudicator.moved(s, m);
+    }
+
+    /**
+     * plays king moves that lead to positions that did not occur before and
+     * after which the opponent cannot capture, until the game is decided.
+     *
+     * @return the number of moves played
+     */
+    private static int wander(DraughtsAdjudicator adjudicator, DraughtsState s) {
+        Set<String> seen = new HashSet<>();
+        seen.add(Arrays.toString(s.getPieces()) + s.isWhiteToMove());
+        for (int ply = 1; ply <= 1000; ply++) {
+            Move next = null;
+            for (Move m : s.getMoves()) {
+                s.doMove(m);
+                boolean fresh = !seen.contains(Arrays.toString(s.getPieces()) + s.isWhiteToMove())
+                        && !s.isEndState() && !s.getMoves().get(0).isCapture();
+                s.undoMove(m);
+                if (fresh && m.isKingMove() && !m.isCapture()) {
+                    next = m;
+                    break;
+                }
+            }
+            assertNotNull("no fresh king move in " + s, next);
+            s.doMove(next);
+            seen.add(Arrays.toString(s.getPieces()) + s.isWhiteToMove());
+            Result result = adjudicator.moved(s, next);
+            if (result != Result.UNKNOWN) {
+                assertEquals(Result.DRAW, result);
+                return ply;
+            }
+        }
+        throw new AssertionError("the game is not decided");
+    }
+
+    @Test
+    public void playerThatCannotMoveLoses() {
+        assertEquals(Result.WHITE_WINS, new DraughtsAdjudicator().adjudicate(state("B:W28:B")));
+        assertEquals(Result.BLACK_WINS, new DraughtsAdjudicator().adjudicate(state("W:W:B23")));
+    }
+
+    @Test
+    public void thirdRepetitionIsADraw() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator();
+        DraughtsState s = state("W:WK48,36,46:BK3,5,15");
+        adjudicator.start(s);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(Result.UNKNOWN, play(adjudicator, s, 48, 42));
+            assertEquals(Result.UNKNOWN, play(adjudicator, s, 3, 9));
+            assertEquals(Result.UNKNOWN, play(adjudicator, s, 42, 48));
+            assertEquals(i == 0 ? Result.UNKNOWN : Result.DRAW, play(adjudicator, s, 9, 3));
+        }
+    }
+
+    @Test
+    public void twentyFiveKingMovesEachAreADraw() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator();
+        DraughtsState s = state("W:WK46,K47,K48,K49:BK2,K3,K4,K5");
+        adjudicator.start(s);
+        assertEquals(50, wander(adjudicator, s));
+    }
+
+    @Test
+    public void twoPiecesAgainstAKingAreADrawAfterFiveMovesEach() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator();
+        DraughtsState s = state("W:WK47,K49:BK3");
+        adjudicator.start(s);
+        assertEquals(10, wander(adjudicator, s));
+    }
+
+    @Test
+    public void threePiecesAgainstAKingAreADrawAfterSixteenMovesEach() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator();
+        DraughtsState s = state("W:WK47,K48,K49:BK3");
+        adjudicator.start(s);
+        assertEquals(32, wander(adjudicator, s));
+    }
+
+    @Test
+    public void materialDecidesAQuietPosition() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator(0, 1, Integer.MAX_VALUE);
+        DraughtsState s = state("W:W28,40:B10");
+        adjudicator.start(s);
+        assertEquals(Result.WHITE_WINS, play(adjudicator, s, 28, 22));
+    }
+
+    @Test
+    public void materialDoesNotDecideAnExchange() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator(0, 1, Integer.MAX_VALUE);
+        DraughtsState s = state("W:W28,40:B18");
+        adjudicator.start(s);
+        // white is a man ahead, but black captures it back
+        assertEquals(Result.UNKNOWN, play(adjudicator, s, 28, 23));
+        assertEquals(Result.UNKNOWN, play(adjudicator, s, 18, 29));
+    }
+
+    @Test
+    public void maximumNumberOfMovesWaitsForTheEndOfAnExchange() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator(Integer.MAX_VALUE, 1, 1);
+        DraughtsState s = state("W:W28,40:B18");
+        adjudicator.start(s);
+        assertEquals(Result.UNKNOWN, play(adjudicator, s, 28, 23));
+        assertEquals(Result.DRAW, play(adjudicator, s, 18, 29));
+    }
+
+    @Test
+    public void adjudicatePlaysOutTheCaptures() {
+        DraughtsAdjudicator adjudicator = new DraughtsAdjudicator(Integer.MAX_VALUE, 1, Integer.MAX_VALUE);
+        DraughtsState s = state("B:W23,40:B18");
+        assertEquals(1, DraughtsAdjudicator.material(s.getPieces()));
+        assertEquals(0, DraughtsAdjudicator.exchange(s.clone(), 16));
+        assertEquals(Result.DRAW, adjudicator.adjudicate(s));
+        assertEquals(Result.WHITE_WINS, adjudicator.adjudicate(state("B:W23,40:B10")));
+    }
+}
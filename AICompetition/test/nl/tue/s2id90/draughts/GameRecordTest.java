@@ -0,0 +1,115 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of GameRecord: varints and records are read back as they were
+ * written.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class GameRecordTest {
+
+    @Test
+    public void varintsRoundTrip() throws IOException {
+        int[] values = {0, 1, 127, 128, 300, 16383, 16384, 1 << 21, Integer.MAX_VALUE, -1};
+        int[] bytes = {1, 1, 1, 2, 2, 2, 3, 4, 5, 5};
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        for (int i = 0; i < values.length; i++) {
+            int size = buffer.size();
+            GameRecord.writeVarint(out, values[i]);
+            assertEquals("bytes of " + values[i], bytes[i], buffer.size() - size);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        for (int value : values) {
+            assertEquals(value, GameRecord.readVarint(in));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void tooLongVarintIsRejected() throws IOException {
+        byte[] bytes = new byte[6];
+        Arrays.fill(bytes, (byte) 0x80);
+        GameRecord.readVarint(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void recordsRoundTrip() throws IOException {
+        Random random = new Random(46);
+        List<GameRecord> records = new ArrayList<>();
+        for (int game = 0; game < 20; game++) {
+            DraughtsState start = new DraughtsState();
+            if (game % 2 == 1) {
+                play(start, random, 10);  // a start position that is not the initial position
+            }
+            DraughtsState s = start.clone();
+            List<Move> moves = play(s, random, 200);
+            records.add(new GameRecord(start, moves, Result.values()[game % Result.values().length]));
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        for (GameRecord r : records) {
+            r.write(out);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        for (GameRecord r : records) {
+            GameRecord read = GameRecord.read(in);
+            assertArrayEquals(r.getStart().getPieces(), read.getStart().getPieces());
+            assertEquals(r.getStart().isWhiteToMove(), read.getStart().isWhiteToMove());
+            assertEquals(r.getMoves(), read.getMoves());
+            assertEquals(r.getResult(), read.getResult());
+        }
+        assertNull(GameRecord.read(in));
+    }
+
+    @Test
+    public void moveTakesOneByte() throws IOException {
+        DraughtsState s = new DraughtsState();
+        List<Move> moves = play(s, new Random(46), 100);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new GameRecord(new DraughtsState(), moves, Result.DRAW).write(new DataOutputStream(buffer));
+        assertEquals(1 + 1 + moves.size(), buffer.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedRecordIsRejected() throws IOException {
+        DraughtsState s = new DraughtsState();
+        List<Move> moves = play(s, new Random(46), 40);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new GameRecord(new DraughtsState(), moves, Result.DRAW).write(new DataOutputStream(buffer));
+        byte[] bytes = Arrays.copyOf(buffer.toByteArray(), buffer.size() - 1);
+        GameRecord.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * plays at most the given number of random moves in s.
+     *
+     * @return the moves
+     */
+    private static List<Move> play(DraughtsState s, Random random, int plies) {
+        List<Move> played = new ArrayList<>();
+        for (int ply = 0; ply < plies && !s.isEndState(); ply++) {
+            List<Move> moves = s.getMoves();
+            Move m = moves.get(random.nextInt(moves.size()));
+            s.doMove(m);
+            played.add(m);
+        }
+        return played;
+    }
+}
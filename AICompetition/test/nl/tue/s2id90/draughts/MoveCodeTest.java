@@ -0,0 +1,88 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.List;
+import java.util.Random;
+import org10x10.dam.game.Move;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of MoveCode: every legal move is encoded as a code that decodes back
+ * to the same move in the same position.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class MoveCodeTest {
+
+    @Test
+    public void legalMovesRoundTrip() {
+        Random random = new Random(90);
+        for (int game = 0; game < 50; game++) {
+            DraughtsState s = new DraughtsState();
+            for (int ply = 0; ply < 150 && !s.isEndState(); ply++) {
+                List<Move> moves = s.getMoves();
+                for (Move m : moves) {
+                    int code = MoveCode.encode(s, m);
+                    assertNotEquals(m.toString(), MoveCode.NONE, code);
+                    assertEquals(m.getBeginField(), MoveCode.from(code));
+                    assertEquals(m.getEndField(), MoveCode.to(code));
+                    assertEquals(m.getCaptureCount(), MoveCode.captures(code));
+                    assertEquals(m, MoveCode.decode(s, code));
+                }
+                s.doMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    public void codesOfPositionAreSortedAndDistinct() {
+        Random random = new Random(90);
+        DraughtsState s = new DraughtsState();
+        for (int ply = 0; ply < 150 && !s.isEndState(); ply++) {
+            int[] codes = MoveCode.encode(s);
+            for (int i = 1; i < codes.length; i++) {
+                assertTrue(codes[i - 1] < codes[i]);
+            }
+            for (int code : codes) {
+                assertEquals(code, MoveCode.encode(s, MoveCode.decode(s, code)));
+            }
+            List<Move> moves = s.getMoves();
+            s.doMove(moves.get(random.nextInt(moves.size())));
+        }
+    }
+
+    @Test
+    public void illegalMovesHaveNoCode() {
+        DraughtsState s = new DraughtsState();
+        Move white = s.getMoves().get(0);
+        s.doMove(white);
+        assertEquals(MoveCode.NONE, MoveCode.encode(s, white));
+        assertNull(MoveCode.decode(s, MoveCode.NONE));
+    }
+
+    @Test
+    public void movesHaveEqualCodesIfAndOnlyIfTheyAreEqual() {
+        // the generator may return a capture once for every path; these are equal moves
+        DraughtsState s = new DraughtsState();
+        Random random = new Random(7);
+        for (int ply = 0; ply < 2000; ply++) {
+            if (s.isEndState()) {
+                s = new DraughtsState();
+            }
+            List<Move> moves = s.getMoves();
+            int[] codes = new int[moves.size()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = MoveCode.encode(s, moves.get(i));
+            }
+            for (int i = 0; i < codes.length; i++) {
+                for (int j = 0; j < codes.length; j++) {
+                    assertEquals(moves.get(i).equals(moves.get(j)), codes[i] == codes[j]);
+                }
+            }
+            s.doMove(moves.get(random.nextInt(moves.size())));
+        }
+    }
+}
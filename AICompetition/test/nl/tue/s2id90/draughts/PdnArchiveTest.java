@@ -0,0 +1,167 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+import org10x10.dam.game.PDNUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of PdnArchive and PdnReader: games that are archived are read back
+ * with the same start position, moves, result and tags, also if a capture
+ * can only be told apart from another one by its full notation.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class PdnArchiveTest {
+
+    /**
+     * a king on 35 that captures three men in two ways, both ending on 49:
+     * 35x8x21x49 over 30, 17 and 43, and 35x2x16x49 over 30, 11 and 43.
+     */
+    private static final String AMBIGUOUS = "W:WK35:B30,17,11,43";
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("games", ".pdn");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    private static DraughtsPlayer player(String name) {
+        return new DraughtsPlayer((URL) null) {
+            @Override
+            public Move getMove(DraughtsState s) {
+                return null;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    private static Game game(String white, String black, Result result) {
+        Game game = new Game(player(white), player(black));
+        game.setResult(result);
+        return game;
+    }
+
+    /**
+     * plays the given first moves, followed by random moves, from start.
+     *
+     * @return the moves
+     */
+    private static List<Move> play(DraughtsState start, List<Move> first, int plies, long seed) {
+        Random random = new Random(seed);
+        DraughtsState s = start.clone();
+        List<Move> moves = new ArrayList<>(first);
+        first.forEach(s::doMove);
+        while (moves.size() < plies && !s.isEndState()) {
+            List<Move> legal = s.getMoves();
+            Move m = legal.get(random.nextInt(legal.size()));
+            s.doMove(m);
+            moves.add(m);
+        }
+        return moves;
+    }
+
+    private static void assertSameGame(DraughtsState start, List<Move> moves, Result result, PdnGame game) {
+        assertEquals(Arrays.toString(start.getPieces()), Arrays.toString(game.getStart().getPieces()));
+        assertEquals(start.isWhiteToMove(), game.getStart().isWhiteToMove());
+        assertEquals(moves.size(), game.getMoves().size());
+        for (int i = 0; i < moves.size(); i++) {
+            assertEquals("move " + i, moves.get(i).getFullNotation(), game.getMoves().get(i).getFullNotation());
+        }
+        assertEquals(result, game.getResult());
+    }
+
+    @Test
+    public void gamesRoundTrip() throws IOException {
+        DraughtsState initial = new DraughtsState();
+        List<Move> first = play(initial, new ArrayList<>(), 60, 1);
+        DraughtsState from = new DraughtsState(PDNUtil.Fen2BoardState("B:W31,32,33,K47:B18,19,20,K4"));
+        List<Move> second = play(from, new ArrayList<>(), 40, 2);
+        try (PdnArchive archive = new PdnArchive(file, "PdnArchiveTest")) {
+            archive.add(game("white", "Mr \"B\"", Result.WHITE_WINS), initial, first, 200);
+            archive.add(game("a", "b", Result.UNKNOWN), from, second, 1000);
+        }
+
+        try (PdnReader reader = new PdnReader(file)) {
+            assertTrue(reader.hasNext());
+            PdnGame game = reader.next();
+            assertSameGame(initial, first, Result.WHITE_WINS, game);
+            assertTrue(game.isFromInitialPosition());
+            assertEquals("PdnArchiveTest", game.getTag("Event"));
+            assertEquals("white", game.getTag("White"));
+            assertEquals("Mr 'B'", game.getTag("Black"));
+            assertEquals("2-0", game.getTag("Result"));
+            assertEquals("200ms/move", game.getTag("TimeControl"));
+
+            game = reader.next();
+            assertSameGame(from, second, Result.UNKNOWN, game);
+            assertFalse(game.isFromInitialPosition());
+            assertEquals("1000ms/move", game.getTag("TimeControl"));
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void ambiguousKingCapturesRoundTrip() throws IOException {
+        DraughtsState start = new DraughtsState(PDNUtil.Fen2BoardState(AMBIGUOUS));
+        List<Move> captures = new ArrayList<>();
+        for (Move m : start.getMoves()) {
+            if (m.getBeginField() == 35 && m.getEndField() == 49) {
+                captures.add(m);
+            }
+        }
+        assertEquals(2, captures.size());
+        assertEquals(captures.get(0).getNotation(), captures.get(1).getNotation());
+        assertNull(PdnReader.find(start, captures.get(0).getNotation().trim()));
+
+        try (PdnArchive archive = new PdnArchive(file, "PdnArchiveTest")) {
+            for (Move capture : captures) {
+                archive.add(game("a", "b", Result.DRAW), start, Arrays.asList(capture), 200);
+            }
+            // the ambiguous capture followed by more moves
+            archive.add(game("a", "b", Result.BLACK_WINS), start, play(start, captures.subList(1, 2), 20, 3), 200);
+        }
+
+        try (PdnReader reader = new PdnReader(file)) {
+            for (Move capture : captures) {
+                assertSameGame(start, Arrays.asList(capture), Result.DRAW, reader.next());
+            }
+            assertSameGame(start, play(start, captures.subList(1, 2), 20, 3), Result.BLACK_WINS, reader.next());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void capturesOfTheSamePiecesAreNotAmbiguous() {
+        // 1x23x45, 1x29x45 and 1x34x45 all capture 18 and 40
+        DraughtsState s = new DraughtsState(PDNUtil.Fen2BoardState("W:WK1:B40,15,18,26"));
+        Move m = PdnReader.find(s, "1x45");
+        assertTrue(s.getMoves().contains(m));
+        assertEquals(m, PdnReader.find(s, "1x34x45"));
+    }
+}
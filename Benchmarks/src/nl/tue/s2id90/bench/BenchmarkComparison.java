@@ -0,0 +1,107 @@
+package nl.tue.s2id90.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two result files of the benchmarks, in the CSV format of JMH.
+ * Usage:
+ * <pre>
+ * java nl.tue.s2id90.bench.BenchmarkComparison base.csv new.csv
+ * </pre>
+ * For every benchmark and parameter combination in both files, the scores
+ * and their relative change are printed. A change is marked with ! if it is
+ * larger than the sum of the score errors of both runs, with + for an
+ * improvement and - for a regression. A score in a unit per operation, e.g.
+ * ns/op, is a time, for which lower is better; for other units, e.g. ops/s,
+ * higher is better.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class BenchmarkComparison {
+
+    private static class Score {
+        final double score, error;
+        final String unit;
+
+        Score(double score, double error, String unit) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BenchmarkComparison base.csv new.csv");
+            System.exit(1);
+        }
+        Map<String, Score> base = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+        System.out.format("%-60s %14s %14s %9s  %s\n", "benchmark", "base", "new", "change", "unit");
+        for (Map.Entry<String, Score> e : current.entrySet()) {
+            Score b = base.get(e.getKey());
+            if (b == null) {
+                continue;
+            }
+            Score c = e.getValue();
+            double change = (c.score - b.score) / b.score;
+            boolean significant = Math.abs(c.score - b.score) > b.error + c.error;
+            boolean faster = c.unit.contains("/op") ? c.score < b.score : c.score > b.score;
+            System.out.format("%-60s %14.3f %14.3f %+8.1f%%  %s %s\n", e.getKey(), b.score, c.score,
+                    100 * change, c.unit, significant ? (faster ? "+!" : "-!") : "");
+        }
+    }
+
+    /**
+     * @return the scores in the given file, by benchmark name and parameters
+     */
+    static Map<String, Score> read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Map<String, Score> scores = new LinkedHashMap<>();
+        List<String> header = split(lines.get(0));
+        int score = header.indexOf("Score"), unit = header.indexOf("Unit");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = split(line);
+            if (fields.size() != header.size()) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(fields.get(0));
+            for (int i = unit + 1; i < fields.size(); i++) {
+                if (!fields.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(fields.get(i));
+                }
+            }
+            double error = fields.get(score + 1).equals("NaN") ? 0 : Double.parseDouble(fields.get(score + 1));
+            scores.put(key.toString(), new Score(Double.parseDouble(fields.get(score)), error, fields.get(unit)));
+        }
+        return scores;
+    }
+
+    /**
+     * @return the fields of a CSV line, without quotes
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
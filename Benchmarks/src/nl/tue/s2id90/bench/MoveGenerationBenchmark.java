@@ -0,0 +1,80 @@
+package nl.tue.s2id90.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org10x10.dam.game.Move;
+
+/**
+ * Benchmarks of the board representation: move generation, doing and undoing
+ * moves, and cloning. Every call works on the next benchmark position, so a
+ * score is the average over all positions.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoveGenerationBenchmark {
+
+    private DraughtsState[] states;
+    private Move[][] moves;     // the legal moves of every position
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<DraughtsState> positions = Positions.load();
+        states = positions.toArray(new DraughtsState[0]);
+        moves = new Move[states.length][];
+        for (int i = 0; i < states.length; i++) {
+            moves[i] = states[i].getMoves().toArray(new Move[0]);
+        }
+    }
+
+    private int next() {
+        int i = next;
+        next = i + 1 == states.length ? 0 : i + 1;
+        return i;
+    }
+
+    /**
+     * generates the moves after the first move of a position. A state caches
+     * its moves, so the cache is invalidated by doing and undoing that move;
+     * compare with doMoveUndoMove.
+     */
+    @Benchmark
+    public int getMoves() {
+        int i = next();
+        DraughtsState s = states[i];
+        Move m = moves[i][0];
+        s.doMove(m);
+        int n = s.getMoves().size();
+        s.undoMove(m);
+        return n;
+    }
+
+    /**
+     * does and undoes the first move of a position.
+     */
+    @Benchmark
+    public DraughtsState doMoveUndoMove() {
+        int i = next();
+        DraughtsState s = states[i];
+        Move m = moves[i][0];
+        s.doMove(m);
+        s.undoMove(m);
+        return s;
+    }
+
+    @Benchmark
+    public DraughtsState cloneState() {
+        return states[next()].clone();
+    }
+}
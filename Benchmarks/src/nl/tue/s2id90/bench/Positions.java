@@ -0,0 +1,43 @@
+package nl.tue.s2id90.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.OpeningSuite;
+
+/**
+ * The positions on which the benchmarks are run. They are read with
+ * OpeningSuite from the file given by the system property bench.positions,
+ * default positions.txt in the working directory.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * @return fresh states with the benchmark positions that are not end
+     * states
+     */
+    public static List<DraughtsState> load() {
+        File file = new File(System.getProperty("bench.positions", "positions.txt"));
+        try {
+            OpeningSuite suite = OpeningSuite.load(file);
+            List<DraughtsState> states = new ArrayList<>();
+            for (int i = 0; i < suite.size(); i++) {
+                DraughtsState s = suite.get(i);
+                if (!s.isEndState()) {
+                    states.add(s);
+                }
+            }
+            return states;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("unable to load the benchmark positions", ex);
+        }
+    }
+}
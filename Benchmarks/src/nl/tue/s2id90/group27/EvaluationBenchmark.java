@@ -0,0 +1,138 @@
+package nl.tue.s2id90.group27;
+
+import static java.lang.Integer.MAX_VALUE;
+import static java.lang.Integer.MIN_VALUE;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.bench.Positions;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the evaluation function of MrDraughtsRoboto and of the
+ * Network that can replace it. This class is in the package of the player,
+ * because the evaluation is package private.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EvaluationBenchmark {
+
+    private MrDraughtsRoboto player;
+    private DraughtsState[] states;
+    private int[][] pieces;
+    private long[] keys;
+    private Network network;
+    private Move[] moves;       // the legal moves of the state of the accumulator
+    private Accumulator accumulator;
+    private int next;
+
+    @Setup
+    public void setup() {
+        player = new MrDraughtsRoboto(1);
+        List<DraughtsState> positions = Positions.load();
+        states = positions.toArray(new DraughtsState[0]);
+        pieces = new int[states.length][];
+        keys = new long[states.length];
+        for (int i = 0; i < states.length; i++) {
+            pieces[i] = states[i].getPieces();
+            keys[i] = Zobrist.hash(pieces[i]);
+        }
+        //the speed of a network does not depend on its weights
+        network = Network.getDefault();
+        if (network == null) {
+            network = randomNetwork(32, new Random(1));
+        }
+        accumulator = new Accumulator(network);
+        DraughtsState state = new DraughtsState();
+        accumulator.refresh(state);
+        moves = state.getMoves().toArray(new Move[0]);
+    }
+
+    private static Network randomNetwork(int hidden, Random random) {
+        short[] weights1 = new short[Network.INPUTS * hidden];
+        short[] bias1 = new short[hidden];
+        short[] weights2 = new short[hidden];
+        for (int i = 0; i < weights1.length; i++) {
+            weights1[i] = (short) (random.nextInt(33) - 16);
+        }
+        for (int j = 0; j < hidden; j++) {
+            bias1[j] = (short) random.nextInt(Network.ONE);
+            weights2[j] = (short) (random.nextInt(2 * Network.ONE + 1) - Network.ONE);
+        }
+        return new Network(hidden, 8 * MrDraughtsRoboto.PIECE, weights1, bias1, weights2, 0);
+    }
+
+    private int next() {
+        int i = next;
+        next = i + 1 == states.length ? 0 : i + 1;
+        return i;
+    }
+
+    private int nextMove() {
+        int i = next;
+        next = i + 1 >= moves.length ? 0 : i + 1;
+        return i;
+    }
+
+    /**
+     * a complete evaluation, without the evaluation cache and without lazy
+     * evaluation.
+     */
+    @Benchmark
+    public int evaluateFull() {
+        int i = next();
+        return player.evaluate(states[i], pieces[i], keys[i], MIN_VALUE, MAX_VALUE);
+    }
+
+    /**
+     * an evaluation with a null window around 0, so that lazy evaluation
+     * skips the stages that can not change the outcome.
+     */
+    @Benchmark
+    public int evaluateLazy() {
+        int i = next();
+        return player.evaluate(states[i], pieces[i], keys[i], -1, 0);
+    }
+
+    /**
+     * an evaluation that is found in the evaluation cache, including the
+     * computation of the hash key.
+     */
+    @Benchmark
+    public int evaluateCached() {
+        return player.evaluate(states[next()]);
+    }
+
+    /**
+     * an evaluation by the network from scratch, adding the weights of all
+     * pieces to the accumulator.
+     */
+    @Benchmark
+    public int networkFull() {
+        return network.evaluate(states[next()]);
+    }
+
+    /**
+     * an evaluation by the network as it is done in the search: the
+     * accumulator of the initial position is updated for one of its moves,
+     * evaluated and restored.
+     */
+    @Benchmark
+    public int networkIncremental() {
+        accumulator.push(moves[nextMove()]);
+        int value = accumulator.evaluate();
+        accumulator.pop();
+        return value;
+    }
+}
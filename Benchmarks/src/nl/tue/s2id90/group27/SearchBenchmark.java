@@ -0,0 +1,96 @@
+package nl.tue.s2id90.group27;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.bench.Positions;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.player.SearchStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org10x10.dam.game.Move;
+
+/**
+ * Benchmark of a fixed depth search of MrDraughtsRoboto, with iterative
+ * deepening, on the benchmark positions in turn. Every search starts from
+ * scratch: with an empty evaluation cache and an empty transposition table,
+ * which otherwise keeps the results of earlier searches of the same position,
+ * and without opening book. So what is measured is the complete search of
+ * every iteration, not the lookup of a position that was searched before.
+ * Next to the time per search, the time per node is reported as the secondary
+ * result "nodes"; the nodes, including quiescence nodes, are counted by the
+ * SearchStats of the player.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+
+    @Param({"4", "6"})
+    public int depth;
+
+    private MrDraughtsRoboto player;
+    private DraughtsState[] states;
+    private int next;
+
+    /**
+     * nodes searched, including quiescence nodes.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        player = new MrDraughtsRoboto(depth, null, null);
+        List<DraughtsState> positions = Positions.load();
+        states = positions.toArray(new DraughtsState[0]);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (player.getEvalCache() != null) {
+            player.getEvalCache().clear();
+        }
+        if (player.getTranspositionTable() != null) {
+            player.getTranspositionTable().clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        player.release();
+    }
+
+    @Benchmark
+    public Move search(Nodes counter) {
+        DraughtsState s = states[next];
+        next = next + 1 == states.length ? 0 : next + 1;
+        Move m = player.getMove(s.clone());
+
+        // the last depth iterations in the statistics are those of this search
+        SearchStats stats = player.getSearchStats();
+        for (int i = Math.max(0, stats.size() - depth); i < stats.size(); i++) {
+            counter.nodes += stats.get(i, "nodes") + stats.get(i, "qnodes");
+        }
+        return m;
+    }
+}
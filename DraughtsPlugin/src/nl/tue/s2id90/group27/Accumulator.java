@@ -0,0 +1,76 @@
+package nl.tue.s2id90.group27;
+
+import java.util.Arrays;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * The accumulators of a Network along the current line of a search: one per
+ * ply, in one array of shorts. When the search does a move, push() copies the
+ * accumulator of the current position and updates it with the inputs that
+ * the move changes: the piece that moves leaves its begin field, the piece,
+ * possibly promoted, arrives on the end field, the captured pieces disappear
+ * and the other player is to move. When the search undoes the move, pop()
+ * returns to the accumulator of the previous position, so an undo costs
+ * nothing.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class Accumulator {
+
+    private final Network network;
+    private final int hidden;
+    private short[] stack;
+    private int top;            // offset of the accumulator of the current position
+
+    Accumulator(Network network) {
+        this.network = network;
+        this.hidden = network.hidden;
+        this.stack = new short[64 * hidden];
+    }
+
+    /**
+     * starts a line at the given state.
+     */
+    void refresh(DraughtsState state) {
+        top = 0;
+        network.refresh(state, stack, 0);
+    }
+
+    /**
+     * updates the accumulator for move m, which is done in the current
+     * position.
+     */
+    void push(Move m) {
+        int next = top + hidden;
+        if (next + hidden > stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stack.length);
+        }
+        System.arraycopy(stack, top, stack, next, hidden);
+        top = next;
+        network.subtract(stack, top, Network.input(m.getBeginPiece(), m.getBeginField()));
+        network.add(stack, top, Network.input(m.getEndPiece(), m.getEndField()));
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            network.subtract(stack, top, Network.input(m.getCapturedPiece(i), m.getCapturedField(i)));
+        }
+        if (m.isWhiteMove()) {
+            network.subtract(stack, top, Network.SIDE_TO_MOVE);
+        } else {
+            network.add(stack, top, Network.SIDE_TO_MOVE);
+        }
+    }
+
+    /**
+     * returns to the accumulator before the last push().
+     */
+    void pop() {
+        top -= hidden;
+    }
+
+    /**
+     * @return the value for white of the current position
+     */
+    int evaluate() {
+        return network.output(stack, top);
+    }
+}
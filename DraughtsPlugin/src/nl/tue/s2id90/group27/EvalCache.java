@@ -0,0 +1,134 @@
+package nl.tue.s2id90.group27;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size, direct-mapped cache of evaluation scores, keyed by the Zobrist
+ * hash of a position. A new entry simply overwrites the entry in its slot.
+ *
+ * The cache may be shared by several search threads without locking: each
+ * slot stores the key xor-ed with the score, so an entry of which the key and
+ * the score were written by different threads does not verify and is treated
+ * as a miss.
+ *
+ * Caches are taken from and returned to a pool with acquire() and release(),
+ * so that players that are created for every game do not allocate a new
+ * cache each time. A cache remembers the weights with which its scores were
+ * computed, and keeps its entries only when it is acquired again for equal
+ * weights; the weights themselves are compared, not a hash of them, so
+ * players with different weights never share scores.
+ */
+final class EvalCache {
+
+    /**
+     * returned by probe() when the position is not in the cache.
+     */
+    static final int MISS = Integer.MIN_VALUE;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private Object[] owner;         // the weights of the scores, see acquire()
+
+    /**
+     * caches that are not in use.
+     */
+    private static final List<EvalCache> POOL = new ArrayList<>();
+
+    /**
+     * creates a cache with 2^bits entries.
+     */
+    EvalCache(int bits) {
+        keys = new long[1 << bits];
+        scores = new int[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * takes a cache with 2^bits entries from the pool, preferably one that was
+     * filled with the same weights, or creates one if the pool has none.
+     *
+     * @param owner the weights with which the scores in the cache will be
+     * computed, e.g. EvalWeights.values(), compared with Arrays.deepEquals()
+     */
+    static EvalCache acquire(int bits, Object... owner) {
+        EvalCache cache = null;
+        synchronized (POOL) {
+            for (EvalCache c : POOL) {
+                if (c.keys.length == 1 << bits && (cache == null || Arrays.deepEquals(c.owner, owner))) {
+                    cache = c;
+                }
+            }
+            POOL.remove(cache);
+        }
+        if (cache == null) {
+            cache = new EvalCache(bits);
+        } else if (!Arrays.deepEquals(cache.owner, owner)) {
+            cache.clear();
+        }
+        cache.owner = owner;
+        cache.probes.reset();
+        cache.hits.reset();
+        return cache;
+    }
+
+    /**
+     * returns this cache to the pool; it should not be used anymore.
+     */
+    void release() {
+        synchronized (POOL) {
+            POOL.add(this);
+        }
+    }
+
+    /**
+     * @return the cached score for the position with the given key, or MISS
+     */
+    int probe(long key) {
+        probes.increment();
+        int i = (int) key & mask;
+        int score = scores[i];
+        if ((keys[i] ^ score) == key) {
+            hits.increment();
+            return score;
+        }
+        return MISS;
+    }
+
+    void store(long key, int score) {
+        int i = (int) key & mask;
+        scores[i] = score;
+        keys[i] = key ^ score;
+    }
+
+    /**
+     * removes all entries and resets the counters.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(scores, 0);
+        probes.reset();
+        hits.reset();
+    }
+
+    long getProbes() {
+        return probes.sum();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return fraction of the probes that were hits
+     */
+    double getHitRate() {
+        long n = probes.sum();
+        return n == 0 ? 0 : (double) hits.sum() / n;
+    }
+}
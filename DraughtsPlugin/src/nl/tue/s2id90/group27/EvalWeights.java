@@ -0,0 +1,214 @@
+package nl.tue.s2id90.group27;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The weights of the evaluation function of MrDraughtsRoboto: the value of a
+ * piece and a table with one weight per game phase for every other term.
+ *
+ * Weights can be stored in and loaded from a properties file with one line per
+ * table, e.g. {@code KING=2000,6000,6000,6000}, or from a compact binary file
+ * that starts with MAGIC, followed by the piece value, the number of tables
+ * and for each table its name and one int per phase. Tables that are missing
+ * from a file keep their default value.
+ */
+final class EvalWeights {
+
+    /**
+     * names of the weight tables, in the order in which they are stored.
+     */
+    static final String[] TABLES = {
+        "KING", "ROWMULTIPLIER", "MIDDLEBACKRANK", "DOUBLECORNER", "CENTERCONTROL",
+        "BALANCE", "GOLDENPIECE", "OUTPOST24", "BRIDGE", "TRIANGLE", "TAIL"
+    };
+    static final int PHASES = 4;
+    static final int MAGIC = 0x44425731; //"DBW1", first bytes of a binary weights file
+
+    int piece;
+    private final int[][] tables = new int[TABLES.length][];
+
+    private EvalWeights() {
+    }
+
+    /**
+     * @return the weights as they are defined in MrDraughtsRoboto
+     */
+    static EvalWeights defaults() {
+        EvalWeights weights = new EvalWeights();
+        weights.piece = MrDraughtsRoboto.PIECE;
+        weights.set("KING", MrDraughtsRoboto.KING);
+        weights.set("ROWMULTIPLIER", MrDraughtsRoboto.ROWMULTIPLIER);
+        weights.set("MIDDLEBACKRANK", MrDraughtsRoboto.MIDDLEBACKRANK);
+        weights.set("DOUBLECORNER", MrDraughtsRoboto.DOUBLECORNER);
+        weights.set("CENTERCONTROL", MrDraughtsRoboto.CENTERCONTROL);
+        weights.set("BALANCE", MrDraughtsRoboto.BALANCE);
+        weights.set("GOLDENPIECE", MrDraughtsRoboto.GOLDENPIECE);
+        weights.set("OUTPOST24", MrDraughtsRoboto.OUTPOST24);
+        for (Pattern p : MrDraughtsRoboto.PATTERNS) {
+            weights.set(p.name.toUpperCase(), p.weight);
+        }
+        return weights;
+    }
+
+    /**
+     * @return position of the given table in TABLES
+     */
+    static int index(String table) {
+        for (int i = 0; i < TABLES.length; i++) {
+            if (TABLES[i].equals(table)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown weight table: " + table);
+    }
+
+    /**
+     * @return the weights of the given table, one per game phase
+     */
+    int[] get(String table) {
+        return tables[index(table)];
+    }
+
+    void set(String table, int[] weights) {
+        if (weights.length != PHASES) {
+            throw new IllegalArgumentException(table + " needs " + PHASES + " weights");
+        }
+        tables[index(table)] = weights.clone();
+    }
+
+    /**
+     * @return a copy of all weights: the piece value, followed by the tables
+     * in the order of TABLES
+     */
+    int[] values() {
+        int[] values = new int[1 + TABLES.length * PHASES];
+        values[0] = piece;
+        for (int i = 0; i < TABLES.length; i++) {
+            System.arraycopy(tables[i], 0, values, 1 + i * PHASES, PHASES);
+        }
+        return values;
+    }
+
+    /**
+     * @return a hash of all weights; equal weights have equal fingerprints
+     */
+    long fingerprint() {
+        long h = piece;
+        for (int[] table : tables) {
+            for (int w : table) {
+                h = 31 * h + w;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * loads weights from the given binary or properties file; tables that are
+     * not in the file get their default values.
+     */
+    static EvalWeights load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (file.length() >= 4 && in.readInt() == MAGIC) {
+                return loadBinary(file, in);
+            }
+        }
+        return loadProperties(file);
+    }
+
+    private static EvalWeights loadBinary(File file, DataInputStream in) throws IOException {
+        EvalWeights weights = defaults();
+        weights.piece = in.readInt();
+        int count = in.readInt();
+        try {
+            for (int i = 0; i < count; i++) {
+                String table = in.readUTF();
+                int[] values = new int[PHASES];
+                for (int phase = 0; phase < PHASES; phase++) {
+                    values[phase] = in.readInt();
+                }
+                weights.set(table, values);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(file + ": " + ex.getMessage(), ex);
+        }
+        return weights;
+    }
+
+    private static EvalWeights loadProperties(File file) throws IOException {
+        Properties properties = new Properties();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            properties.load(in);
+        }
+        EvalWeights weights = defaults();
+        try {
+            String piece = properties.getProperty("PIECE");
+            if (piece != null) {
+                weights.piece = Integer.parseInt(piece.trim());
+            }
+            for (String table : TABLES) {
+                String value = properties.getProperty(table);
+                if (value != null) {
+                    weights.set(table, Arrays.stream(value.split(","))
+                            .mapToInt(v -> Integer.parseInt(v.trim())).toArray());
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(file + ": " + ex.getMessage(), ex);
+        }
+        return weights;
+    }
+
+    /**
+     * stores these weights in a properties file that can be read by load().
+     *
+     * @param comment written at the top of the file
+     */
+    void store(File file, String comment) throws IOException {
+        try (PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (String line : comment.split("\n")) {
+                out.println("# " + line);
+            }
+            out.println("PIECE=" + piece);
+            for (int i = 0; i < TABLES.length; i++) {
+                out.print(TABLES[i] + "=");
+                for (int phase = 0; phase < PHASES; phase++) {
+                    out.print((phase > 0 ? "," : "") + tables[i][phase]);
+                }
+                out.println();
+            }
+        }
+    }
+
+    /**
+     * stores these weights in a binary file that can be read by load().
+     */
+    void storeBinary(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(piece);
+            out.writeInt(TABLES.length);
+            for (int i = 0; i < TABLES.length; i++) {
+                out.writeUTF(TABLES[i]);
+                for (int phase = 0; phase < PHASES; phase++) {
+                    out.writeInt(tables[i][phase]);
+                }
+            }
+        }
+    }
+}
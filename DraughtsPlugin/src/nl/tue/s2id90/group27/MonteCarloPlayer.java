@@ -0,0 +1,387 @@
+package nl.tue.s2id90.group27;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCode;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import org10x10.dam.game.Move;
+
+/**
+ * A player that searches with Monte Carlo tree search instead of alpha-beta.
+ *
+ * <p>
+ * Every playout descends the tree from the root, choosing at every node the
+ * child with the highest UCT value q + EXPLORATION sqrt(ln N / n), where q is
+ * the mean result of the n visits of the child for the player to move and N
+ * is the number of visits of the node. A leaf that was visited before is
+ * expanded with all its moves, and one of them is played. From there, the
+ * playout plays random moves until the game ends, or, with an evaluator, for
+ * rolloutPlies plies and until the position is quiet, after which
+ * MrDraughtsRoboto.evaluate() gives the result, with one piece as one logit
+ * of the probability that white wins. The result is added to the nodes of
+ * the playout.
+ * </p><p>
+ * The search runs in several threads that share one tree, see NodeStore. A
+ * thread adds a virtual loss of VIRTUAL_LOSS visits without result to every
+ * node on its way down, and removes it when it adds the result, so that the
+ * other threads are steered to other lines. The thread that called getMove()
+ * does playouts as well, until stop() is called or maxPlayouts playouts are
+ * done; then the move of the child of the root with the most visits is
+ * played. The other threads are started by that thread for every move, so
+ * that a GameRunner, which measures the cpu time of the threads that a
+ * player starts, charges their cpu time to the move time of this player.
+ * </p><p>
+ * The tree has room for a fixed number of nodes. After a move, the subtree of
+ * the position in which the player is to move again, if it is in the tree,
+ * is copied to a second store and searched further, so the playouts of the
+ * previous move are not lost; the memory of the player is bounded by the two
+ * stores.
+ * </p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class MonteCarloPlayer extends DraughtsPlayer {
+
+    private static final Logger LOG = Logger.getLogger(MonteCarloPlayer.class.getName());
+
+    final static int SCALE = 1 << 16;          // a win, in fixed point; a loss is 0
+    final static double EXPLORATION = 0.7;
+    final static int VIRTUAL_LOSS = 3;
+    final static int MAX_PLAYOUT = 200;        // plies after which a playout is a draw
+    final static int DEFAULT_CAPACITY = 1 << 20;
+
+    private final int threads;
+    private final int capacity;
+
+    /**
+     * player whose evaluation ends the playouts, or null if they are played
+     * to the end; see setEvaluator().
+     */
+    private MrDraughtsRoboto evaluator;
+    private int rolloutPlies;
+
+    private long maxPlayouts = Long.MAX_VALUE;
+    private final AtomicLong playouts = new AtomicLong();
+    private volatile boolean stopped;
+
+    private NodeStore tree, spare;
+    private DraughtsState root;     // the position of node 0 of tree
+    private int bestValue;
+
+    /**
+     * creates a player with a thread per core.
+     */
+    public MonteCarloPlayer() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param threads number of threads that search, including the thread that
+     * calls getMove()
+     * @param capacity maximum number of nodes of the tree
+     */
+    public MonteCarloPlayer(int threads, int capacity) {
+        super("best.png");
+        this.threads = threads;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public String getName() {
+        return evaluator == null ? super.getName() : super.getName() + " evaluate " + rolloutPlies;
+    }
+
+    /**
+     * ends the playouts with the evaluation of the given player.
+     *
+     * @param evaluator the player, or null to play the playouts to the end
+     * @param rolloutPlies number of random plies before the evaluation
+     * @return this player
+     */
+    MonteCarloPlayer setEvaluator(MrDraughtsRoboto evaluator, int rolloutPlies) {
+        this.evaluator = evaluator;
+        this.rolloutPlies = rolloutPlies;
+        return this;
+    }
+
+    /**
+     * limits the number of playouts per move, e.g. to compare searches of
+     * the same size; by default the search runs until stop() is called.
+     *
+     * @return this player
+     */
+    MonteCarloPlayer setMaxPlayouts(long maxPlayouts) {
+        this.maxPlayouts = maxPlayouts;
+        return this;
+    }
+
+    @Override
+    public Move getMove(DraughtsState s) {
+        List<Move> moves = s.getMoves();
+        if (moves.size() == 1) {
+            return moves.get(0);
+        }
+        if (tree == null) {
+            tree = NodeStore.acquire(capacity);
+            spare = NodeStore.acquire(capacity);
+            root = null;
+        }
+        if (evaluator != null) {
+            evaluator.acquire();
+        }
+        int reused = reuse(s);
+        stopped = false;
+        playouts.set(0);
+        List<Future<?>> workers = new ArrayList<>();
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread t = new Thread(r, "mcts");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        for (int i = 1; i < threads; i++) {
+            workers.add(pool.submit(this::search));
+        }
+        search();
+        stopped = true;
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                LOG.log(Level.WARNING, "exception in a search thread", ex.getCause());
+            }
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+
+        int best = bestChild();
+        if (best < 0) {     // stopped before the root was expanded
+            return moves.get(0);
+        }
+        bestValue = (int) (100 * tree.score.get(best) / ((long) Math.max(1, tree.visits.get(best)) * SCALE));
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine(String.format("best move = %5s, value=%d%%, visits=%d, playouts=%d, nodes=%d (%d reused)",
+                    MoveCode.decode(moves, tree.move[best]), bestValue, tree.visits.get(best),
+                    playouts.get(), tree.size(), reused));
+        }
+        return MoveCode.decode(moves, tree.move[best]);
+    }
+
+    /**
+     * @return the percentage of the playouts after the move of getMove() that
+     * were won by the player that did it, counting draws as half
+     */
+    @Override
+    public Integer getValue() {
+        return bestValue;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * returns the node stores of this player to their pool.
+     */
+    @Override
+    public void release() {
+        if (tree != null) {
+            tree.release();
+            spare.release();
+            tree = spare = null;
+        }
+        if (evaluator != null) {
+            evaluator.release();
+        }
+    }
+
+    /**
+     * makes s the root of the tree: if s is in the tree, at most two plies
+     * below the root, its subtree is kept; otherwise the tree is cleared.
+     *
+     * @return the number of nodes that were kept
+     */
+    int reuse(DraughtsState s) {
+        int node = root == null ? -1 : find(s);
+        root = s.clone();
+        if (node < 0) {
+            tree.clear();
+            return 0;
+        } else if (node == 0) {
+            return tree.size();
+        }
+        int kept = tree.copy(node, spare);
+        NodeStore t = tree;
+        tree = spare;
+        spare = t;
+        return kept;
+    }
+
+    /**
+     * @return the tree of the last search, whose root is the position of the
+     * last call of getMove()
+     */
+    NodeStore tree() {
+        return tree;
+    }
+
+    /**
+     * @return the node of s at most two plies below the root, or -1 if it is
+     * not in the tree
+     */
+    private int find(DraughtsState s) {
+        if (same(root, s)) {
+            return 0;
+        }
+        List<Move> moves = root.getMoves();
+        int first = tree.firstChild.get(0);
+        for (int c = first; first > 0 && c < first + tree.childCount[0]; c++) {
+            DraughtsState child = root.clone();
+            child.doMove(MoveCode.decode(moves, tree.move[c]));
+            if (same(child, s)) {
+                return c;
+            }
+            List<Move> childMoves = child.getMoves();
+            int grandFirst = tree.firstChild.get(c);
+            for (int g = grandFirst; grandFirst > 0 && g < grandFirst + tree.childCount[c]; g++) {
+                DraughtsState grandChild = child.clone();
+                grandChild.doMove(MoveCode.decode(childMoves, tree.move[g]));
+                if (same(grandChild, s)) {
+                    return g;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean same(DraughtsState a, DraughtsState b) {
+        return a.isWhiteToMove() == b.isWhiteToMove() && Arrays.equals(a.getPieces(), b.getPieces());
+    }
+
+    /**
+     * @return the child of the root with the most visits, or -1 if the root
+     * has no children
+     */
+    private int bestChild() {
+        int first = tree.firstChild.get(0), best = first > 0 ? first : -1;
+        for (int c = first; c < first + tree.childCount[0]; c++) {
+            if (tree.visits.get(c) > tree.visits.get(best)) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * does playouts until the search is stopped.
+     */
+    private void search() {
+        int[] path = new int[MAX_PLAYOUT + 1];
+        boolean[] white = new boolean[MAX_PLAYOUT + 1];  // whether white did the move to each node
+        Random random = ThreadLocalRandom.current();
+        while (!stopped) {
+            if (playouts.getAndIncrement() >= maxPlayouts) {
+                stopped = true;
+                break;
+            }
+            playout(path, white, random);
+        }
+    }
+
+    /**
+     * does one playout from the root and adds its result to the nodes on its
+     * path.
+     */
+    private void playout(int[] path, boolean[] white, Random random) {
+        NodeStore tree = this.tree;
+        DraughtsState state = root.clone();
+        int node = 0, n = 1;
+        path[0] = 0;
+        tree.visits.getAndAdd(0, VIRTUAL_LOSS);
+        while (true) {
+            List<Move> moves = state.getMoves();    // once per node, for encode() and decode()
+            int first = tree.firstChild.get(node);
+            if (first <= 0) {
+                //a leaf that was visited before is expanded, and one of its children is played
+                if (n == path.length || moves.isEmpty()
+                        || (node != 0 && tree.visits.get(node) <= VIRTUAL_LOSS)
+                        || !tree.expand(node, MoveCode.encode(moves))) {
+                    break;
+                }
+                first = tree.firstChild.get(node);
+            }
+            int child = select(tree, node, first);
+            white[n] = state.isWhiteToMove();
+            state.doMove(MoveCode.decode(moves, tree.move[child]));
+            tree.visits.getAndAdd(child, VIRTUAL_LOSS);
+            path[n++] = child;
+            node = child;
+        }
+
+        int result = simulate(state, random);
+        for (int i = 1; i < n; i++) {
+            tree.score.getAndAdd(path[i], white[i] ? result : SCALE - result);
+            tree.visits.getAndAdd(path[i], 1 - VIRTUAL_LOSS);
+        }
+        tree.visits.getAndAdd(0, 1 - VIRTUAL_LOSS);
+    }
+
+    /**
+     * @return the child of node with the highest UCT value, or the first
+     * child without visits
+     */
+    private static int select(NodeStore tree, int node, int first) {
+        double logN = Math.log(Math.max(1, tree.visits.get(node)));
+        double bestUct = Double.NEGATIVE_INFINITY;
+        int best = first;
+        for (int c = first; c < first + tree.childCount[node]; c++) {
+            int n = tree.visits.get(c);
+            if (n == 0) {
+                return c;
+            }
+            double uct = (double) tree.score.get(c) / ((long) n * SCALE) + EXPLORATION * Math.sqrt(logN / n);
+            if (uct > bestUct) {
+                bestUct = uct;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * plays random moves from state until the game ends, or, with an
+     * evaluator, until rolloutPlies plies are played and the position is
+     * quiet.
+     *
+     * @return the result for white, from 0 for a loss to SCALE for a win
+     */
+    private int simulate(DraughtsState state, Random random) {
+        for (int ply = 0;; ply++) {
+            if (state.isEndState()) {
+                return state.isWhiteToMove() ? 0 : SCALE;
+            }
+            List<Move> moves = state.getMoves();
+            if (evaluator != null && ((ply >= rolloutPlies && !moves.get(0).isCapture()) || ply >= MAX_PLAYOUT)) {
+                double logit = (double) evaluator.evaluate(state) / MrDraughtsRoboto.PIECE;
+                return (int) (SCALE / (1 + Math.exp(-logit)));
+            } else if (ply >= MAX_PLAYOUT) {
+                return SCALE / 2;
+            }
+            state.doMove(moves.get(random.nextInt(moves.size())));
+        }
+    }
+}
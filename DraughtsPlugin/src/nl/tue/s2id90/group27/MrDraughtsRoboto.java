@@ -2,13 +2,19 @@ package nl.tue.s2id90.group27;
 
 import static java.lang.Integer.MAX_VALUE;
 import static java.lang.Integer.MIN_VALUE;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import nl.tue.s2id90.draughts.DraughtsState;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.draughts.player.SearchStats;
+import nl.tue.s2id90.group27.egdb.Egdb;
 import org10x10.dam.game.Move;
 
 /**
@@ -18,6 +24,7 @@ import org10x10.dam.game.Move;
  * @author Luca Weibel and Michiel Verburg
  */
 public class MrDraughtsRoboto extends DraughtsPlayer {
+    private static final Logger LOG = Logger.getLogger(MrDraughtsRoboto.class.getName());
 
     private int bestValue = 0;
     int maxSearchDepth;
@@ -41,27 +48,335 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
     final static int[] GOLDENPIECE = {512, 512, 1, 32}; //bonus for piece in the back center
     final static int[] BACKDEVELOPMENT = {256, 128, 16, 1}; //bonus for development of backline, kind of defense
     final static int[] OUTPOST24 = {-512, -128, -1, -1}; //minus points for poorly defended outpost on 24 (or 27 for black)
+    final static int[] BRIDGE = {128, 64, 16, 1}; //bonus for the bridge 47-49 in the backrank (2-4 for black)
+    final static int[] TRIANGLE = {64, 64, 32, 1}; //bonus for the center triangle 28-32-33 (23-18-19 for black)
+    final static int[] TAIL = {-32, -32, -16, -1}; //minus points for a tail 28-33-39-44 (23-18-12-7 for black)
+
+    //patterns that are matched as a whole against the men of each color, see Pattern
+    final static Pattern[] PATTERNS = {
+        new Pattern("bridge", BRIDGE, 47, 49),
+        new Pattern("triangle", TRIANGLE, 28, 32, 33),
+        new Pattern("tail", TAIL, 28, 33, 39, 44)
+    };
+
+    //fields used for detecting a poorly defended outpost on 24 (27 for black)
+    final static long WHITE_OUTPOST = Pattern.mask(24);
+    final static long WHITE_OUTPOST_SUPPORT = Pattern.mask(29, 33, 34);
+    final static long WHITE_OUTPOST_ATTACK = Pattern.mask(3, 4, 5, 9, 10, 13, 14);
+    final static long WHITE_OUTPOST_DEFENSE = Pattern.mask(23, 35, 40, 44, 45, 49, 50);
+    final static long BLACK_OUTPOST = Pattern.mask(27);
+    final static long BLACK_OUTPOST_SUPPORT = Pattern.mask(17, 21, 22);
+    final static long BLACK_OUTPOST_ATTACK = Pattern.mirror(WHITE_OUTPOST_ATTACK);
+    final static long BLACK_OUTPOST_DEFENSE = Pattern.mirror(WHITE_OUTPOST_DEFENSE);
 
     final static int PHASE0 = 32; // >=32 pieces is phase 0
     final static int PHASE1 = 24; // >=24 
     final static int PHASE2 = 16; // >=16
     //PHASE3 is then with <= 15 pieces
 
+    final static int EVALCACHE_BITS = 20; //the evaluation cache holds 2^20 positions
+    final static int TT_BITS = 20; //the transposition table holds 2^20 positions
+    final static int STATS_CAPACITY = 4096; //number of iterations kept by the search statistics, enough for a game
+    final static int EGDB_WIN = 100 * PIECE; //value of a position that the endgame database reports as won
+    final static int EGDB_DRAW_SHIFT = 4; //a drawn position is worth its evaluation divided by 2^4
+
+    /**
+     * cache of evaluated positions, shared by all searches of this player; it
+     * is returned to the pool of caches by release().
+     */
+    private EvalCache evalCache;
+
+    /**
+     * transposition table, kept between the moves of a game; it is returned
+     * to the pool of tables by release().
+     */
+    private TranspositionTable tt;
+
+    /**
+     * endgame database, probed at every node below the root with at most
+     * egdb.getMaxPieces() pieces; see Egdb.getDefault().
+     */
+    private final Egdb egdb;
+
+    /**
+     * opening book, probed at the root before searching, or null if there is
+     * no book; see OpeningBook.getDefault().
+     */
+    private final OpeningBook book;
+
+    /**
+     * parameters of ProbCut forward pruning, or null if this player does not
+     * prune; see setProbCut().
+     */
+    private ProbCut probCut;
+    private long probCuts; //number of positions pruned by ProbCut
+
+    /**
+     * network that replaces the hand-crafted evaluation, or null if this
+     * player uses the weights; see setNetwork(). Its accumulators follow the
+     * moves of the search.
+     */
+    private Network network;
+    private Accumulator accumulator;
+
+    //stages of the evaluation that can be skipped by lazy evaluation
+    final static int STAGE_POSITIONAL = 0;
+    final static int STAGE_BALANCE = 1;
+    final static int STAGE_OUTPOST = 2; //outpost and patterns
+
+    /**
+     * file from which the weights of this player are loaded, or null if this
+     * player uses the weights defined above. The file is loaded again when it
+     * has changed since the previous move.
+     */
+    private final File profile;
+    private long profileModified = -1; //-1: never looked at; 0: missing
+    private EvalWeights weights;
+
+    //the weights flattened into primitive arrays per phase, see setWeights()
+    private int piece;
+    private final int[] king = new int[4];
+    private final int[] balance = new int[4];
+    private final int[] outpost = new int[4];
+    private final int[] patternWeight = new int[4 * PATTERNS.length]; //indexed by pattern * 4 + phase
+    private final int[] whiteManValue = new int[4 * 51]; //positional value of a man, indexed by phase * 51 + field
+    private final int[] blackManValue = new int[4 * 51];
+    private final int[] outpostMargin = new int[4]; //bounds used by lazy evaluation, see evaluate()
+    private final int[] minPositional = new int[4];
+    private final int[] maxPositional = new int[4];
+    //counters of the evaluation, which may be shared by search threads, see MonteCarloPlayer
+    private final LongAdder evaluations = new LongAdder(); //number of evaluations that were not cached
+    //number of evaluations that skipped each stage
+    private final LongAdder[] skipped = {new LongAdder(), new LongAdder(), new LongAdder()};
+
     /**
      * boolean that indicates that the GUI asked the player to stop thinking.
      */
     private boolean stopped;
 
+    /**
+     * statistics of the searches of this player; the transposition table is
+     * counted as its hash table.
+     */
+    private final SearchStats stats = new SearchStats(STATS_CAPACITY);
+
+    /**
+     * depth of the current iteration of iterative deepening.
+     */
+    private int iterationDepth;
+
     public MrDraughtsRoboto(int maxSearchDepth) {
+        this(maxSearchDepth, null);
+    }
+
+    /**
+     * @param profile file with the evaluation weights of this player, see
+     * EvalWeights.load(); the file is loaded again whenever it changes
+     */
+    public MrDraughtsRoboto(int maxSearchDepth, File profile) {
+        this(maxSearchDepth, profile, OpeningBook.getDefault());
+    }
+
+    /**
+     * @param book opening book of this player, or null if it always searches,
+     * e.g. to label the positions of self-play games with a search value
+     */
+    MrDraughtsRoboto(int maxSearchDepth, File profile, OpeningBook book) {
         super("best.png");
         this.maxSearchDepth = maxSearchDepth;
+        this.profile = profile;
+        this.egdb = Egdb.getDefault();
+        this.book = book;
+        setWeights(EvalWeights.defaults());
+        reloadProfile();
+    }
+
+    @Override
+    public String getName() {
+        String name = profile == null ? super.getName() : super.getName() + " (" + profile.getName() + ")";
+        name = network == null ? name : name + " network";
+        return probCut == null ? name : name + " probcut";
+    }
+
+    /**
+     * turns ProbCut forward pruning on or off, so that a player with and one
+     * without pruning can be compared in a match; the player with pruning has
+     * " probcut" appended to its name.
+     *
+     * @param probCut the parameters of the pruning, e.g.
+     * ProbCut.getDefault(), or null to search without pruning
+     * @return this player
+     */
+    MrDraughtsRoboto setProbCut(ProbCut probCut) {
+        this.probCut = probCut;
+        //searched values were computed with other pruning
+        if (tt != null) {
+            tt.release();
+            tt = acquireTable();
+        }
+        return this;
+    }
+
+    /**
+     * replaces the hand-crafted evaluation by the given network, so that a
+     * player with and one without a network can be compared in a match; the
+     * player with a network has " network" appended to its name.
+     *
+     * @param network the network, e.g. Network.getDefault(), or null to
+     * evaluate with the weights
+     * @return this player
+     */
+    MrDraughtsRoboto setNetwork(Network network) {
+        this.network = network;
+        this.accumulator = network == null ? null : new Accumulator(network);
+        //searched values were computed with the old evaluation
+        if (tt != null) {
+            tt.release();
+            tt = acquireTable();
+        }
+        return this;
+    }
+
+    /**
+     * @return a transposition table for the evaluation and the pruning of this
+     * player, so that the values of different evaluations, and of searches
+     * with and without ProbCut, are kept apart
+     */
+    private TranspositionTable acquireTable() {
+        return TranspositionTable.acquire(TT_BITS, fingerprint(), weights.values(),
+                network == null ? null : network.values(), probCut == null ? null : probCut.values());
+    }
+
+    /**
+     * @return a hash of the evaluation and the pruning of this player, which
+     * names the snapshot of its transposition table
+     */
+    private long fingerprint() {
+        long h = network == null ? weights.fingerprint() : weights.fingerprint() ^ network.fingerprint();
+        return probCut == null ? h : 31 * h + probCut.fingerprint();
+    }
+
+    /**
+     * loads the weights from the profile of this player if the profile has
+     * changed since it was last loaded. If loading fails, or the profile does
+     * not exist, the current weights are kept and a warning is logged.
+     */
+    void reloadProfile() {
+        if (profile == null || profile.lastModified() == profileModified) {
+            return;
+        }
+        profileModified = profile.lastModified();
+        if (!profile.isFile()) {
+            LOG.warning("weights file " + profile.getAbsolutePath() + " does not exist, keeping the current weights");
+            return;
+        }
+        try {
+            setWeights(EvalWeights.load(profile));
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "unable to load weights, keeping the current weights", ex);
+        }
+    }
+
+    /**
+     * @return the evaluation weights of this player
+     */
+    EvalWeights getWeights() {
+        return weights;
+    }
+
+    /**
+     * sets the evaluation weights of this player. The weights are flattened
+     * into primitive arrays, so that the evaluation does not need to look
+     * anything up; the positional value of a man is precomputed for every
+     * phase and field.
+     */
+    void setWeights(EvalWeights weights) {
+        this.weights = weights;
+        piece = weights.piece;
+        for (int phase = 0; phase < 4; phase++) {
+            king[phase] = weights.get("KING")[phase];
+            balance[phase] = weights.get("BALANCE")[phase];
+            outpost[phase] = weights.get("OUTPOST24")[phase];
+            outpostMargin[phase] = Math.abs(outpost[phase]);
+            for (int p = 0; p < PATTERNS.length; p++) {
+                patternWeight[4 * p + phase] = weights.get(PATTERNS[p].name.toUpperCase())[phase];
+                outpostMargin[phase] += Math.abs(patternWeight[4 * p + phase]);
+            }
+
+            minPositional[phase] = MAX_VALUE;
+            maxPositional[phase] = MIN_VALUE;
+            for (int i = 1; i <= 50; i++) {
+                whiteManValue[51 * phase + i] = positionalEvaluation(DraughtsState.WHITEPIECE, i, phase);
+                blackManValue[51 * phase + i] = positionalEvaluation(DraughtsState.BLACKPIECE, i, phase);
+                minPositional[phase] = Math.min(minPositional[phase],
+                        Math.min(whiteManValue[51 * phase + i], blackManValue[51 * phase + i]));
+                maxPositional[phase] = Math.max(maxPositional[phase],
+                        Math.max(whiteManValue[51 * phase + i], blackManValue[51 * phase + i]));
+            }
+        }
+        //cached scores and searched values were computed with the old weights
+        if (evalCache != null) {
+            evalCache.release();
+        }
+        evalCache = EvalCache.acquire(EVALCACHE_BITS, weights.values());
+        if (tt != null) {
+            tt.release();
+        }
+        tt = acquireTable();
+    }
+
+    /**
+     * returns the evaluation cache and the transposition table of this player
+     * to their pools, so that another instance can reuse them, and saves the
+     * table to its snapshot, if snapshots are enabled. They are acquired
+     * again when this player is asked for a move.
+     */
+    @Override
+    public void release() {
+        if (evalCache != null) {
+            evalCache.release();
+            evalCache = null;
+        }
+        if (tt != null) {
+            tt.saveSnapshot();
+            tt.release();
+            tt = null;
+        }
+    }
+
+    /**
+     * acquires the evaluation cache and the transposition table again if
+     * they were released, e.g. before the evaluation is used by another
+     * player, see MonteCarloPlayer.
+     */
+    void acquire() {
+        if (evalCache == null) {
+            evalCache = EvalCache.acquire(EVALCACHE_BITS, weights.values());
+        }
+        if (tt == null) {
+            tt = acquireTable();
+        }
     }
 
     @Override
     public Move getMove(DraughtsState s) {
         //Move bestMove = null;
         bestValue = 0;
+        if (book != null) {
+            Move move = book.probe(s);
+            if (move != null) {
+                LOG.fine(String.format("book move = %5s", move));
+                return move;
+            }
+        }
+        reloadProfile();
+        acquire();
+        tt.newSearch();
+        if (accumulator != null) {
+            accumulator.refresh(s);
+        }
         DraughtsNode node = new DraughtsNode(s);    // the root of the search tree
+        stats.startSearch();
         try {
             // compute bestMove and bestValue in a call to alphabeta
             bestValue = iterativeDeepening(node, MIN_VALUE, MAX_VALUE, maxSearchDepth);
@@ -71,17 +386,23 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
             //bestMove = node.getBestMove();
             // print the results for debugging reasons
         } catch (AIStoppedException ex) {
-            /* nothing to do */        }
+            stats.stopIteration(iterationDepth);
+        }
 
         if (bestValue == 0) {
             bestValue = node.getBestValue();
         }
-        System.err.format(
-                "%s: depth= %2d, best move = %5s, value=%d\n",
-                this.getClass().getSimpleName(), maxSearchDepth, node.getBestMove(), bestValue
-        );
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine(String.format(
+                    "best move = %5s, value=%d, eval cache hits=%.1f%%, "
+                    + "skipped positional/balance/outpost=%d/%d/%d of %d evaluations, probcuts=%d",
+                    node.getBestMove(), bestValue,
+                    100 * evalCache.getHitRate(), skipped[STAGE_POSITIONAL].sum(), skipped[STAGE_BALANCE].sum(),
+                    skipped[STAGE_OUTPOST].sum(), evaluations.sum(), probCuts
+            ));
+        }
         if (node.getBestMove() == null) {
-            System.err.println("no valid move found!");
+            LOG.fine("no valid move found!");
             return getRandomValidMove(s);
         } else {
             return node.getBestMove();
@@ -99,6 +420,11 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
         return bestValue;
     }
 
+    @Override
+    public SearchStats getSearchStats() {
+        return stats;
+    }
+
     /**
      * Tries to make alphabeta search stop. Search should be implemented such
      * that it throws an AIStoppedException when boolean stopped is set to true;
@@ -179,26 +505,79 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
             stopped = false;
             throw new AIStoppedException();
         }
+        if (depth > 0) { //nodes at and beyond the horizon count as quiescence nodes
+            stats.node(iterationDepth - depth);
+        } else {
+            stats.qnode(iterationDepth - depth);
+        }
         DraughtsState state = node.getState();
         if (state.isEndState()) {
-            return evaluate(state);
+            return evaluate(state, alpha, beta);
+        }
+        //the result of positions with few pieces is looked up in the endgame database;
+        //a draw ends the search only at the horizon, see egdbValue()
+        if (!isFirstRun && egdb.getMaxPieces() > 0 && countPieces(state.getPieces()) <= egdb.getMaxPieces()) {
+            int result = egdb.probe(state);
+            if (result == Egdb.WIN || result == Egdb.LOSS || (result == Egdb.DRAW && depth <= 0)) {
+                return egdbValue(state, result);
+            }
         }
         //quiescence by continuing if last ply's move is a capture
         if (depth <= 0 && !state.getMoves().get(0).isCapture()) {
-            return evaluate(state);
+            return evaluate(state, alpha, beta);
+        }
+        //positions that were searched before to at least this depth, in this
+        //search or an earlier one, are looked up in the transposition table
+        long hash = 0;
+        long entry = TranspositionTable.MISS;
+        int alpha0 = alpha, beta0 = beta;
+        if (depth > 0) {
+            hash = Zobrist.hash(state);
+            entry = tt.probe(hash);
+            stats.probe(entry != TranspositionTable.MISS);
+            if (!isFirstRun && entry != TranspositionTable.MISS && TranspositionTable.depth(entry) >= depth) {
+                int value = TranspositionTable.value(entry);
+                int kind = TranspositionTable.kind(entry);
+                if (kind == TranspositionTable.EXACT || (kind == TranspositionTable.LOWER && value >= beta)
+                        || (kind == TranspositionTable.UPPER && value <= alpha)) {
+                    return value;
+                }
+            }
+        }
+
+        //a shallow search predicts whether this one fails high or low
+        if (probCut != null && !isFirstRun && depth > 0) {
+            for (ProbCut.Cut cut : probCut.cuts(depth)) {
+                long high = cut.high(beta, probCut.threshold);
+                if (Math.abs(high) < EGDB_WIN && combinedAlphaBetaMax(new DraughtsNode(state), (int) high - 1, (int) high,
+                        cut.shallow, isMaximizing, false) >= high) {
+                    probCuts++;
+                    return beta;
+                }
+                long low = cut.low(alpha, probCut.threshold);
+                if (Math.abs(low) < EGDB_WIN && combinedAlphaBetaMax(new DraughtsNode(state), (int) low, (int) low + 1,
+                        cut.shallow, isMaximizing, false) <= low) {
+                    probCuts++;
+                    return alpha;
+                }
+            }
         }
 
         // move ordering
         List<Move> movesToCheck;
-        if (isFirstRun && node.getBestMove() != null) {
+        Move firstMove = isFirstRun ? node.getBestMove() : null;
+        if (firstMove == null) {
+            firstMove = ttMove(state, entry);
+        }
+        if (firstMove != null) {
 
             //System.out.println("Before sort: " + state.getMoves());
             movesToCheck = new ArrayList<>();
-            movesToCheck.add(node.getBestMove());
+            movesToCheck.add(firstMove);
             List<Move> moves = state.getMoves();
             Collections.shuffle(moves);
             for (Move m : moves) {
-                if (!m.equals(node.getBestMove())) {
+                if (!m.equals(firstMove)) {
                     movesToCheck.add(m);
                 }
             }
@@ -210,11 +589,14 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
         // end of move ordering
         if (isMaximizing) {
             int bestValue = -Integer.MAX_VALUE / 2;
+            int index = 0;
             for (Move m : movesToCheck) {
                 state.doMove(m);
+                push(m);
                 // root: not sure if just can use node
                 DraughtsNode mNode = new DraughtsNode(state);
                 int mValue = alphaBetaMin(mNode, alpha, beta, depth - 1, false);
+                pop();
                 state.undoMove(m);
                 if (mValue > bestValue) {
                     /**
@@ -234,16 +616,22 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
                 }
                 alpha = Math.max(alpha, bestValue);
                 if (alpha >= beta) {
+                    stats.cutoff(index);
                     break;
                 }
+                index++;
             }
+            store(hash, bestValue, depth, alpha0, beta0, node.getBestMoveCurrentDepth());
             return bestValue;
         } else {
             int bestValue = Integer.MAX_VALUE / 2;
+            int index = 0;
             for (Move m : movesToCheck) {
                 state.doMove(m);
+                push(m);
                 DraughtsNode mNode = new DraughtsNode(state);
                 int mValue = alphaBetaMax(mNode, alpha, beta, depth - 1, false);
+                pop();
                 state.undoMove(m);
                 if (mValue < bestValue) {
                     /**
@@ -263,62 +651,276 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
                 }
                 beta = Math.min(beta, bestValue);
                 if (alpha >= beta) {
+                    stats.cutoff(index);
                     break;
                 }
+                index++;
             }
+            store(hash, bestValue, depth, alpha0, beta0, node.getBestMoveCurrentDepth());
             return bestValue;
         }
     }
 
     /**
-     * A method that evaluates the given state.
+     * updates the accumulator of the network, if any, for move m.
+     */
+    private void push(Move m) {
+        if (accumulator != null) {
+            accumulator.push(m);
+        }
+    }
+
+    /**
+     * undoes the last push().
+     */
+    private void pop() {
+        if (accumulator != null) {
+            accumulator.pop();
+        }
+    }
+
+    /**
+     * stores the value of a search of the position with the given key and
+     * window (alpha, beta) in the transposition table, if it was searched to a
+     * positive depth. A value outside the window is stored as a bound at the
+     * edge of the window: with lazy evaluation, see evaluate(), only its side
+     * of the window is certain.
+     */
+    private void store(long key, int value, int depth, int alpha, int beta, Move best) {
+        if (depth <= 0) {
+            return;
+        }
+        short move = best == null ? 0 : OpeningBook.code(best);
+        if (value <= alpha) {
+            tt.store(key, alpha, depth, TranspositionTable.UPPER, move);
+        } else if (value >= beta) {
+            tt.store(key, beta, depth, TranspositionTable.LOWER, move);
+        } else {
+            tt.store(key, value, depth, TranspositionTable.EXACT, move);
+        }
+    }
+
+    /**
+     * @return the legal move of state that is the best move of the given
+     * entry of the transposition table, or null if there is none
+     */
+    static Move ttMove(DraughtsState state, long entry) {
+        short code = TranspositionTable.move(entry);
+        if (code != 0) {
+            for (Move m : state.getMoves()) {
+                if (OpeningBook.code(m) == code) {
+                    return m;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of pieces on the board
+     */
+    static int countPieces(int[] pieces) {
+        int count = 0;
+        for (int i = 1; i < pieces.length; i++) {
+            if (pieces[i] != DraughtsState.EMPTY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the value for white of a state with the given result in the
+     * endgame database. A won position is worth EGDB_WIN plus its evaluation,
+     * so that the winning side still prefers positions that are easier to
+     * win, such as those with more material or more kings. A drawn position
+     * is worth a fraction of its evaluation. The search only stops at a draw
+     * at the horizon: drawn positions look much alike, and a shallow draw
+     * would let the player give away material in a drawn ending against an
+     * opponent that may still go wrong.
+     */
+    int egdbValue(DraughtsState state, int result) {
+        if (result == Egdb.DRAW) {
+            return evaluate(state) >> EGDB_DRAW_SHIFT;
+        }
+        boolean whiteWins = (result == Egdb.WIN) == state.isWhiteToMove();
+        return (whiteWins ? EGDB_WIN : -EGDB_WIN) + evaluate(state);
+    }
+
+    /**
+     * A method that evaluates the given state. Positions that have been
+     * evaluated before are looked up in the evaluation cache. With a network,
+     * the state is evaluated by the network from scratch.
      */
     int evaluate(DraughtsState state) {
+        if (network != null) {
+            evaluations.increment();
+            return network.evaluate(state);
+        }
+        return evaluate(state, MIN_VALUE, MAX_VALUE);
+    }
+
+    /**
+     * Evaluates the given state for a search with window (alpha, beta). If the
+     * value is outside the window, the result is only guaranteed to be outside
+     * the window as well: terms that cannot bring the value back into the
+     * window are skipped, see evaluate(DraughtsState, int[], long, int, int).
+     * With a network, the state must be the current position of the search:
+     * it is evaluated from the accumulator of the search, which is cheaper
+     * than a probe of the evaluation cache. With assertions enabled, the value
+     * is checked against a full evaluation by the network.
+     */
+    int evaluate(DraughtsState state, int alpha, int beta) {
+        if (accumulator != null) {
+            evaluations.increment();
+            int value = accumulator.evaluate();
+            assert value == network.evaluate(state) : "the accumulator does not match " + state;
+            return value;
+        }
         int[] pieces = state.getPieces(); //obtain pieces array
+        long key = Zobrist.hash(pieces); //the evaluation does not depend on who is to move
+        int score = evalCache.probe(key);
+        if (score == EvalCache.MISS) {
+            score = evaluate(state, pieces, key, alpha, beta);
+        }
+        return score;
+    }
+
+    /**
+     * @return cache of evaluated positions of this player
+     */
+    EvalCache getEvalCache() {
+        return evalCache;
+    }
+
+    /**
+     * @return transposition table of this player, or null if it was released
+     */
+    TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * Evaluates the given state without consulting the evaluation cache. The
+     * material is computed first; the positional, balance and outpost terms
+     * are added in stages. Before each stage the value is compared with the
+     * window (alpha, beta): if even the largest possible contribution of the
+     * remaining terms cannot bring the value into the window, the remaining
+     * stages are skipped and a bound is returned. Only complete evaluations
+     * are stored in the evaluation cache.
+     *
+     * @param pieces the pieces of {@code state}
+     * @param key Zobrist hash of {@code pieces}
+     */
+    int evaluate(DraughtsState state, int[] pieces, long key, int alpha, int beta) {
+        evaluations.increment();
         int[] tileCounts = new int[5]; //for each i in this array, it contains the number
         //of tiles that have the enum value i (e.g. int[0] indicates number of empty fields)
+        long whiteMen = 0; //bitboards of the men of each color, bit i is set if field i holds a man
+        long blackMen = 0;
 
         for (int i = 1; i <= 50; i++) {
             int piece = pieces[i];
             tileCounts[piece]++;
+            if (piece == DraughtsState.WHITEPIECE) {
+                whiteMen |= 1L << i;
+            } else if (piece == DraughtsState.BLACKPIECE) {
+                blackMen |= 1L << i;
+            }
         }
         int totalPieces = tileCounts[1] + tileCounts[2] + tileCounts[3] + tileCounts[4]; //total number of pieces remaining
-        int whiteScore = 0;
-        int blackScore = 0;
+        int phase = game_phase(totalPieces); //get current phase of game based on total pieces
+
+        //we get the difference between white and black,
+        //so that we maximize white's score and minimize black's score in order to get a higher value.
+        int difference = piece * (tileCounts[DraughtsState.WHITEPIECE] - tileCounts[DraughtsState.BLACKPIECE])
+                + king[phase] * (tileCounts[DraughtsState.WHITEKING] - tileCounts[DraughtsState.BLACKKING]);
+
+        //bounds on what the terms of the remaining stages can add to the difference
+        int outpostMargin = this.outpostMargin[phase];
+        int balanceMargin = outpostMargin + Math.abs(balance[phase])
+                * Math.max(tileCounts[DraughtsState.WHITEPIECE] + tileCounts[DraughtsState.WHITEKING],
+                        tileCounts[DraughtsState.BLACKPIECE] + tileCounts[DraughtsState.BLACKKING]);
+        int upper = balanceMargin + tileCounts[DraughtsState.WHITEPIECE] * maxPositional[phase]
+                - tileCounts[DraughtsState.BLACKPIECE] * minPositional[phase];
+        int lower = -balanceMargin + tileCounts[DraughtsState.WHITEPIECE] * minPositional[phase]
+                - tileCounts[DraughtsState.BLACKPIECE] * maxPositional[phase];
+        if (difference + upper <= alpha) {
+            return skip(STAGE_POSITIONAL, difference + upper);
+        } else if (difference + lower >= beta) {
+            return skip(STAGE_POSITIONAL, difference + lower);
+        }
+
+        int offset = 51 * phase;
         for (int i = 1; i <= 50; i++) {
             int piece = pieces[i];
             if (piece == DraughtsState.WHITEPIECE) {
-                whiteScore += positionalEvaluation(state, piece, i, totalPieces);
+                difference += whiteManValue[offset + i];
             } else if (piece == DraughtsState.BLACKPIECE) {
-                blackScore += positionalEvaluation(state, piece, i, totalPieces);
+                difference -= blackManValue[offset + i];
             }
         }
-
-        int phase = game_phase(totalPieces); //get current phase of game based on total pieces
-
-        whiteScore += PIECE * tileCounts[DraughtsState.WHITEPIECE] + KING[phase] * tileCounts[DraughtsState.WHITEKING];
-        blackScore += PIECE * tileCounts[DraughtsState.BLACKPIECE] + KING[phase] * tileCounts[DraughtsState.BLACKKING];
-        int difference = whiteScore - blackScore; //we get the difference between the two,
-        //so that we maximize whiteCount and minimize blackCount in order to get a higher value.
+        if (difference + balanceMargin <= alpha) {
+            return skip(STAGE_BALANCE, difference + balanceMargin);
+        } else if (difference - balanceMargin >= beta) {
+            return skip(STAGE_BALANCE, difference - balanceMargin);
+        }
 
         //add balance between left and right wing to the score
-        difference += BALANCE[phase] * leftRightBalance(state);
+        difference += balance[phase] * leftRightBalance(state);
+        if (difference + outpostMargin <= alpha) {
+            return skip(STAGE_OUTPOST, difference + outpostMargin);
+        } else if (difference - outpostMargin >= beta) {
+            return skip(STAGE_OUTPOST, difference - outpostMargin);
+        }
+
+        difference += poorOutpostDefense(whiteMen, blackMen, phase); //adds possible minus points for poor outpost defense
 
-        difference += poorOutpostDefense(state, phase); //adds possible minus points for poor outpost defense
+        difference += patterns(whiteMen, blackMen, phase);
 
         //TODO: add "whiteCount +" to return statement, which currently does not 
         //seem to be an improvement probably due to implicit assumptions on 1 for 1 exchanges.
+        evalCache.store(key, difference);
         return difference;
     }
 
     /**
-     * A method that evaluates the position of a piece and gives it a value
+     * registers that the evaluation stopped before the given stage, so that
+     * this stage and all later stages were skipped.
+     *
+     * @return bound
+     */
+    private int skip(int stage, int bound) {
+        for (int i = stage; i < skipped.length; i++) {
+            skipped[i].increment();
+        }
+        return bound;
+    }
+
+    /**
+     * @return number of evaluations that were not answered by the evaluation
+     * cache
+     */
+    long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    /**
+     * @return number of evaluations in which the given stage was skipped
+     * @param stage one of STAGE_POSITIONAL, STAGE_BALANCE and STAGE_OUTPOST
+     */
+    long getSkipped(int stage) {
+        return skipped[stage].sum();
+    }
+
+    /**
+     * A method that evaluates the position of a piece and gives it a value,
+     * using the weights of this player. The evaluation itself uses the values
+     * that are precomputed with this method in setWeights().
      *
      * @pre 1 <= pieceType <= 4
      */
-    int positionalEvaluation(DraughtsState state, int pieceType, int pieceNumber, int totalPieces
-    ) {
-        int phase = game_phase(totalPieces);
+    int positionalEvaluation(int pieceType, int pieceNumber, int phase) {
         if (pieceType == DraughtsState.WHITEKING || pieceType == DraughtsState.BLACKKING) {
             return 0; //for now no extra yet for kings, they already have a higher value
         }
@@ -332,65 +934,87 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
 //        posEval += centerMinus;
 
         //bonus for center control, for pieces 27, 28, 29, 32, 33, 34, 37, 38, 39 (for white's side, mirrored for black)
-        int centerBonus = 0;
+        posEval += centerControl(pieceType, pieceNumber) * weights.get("CENTERCONTROL")[phase];
+
+        int tempoScore = rowNumber(pieceType, pieceNumber) * weights.get("ROWMULTIPLIER")[phase];
+        posEval += tempoScore;
+
+        //golden piece bonus (center backrank)
+        if (isGoldenPiece(pieceType, pieceNumber)) {
+            posEval += weights.get("GOLDENPIECE")[phase];
+        }
+
+//        //development of rear
+//        int rearDev = 0;
+//        if (pieceType == DraughtsState.WHITEPIECE) {
+//            
+//        }
+        //Disabled defense bonus as implemented below so far because could not find good
+        //weight distribution over phases of the game.
+        // give defense bonus if leaving pieces to defend backrow, except for corner pieces
+        if (isMiddleBackrank(pieceNumber)) {
+            posEval += weights.get("MIDDLEBACKRANK")[phase];
+        }
+
+        if (isDoubleCorner(pieceNumber)) {
+            posEval += weights.get("DOUBLECORNER")[phase];
+        }
+
+        return posEval;
+    }
+
+    /**
+     * @return multiplier of the center control bonus for a man of the given
+     * type on the given field: 3 for the most important field, 2 or 1 for the
+     * fields around it and 0 elsewhere
+     */
+    static int centerControl(int pieceType, int pieceNumber) {
         if (pieceType == DraughtsState.WHITEPIECE) {
             if (pieceNumber == 28) {
-                centerBonus += 3 * CENTERCONTROL[phase]; //this one is most important
+                return 3; //this one is most important
             } else if (pieceNumber == 29 || pieceNumber == 32 || pieceNumber == 33) {
-                centerBonus += 2 * CENTERCONTROL[phase];
+                return 2;
             } else if (pieceNumber == 27 || pieceNumber == 34 || pieceNumber == 37
                     || pieceNumber == 38 || pieceNumber == 39) {
-                centerBonus += CENTERCONTROL[phase];
+                return 1;
             }
         } else if (pieceType == DraughtsState.BLACKPIECE) {
             if (pieceNumber == 23) {
-                centerBonus += 3 * CENTERCONTROL[phase]; //this one is most important
+                return 3; //this one is most important
             } else if (pieceNumber == 22 || pieceNumber == 18 || pieceNumber == 19) {
-                centerBonus += 2 * CENTERCONTROL[phase];
+                return 2;
             } else if (pieceNumber == 24 || pieceNumber == 17 || pieceNumber == 12
                     || pieceNumber == 13 || pieceNumber == 14) {
-                centerBonus += CENTERCONTROL[phase];
+                return 1;
             }
         }
-        posEval += centerBonus;
+        return 0;
+    }
 
+    /**
+     * @return row of the given field counted from the own backrank, i.e. 1 for
+     * the backrank and 10 for the promotion row
+     */
+    static int rowNumber(int pieceType, int pieceNumber) {
         int rowNr = (int) Math.ceil((double) pieceNumber / NRCOLUMNS); //correct if piece is black, 
         //but if piece is white this needs to be reversed
         if (pieceType == DraughtsState.WHITEPIECE) {
             rowNr = NRROWS + 1 - rowNr;
         }
-        int tempoScore = rowNr * ROWMULTIPLIER[phase];
-        posEval += tempoScore;
-
-        //golden piece bonus (center backrank)
-        int golden = 0;
-        if ((pieceType == DraughtsState.WHITEPIECE && pieceNumber == 48) || (pieceType == DraughtsState.BLACKPIECE && pieceNumber == 3)) {
-            golden += GOLDENPIECE[phase];
-        }
-        posEval += golden;
-
-//        //development of rear
-//        int rearDev = 0;
-//        if (pieceType == DraughtsState.WHITEPIECE) {
-//            
-//        }
-        //Disabled defense bonus as implemented below so far because could not find good
-        //weight distribution over phases of the game.
-        int defenseBonus = 0;
-        // give defense bonus if leaving pieces to defend backrow, except for corner pieces
+        return rowNr;
+    }
 
-        if (pieceNumber == 47 || pieceNumber == 49 || pieceNumber == 2 || pieceNumber == 4) {
-            defenseBonus += MIDDLEBACKRANK[phase];
-        }
-        posEval += defenseBonus;
+    static boolean isGoldenPiece(int pieceType, int pieceNumber) {
+        return (pieceType == DraughtsState.WHITEPIECE && pieceNumber == 48)
+                || (pieceType == DraughtsState.BLACKPIECE && pieceNumber == 3);
+    }
 
-        int doubleCornerBonus = 0;
-        if (pieceNumber == 45 || pieceNumber == 50 || pieceNumber == 1 || pieceNumber == 6) {
-            doubleCornerBonus += DOUBLECORNER[phase];
-        }
-        posEval += doubleCornerBonus;
+    static boolean isMiddleBackrank(int pieceNumber) {
+        return pieceNumber == 47 || pieceNumber == 49 || pieceNumber == 2 || pieceNumber == 4;
+    }
 
-        return posEval;
+    static boolean isDoubleCorner(int pieceNumber) {
+        return pieceNumber == 45 || pieceNumber == 50 || pieceNumber == 1 || pieceNumber == 6;
     }
 
     /**
@@ -433,42 +1057,45 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
     /**
      * Method which checks if outpost is badly defended
      */
-    int poorOutpostDefense(DraughtsState state, int phase) {
-        int outDef = 0;
-        int[] pieces = state.getPieces();
+    int poorOutpostDefense(long whiteMen, long blackMen, int phase) {
+        return outpost[phase] * poorOutposts(whiteMen, blackMen);
+    }
+
+    /**
+     * @return number of poorly defended white outposts minus the number of
+     * poorly defended black outposts
+     */
+    static int poorOutposts(long whiteMen, long blackMen) {
+        int outposts = 0;
 
         //checking for outpost 24 for white
-        if (pieces[24] == DraughtsState.WHITEPIECE) {
+        if ((whiteMen & WHITE_OUTPOST) != 0) {
             //checks if there is not more than 1 of the given fields (29, 33, 34) occupied by a white piece
-            if ((countFields(pieces, Arrays.asList(29, 33, 34), DraughtsState.WHITEPIECE) <= 1)
-                    || countFields(pieces, Arrays.asList(3, 4, 5, 9, 10, 13, 14), DraughtsState.BLACKPIECE)
-                    > countFields(pieces, Arrays.asList(23, 35, 40, 44, 45, 49, 50), DraughtsState.WHITEPIECE)) {
-                outDef += OUTPOST24[phase];
+            if (Pattern.count(whiteMen, WHITE_OUTPOST_SUPPORT) <= 1
+                    || Pattern.count(blackMen, WHITE_OUTPOST_ATTACK) > Pattern.count(whiteMen, WHITE_OUTPOST_DEFENSE)) {
+                outposts++;
             }
         }
-        if (pieces[27] == DraughtsState.BLACKPIECE) {
-            if ((countFields(pieces, Arrays.asList(17, 21, 22), DraughtsState.BLACKPIECE) <= 1)
-                    || countFields(pieces, Arrays.asList(46, 47, 48, 41, 42, 37, 38), DraughtsState.WHITEPIECE)
-                    > countFields(pieces, Arrays.asList(28, 16, 11, 7, 6, 2, 1), DraughtsState.BLACKPIECE)) {
-                outDef -= OUTPOST24[phase];
+        if ((blackMen & BLACK_OUTPOST) != 0) {
+            if (Pattern.count(blackMen, BLACK_OUTPOST_SUPPORT) <= 1
+                    || Pattern.count(whiteMen, BLACK_OUTPOST_ATTACK) > Pattern.count(blackMen, BLACK_OUTPOST_DEFENSE)) {
+                outposts--;
             }
         }
 
-        return outDef;
+        return outposts;
     }
 
     /**
-     * counts how many of the given fields in {@code fields} contain a piece of
-     * the given color
+     * @return score difference between white and black for the patterns in
+     * {@code PATTERNS}
      */
-    int countFields(int[] board, List<Integer> fields, int color) {
-        int count = 0;
-        for (int i : fields) {
-            if (board[i] == color) {
-                count++;
-            }
+    int patterns(long whiteMen, long blackMen, int phase) {
+        int score = 0;
+        for (int p = 0; p < PATTERNS.length; p++) {
+            score += patternWeight[4 * p + phase] * PATTERNS[p].match(whiteMen, blackMen);
         }
-        return count;
+        return score;
     }
 
     /**
@@ -480,12 +1107,23 @@ public class MrDraughtsRoboto extends DraughtsPlayer {
      */
     int iterativeDeepening(DraughtsNode node, int alpha, int beta, int maxDepth) throws AIStoppedException {
         int value = 0;
+        int firstDepth = 1;
+
+        //a position that was searched before, e.g. in the principal variation
+        //of the previous move, is not searched again to the same depth
+        long entry = tt.probe(Zobrist.hash(node.getState()));
+        Move move = ttMove(node.getState(), entry);
+        if (TranspositionTable.kind(entry) == TranspositionTable.EXACT && move != null) {
+            value = TranspositionTable.value(entry);
+            node.setBestMove(move);
+            node.setBestValue(value);
+            firstDepth = TranspositionTable.depth(entry) + 1;
+        }
 
-        //#TODO: right now iterative deepening seems to do double work, making it slow
-        for (int depth = 1; depth <= maxDepth; depth++) { //iterative deepening starts at the lowest depth possible and then keeps increasing depth
+        for (int depth = firstDepth; depth <= maxDepth; depth++) { //iterative deepening starts at the lowest depth possible and then keeps increasing depth
+            iterationDepth = depth;
             value = alphaBeta(node, alpha, beta, depth);
-            System.err.println("at depth: " + depth + " the best value is: " + value);
-            System.err.println("bestMoves: " + node.getBestMoves());
+            stats.endIteration(depth, value);
             node.setBestMove(node.getBestMoveCurrentDepth());
             node.setBestValue(value);
         }
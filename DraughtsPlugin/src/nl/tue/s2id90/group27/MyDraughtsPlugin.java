@@ -20,20 +20,32 @@ public class MyDraughtsPlugin extends DraughtsPlayerProvider implements Draughts
         // During the final competition you should make only your 
         // best player available. For testing it might be handy
         // to make more than one player available.
+        // A player can be given its own evaluation weights by passing a
+        // weights file, see EvalWeights; that file is reloaded when it changes.
+        // Players are given as factories, so that the tournament tools can
+        // create a fresh instance of a player for every game.
+        // ProbCut pruning is switched on per player, so that a player with
+        // and one without it can play a match, see ProbCut; likewise the
+        // network evaluation, see Network. MonteCarloPlayer searches with
+        // Monte Carlo tree search instead, on all cores.
         super(
-                new MrDraughtsRoboto(30)
-//                new DraughtBot(20),
-//                new UninformedPlayer(),
-//                new OptimisticPlayer(),
-//                new BuggyPlayer(),
-//                new DraughtBotV1(5),
-//                new DraughtBotV2(20),
-//                new DraughtBotV3(20),
-//                new DraughtBotV4(20),
-//                new DraughtBotV5(20),
-//                new DraughtBotV6(20),
-//                new DraughtBotV6b(20),
-//                new DraughtBotV7a(20)
+                () -> new MrDraughtsRoboto(30)
+//                () -> new MrDraughtsRoboto(30, new java.io.File("weights.properties")),
+//                () -> new MrDraughtsRoboto(30).setProbCut(ProbCut.getDefault()),
+//                () -> new MrDraughtsRoboto(30).setNetwork(Network.getDefault()),
+//                () -> new MonteCarloPlayer().setEvaluator(new MrDraughtsRoboto(1), 0),
+//                () -> new DraughtBot(20),
+//                () -> new UninformedPlayer(),
+//                () -> new OptimisticPlayer(),
+//                () -> new BuggyPlayer(),
+//                () -> new DraughtBotV1(5),
+//                () -> new DraughtBotV2(20),
+//                () -> new DraughtBotV3(20),
+//                () -> new DraughtBotV4(20),
+//                () -> new DraughtBotV5(20),
+//                () -> new DraughtBotV6(20),
+//                () -> new DraughtBotV6b(20),
+//                () -> new DraughtBotV7a(20)
                 
         );
     }
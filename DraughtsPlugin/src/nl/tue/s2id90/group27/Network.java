@@ -0,0 +1,234 @@
+package nl.tue.s2id90.group27;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * A small neural network that evaluates a position, as an alternative to the
+ * hand-crafted evaluation of MrDraughtsRoboto.
+ *
+ * <p>
+ * The network has INPUTS inputs: one for every kind of piece on every field,
+ * 4 x 50, and one that is set if white is to move. A hidden layer of a few
+ * dozen neurons, with a clipped ReLU min(max(x, 0), 1) as activation, feeds one
+ * output y, the logit of the probability that white wins; the value of the
+ * position for white is y times valuePerLogit.
+ * </p><p>
+ * The weights are quantized to shorts with fixed point ONE = 1.0, so that the
+ * network is evaluated with integer arithmetic on primitive arrays. As only
+ * the inputs of the pieces that moved change from one position to the next,
+ * the hidden layer before its activation, the accumulator, is updated
+ * incrementally during the search, see Accumulator; a full evaluation adds
+ * the weights of at most 41 inputs per neuron. The weights of the first layer
+ * are stored per input, so that an update adds a contiguous row of shorts to
+ * the accumulator, a loop that the JIT compiler vectorizes.
+ * </p><p>
+ * A network is trained by NetworkTrainer and stored in a binary file that
+ * starts with MAGIC, followed by the number of hidden neurons, valuePerLogit,
+ * the weights and biases of the first layer, per input, and those of the
+ * output.
+ * </p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class Network {
+
+    private static final Logger LOG = Logger.getLogger(Network.class.getName());
+
+    static final int MAGIC = 0x444D4C50;    // "DMLP"
+    static final int INPUTS = 4 * 50 + 1;
+    static final int SIDE_TO_MOVE = 4 * 50; // input that is set if white is to move
+    static final int ONE = 64;              // fixed point 1.0 of weights and activations
+    static final int MAX_ACTIVE = 41;       // at most 40 pieces and the side to move
+
+    /**
+     * system property with the file of the default network.
+     */
+    static final String FILE_PROPERTY = "network.file";
+
+    private static Network defaultNetwork;
+    private static boolean defaultLoaded;
+
+    final int hidden;
+    final int valuePerLogit;
+    final short[] weights1;     // INPUTS rows of hidden weights
+    final short[] bias1;
+    final short[] weights2;
+    final int bias2;            // in units of ONE * ONE
+
+    Network(int hidden, int valuePerLogit, short[] weights1, short[] bias1, short[] weights2, int bias2) {
+        this.hidden = hidden;
+        this.valuePerLogit = valuePerLogit;
+        this.weights1 = weights1;
+        this.bias1 = bias1;
+        this.weights2 = weights2;
+        this.bias2 = bias2;
+    }
+
+    /**
+     * @return the input of the given piece on the given field
+     */
+    static int input(int piece, int field) {
+        return (piece - 1) * 50 + field - 1;
+    }
+
+    /**
+     * @return the network in the file given by the system property
+     * network.file, by default network.bin in the working directory, or null
+     * if there is no such file or it can not be read
+     */
+    static synchronized Network getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            File file = new File(System.getProperty(FILE_PROPERTY, "network.bin"));
+            if (file.exists()) {
+                try {
+                    defaultNetwork = load(file);
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "unable to load the network", ex);
+                }
+            }
+        }
+        return defaultNetwork;
+    }
+
+    /**
+     * sets acc[offset..offset+hidden) to the accumulator of the given state.
+     */
+    void refresh(DraughtsState state, short[] acc, int offset) {
+        System.arraycopy(bias1, 0, acc, offset, hidden);
+        int[] pieces = state.getPieces();
+        for (int f = 1; f <= 50; f++) {
+            if (pieces[f] != DraughtsState.EMPTY) {
+                add(acc, offset, input(pieces[f], f));
+            }
+        }
+        if (state.isWhiteToMove()) {
+            add(acc, offset, SIDE_TO_MOVE);
+        }
+    }
+
+    /**
+     * adds the weights of the given input to an accumulator.
+     */
+    void add(short[] acc, int offset, int input) {
+        int row = input * hidden;
+        for (int j = 0; j < hidden; j++) {
+            acc[offset + j] += weights1[row + j];
+        }
+    }
+
+    /**
+     * subtracts the weights of the given input from an accumulator.
+     */
+    void subtract(short[] acc, int offset, int input) {
+        int row = input * hidden;
+        for (int j = 0; j < hidden; j++) {
+            acc[offset + j] -= weights1[row + j];
+        }
+    }
+
+    /**
+     * @return the value for white of the position with the given accumulator
+     */
+    int output(short[] acc, int offset) {
+        int sum = bias2;
+        for (int j = 0; j < hidden; j++) {
+            int h = Math.min(Math.max(acc[offset + j], 0), ONE);
+            sum += h * weights2[j];
+        }
+        return (int) ((long) sum * valuePerLogit / (ONE * ONE));
+    }
+
+    /**
+     * @return the value of the given state for white
+     */
+    int evaluate(DraughtsState state) {
+        short[] acc = new short[hidden];
+        refresh(state, acc, 0);
+        return output(acc, 0);
+    }
+
+    /**
+     * @return the parameters of this network, so that networks can be
+     * compared by value with Arrays.deepEquals()
+     */
+    Object[] values() {
+        return new Object[]{new int[]{hidden, valuePerLogit, bias2}, weights1, bias1, weights2};
+    }
+
+    /**
+     * @return a hash of the weights of this network, e.g. to keep values
+     * computed with different networks apart
+     */
+    long fingerprint() {
+        long h = 1125899906842597L;
+        h = 31 * h + hidden;
+        h = 31 * h + valuePerLogit;
+        for (short w : weights1) {
+            h = 31 * h + w;
+        }
+        for (short w : bias1) {
+            h = 31 * h + w;
+        }
+        for (short w : weights2) {
+            h = 31 * h + w;
+        }
+        return 31 * h + bias2;
+    }
+
+    /**
+     * loads a network from the given file.
+     */
+    static Network load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a network");
+            }
+            int hidden = in.readInt();
+            int valuePerLogit = in.readInt();
+            if (hidden <= 0 || hidden > 4096) {
+                throw new IOException(file + " has " + hidden + " hidden neurons");
+            }
+            short[] weights1 = read(in, INPUTS * hidden);
+            short[] bias1 = read(in, hidden);
+            short[] weights2 = read(in, hidden);
+            int bias2 = in.readInt();
+            return new Network(hidden, valuePerLogit, weights1, bias1, weights2, bias2);
+        }
+    }
+
+    private static short[] read(DataInputStream in, int n) throws IOException {
+        short[] a = new short[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = in.readShort();
+        }
+        return a;
+    }
+
+    /**
+     * stores this network in a file that can be read by load().
+     */
+    void store(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(hidden);
+            out.writeInt(valuePerLogit);
+            for (short[] a : new short[][]{weights1, bias1, weights2}) {
+                for (short w : a) {
+                    out.writeShort(w);
+                }
+            }
+            out.writeInt(bias2);
+        }
+    }
+}
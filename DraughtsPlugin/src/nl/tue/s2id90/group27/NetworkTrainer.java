@@ -0,0 +1,301 @@
+package nl.tue.s2id90.group27;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * Trains the Network of MrDraughtsRoboto on the positions of SelfPlay.
+ *
+ * <p>
+ * The positions of the shards in the data directory are read into memory as
+ * lists of active inputs. The target of a position is the probability that
+ * white wins, mixed from the result of its game and the value of its search:
+ * lambda * result + (1 - lambda) * sigmoid(k * value), where k converts values
+ * to logits, by default one piece to one logit; the output of the network is
+ * converted back with valuePerLogit = 1 / k. The results of games between
+ * shallow searches are noisy, so by default the network only learns the values
+ * of the searches, lambda = 0. The network is trained in floating point with
+ * Adam on mini-batches, minimizing the cross-entropy of sigmoid(output)
+ * against the targets; every 20th position is held out to report the loss on
+ * positions that were not trained on, of both the floating point and the
+ * quantized network. The weights of the first layer are kept within the range
+ * in which an accumulator of shorts can not overflow. The quantized network is
+ * written to a file that can be read by Network.load().
+ * </p>
+ *
+ * usage: {@code NetworkTrainer -data dir [-hidden n] [-epochs n] [-batch n]
+ * [-rate r] [-lambda l] [-k k] [-seed n] [-out network.bin]}
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class NetworkTrainer {
+
+    private static final int HOLD_OUT = 20;    // every 20th position is held out
+    private static final float MAX_WEIGHT1 = (float) Short.MAX_VALUE / Network.ONE / (Network.MAX_ACTIVE + 1);
+
+    private final int hidden;
+    private final int valuePerLogit;
+    private final Random random;
+
+    //the positions: their active inputs, from offsets[i] to offsets[i + 1], and their targets
+    private int size;
+    private int[] offsets = new int[1025];
+    private short[] inputs = new short[1024 * Network.MAX_ACTIVE];
+    private float[] targets = new float[1024];
+
+    //the parameters, their gradients and the moments of Adam, all in one array
+    private final float[] theta, gradient, m, v;
+    private final int w1, b1, w2, b2;  // offsets of the parameters in theta
+
+    /**
+     * @param valuePerLogit value of one logit of the output, 1 / k
+     */
+    NetworkTrainer(int hidden, int valuePerLogit, Random random) {
+        this.hidden = hidden;
+        this.valuePerLogit = valuePerLogit;
+        this.random = random;
+        w1 = 0;
+        b1 = w1 + Network.INPUTS * hidden;
+        w2 = b1 + hidden;
+        b2 = w2 + hidden;
+        theta = new float[b2 + 1];
+        gradient = new float[theta.length];
+        m = new float[theta.length];
+        v = new float[theta.length];
+        for (int i = w1; i < b1; i++) {
+            theta[i] = (float) (random.nextGaussian() * 0.05);
+        }
+        for (int j = 0; j < hidden; j++) {
+            theta[b1 + j] = 0.5f;
+            theta[w2 + j] = (float) (random.nextGaussian() / Math.sqrt(hidden));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hidden = 32, epochs = 15, batch = 256;
+        double rate = 0.005, lambda = 0, k = 1.0 / MrDraughtsRoboto.PIECE;
+        long seed = 1;
+        File data = null, out = new File("network.bin");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-data": data = new File(args[++i]); break;
+                case "-hidden": hidden = Integer.parseInt(args[++i]); break;
+                case "-epochs": epochs = Integer.parseInt(args[++i]); break;
+                case "-batch": batch = Integer.parseInt(args[++i]); break;
+                case "-rate": rate = Double.parseDouble(args[++i]); break;
+                case "-lambda": lambda = Double.parseDouble(args[++i]); break;
+                case "-k": k = Double.parseDouble(args[++i]); break;
+                case "-seed": seed = Long.parseLong(args[++i]); break;
+                case "-out": out = new File(args[++i]); break;
+                default:
+                    usage();
+            }
+        }
+        if (data == null) {
+            usage();
+        }
+        NetworkTrainer trainer = new NetworkTrainer(hidden, (int) Math.round(1 / k), new Random(seed));
+        long start = System.currentTimeMillis();
+        trainer.read(data, lambda, k);
+        System.err.format("read %d positions in %d s\n", trainer.size, (System.currentTimeMillis() - start) / 1000);
+        trainer.train(epochs, batch, rate);
+        trainer.quantize().store(out);
+        System.err.format("network written to %s\n", out);
+    }
+
+    private static void usage() {
+        System.err.println("usage: NetworkTrainer -data dir [-hidden n] [-epochs n] [-batch n]"
+                + " [-rate r] [-lambda l] [-k k] [-seed n] [-out network.bin]");
+        System.exit(1);
+    }
+
+    /**
+     * reads the positions of the shards in data.
+     */
+    void read(File data, double lambda, double k) throws IOException {
+        for (File shard : SelfPlay.shards(data)) {
+            SelfPlay.read(shard, (state, value, result) -> add(state,
+                    (float) (lambda * result.getWhitePoints() / 2 + (1 - lambda) * sigmoid(k * value))));
+        }
+    }
+
+    private void add(DraughtsState state, float target) {
+        if (size == targets.length) {
+            targets = Arrays.copyOf(targets, 2 * size);
+            offsets = Arrays.copyOf(offsets, 2 * size + 1);
+        }
+        int n = offsets[size];
+        if (n + Network.MAX_ACTIVE > inputs.length) {
+            inputs = Arrays.copyOf(inputs, 2 * inputs.length);
+        }
+        int[] pieces = state.getPieces();
+        for (int f = 1; f <= 50; f++) {
+            if (pieces[f] != DraughtsState.EMPTY) {
+                inputs[n++] = (short) Network.input(pieces[f], f);
+            }
+        }
+        if (state.isWhiteToMove()) {
+            inputs[n++] = Network.SIDE_TO_MOVE;
+        }
+        targets[size] = target;
+        offsets[++size] = n;
+    }
+
+    /**
+     * trains the network for the given number of passes over the positions.
+     */
+    void train(int epochs, int batch, double rate) {
+        int[] order = new int[size - (size + HOLD_OUT - 1) / HOLD_OUT];
+        for (int i = 0, n = 0; i < size; i++) {
+            if (i % HOLD_OUT != 0) {
+                order[n++] = i;
+            }
+        }
+        float[] a = new float[hidden];
+        int step = 0;
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            shuffle(order);
+            double loss = 0;
+            for (int from = 0; from < order.length; from += batch) {
+                int to = Math.min(order.length, from + batch);
+                Arrays.fill(gradient, 0);
+                for (int i = from; i < to; i++) {
+                    loss += backward(order[i], a);
+                }
+                adam(++step, rate, to - from);
+            }
+            System.err.format("epoch %d: loss = %.6f, held out loss = %.6f, quantized = %.6f\n",
+                    epoch, loss / order.length, heldOutLoss(null), heldOutLoss(quantize()));
+        }
+    }
+
+    /**
+     * computes the hidden layer of position i, before its activation, in a.
+     *
+     * @return the output of position i
+     */
+    private float forward(int i, float[] a) {
+        System.arraycopy(theta, b1, a, 0, hidden);
+        for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+            int row = w1 + inputs[p] * hidden;
+            for (int j = 0; j < hidden; j++) {
+                a[j] += theta[row + j];
+            }
+        }
+        float y = theta[b2];
+        for (int j = 0; j < hidden; j++) {
+            y += Math.min(Math.max(a[j], 0), 1) * theta[w2 + j];
+        }
+        return y;
+    }
+
+    /**
+     * adds the gradient of the loss of position i to gradient.
+     *
+     * @return the loss of position i
+     */
+    private double backward(int i, float[] a) {
+        float y = forward(i, a);
+        double p = sigmoid(y);
+        float dy = (float) (p - targets[i]);
+        gradient[b2] += dy;
+        for (int j = 0; j < hidden; j++) {
+            float h = Math.min(Math.max(a[j], 0), 1);
+            gradient[w2 + j] += dy * h;
+            if (a[j] > 0 && a[j] < 1) {
+                float da = dy * theta[w2 + j];
+                gradient[b1 + j] += da;
+                for (int q = offsets[i]; q < offsets[i + 1]; q++) {
+                    gradient[w1 + inputs[q] * hidden + j] += da;
+                }
+            }
+        }
+        return crossEntropy(p, targets[i]);
+    }
+
+    /**
+     * takes a step of Adam with the gradient of a batch of n positions.
+     */
+    private void adam(int step, double rate, int n) {
+        double beta1 = 0.9, beta2 = 0.999, epsilon = 1e-8;
+        double c1 = 1 - Math.pow(beta1, step), c2 = 1 - Math.pow(beta2, step);
+        for (int i = 0; i < theta.length; i++) {
+            float g = gradient[i] / n;
+            m[i] = (float) (beta1 * m[i] + (1 - beta1) * g);
+            v[i] = (float) (beta2 * v[i] + (1 - beta2) * g * g);
+            theta[i] -= (float) (rate * (m[i] / c1) / (Math.sqrt(v[i] / c2) + epsilon));
+            if (i < w2) {   // an accumulator of shorts must not overflow
+                theta[i] = Math.min(Math.max(theta[i], -MAX_WEIGHT1), MAX_WEIGHT1);
+            }
+        }
+    }
+
+    /**
+     * @return the mean loss on the held out positions of the given quantized
+     * network, or of the floating point network if it is null
+     */
+    private double heldOutLoss(Network network) {
+        float[] a = new float[hidden];
+        short[] acc = new short[hidden];
+        double loss = 0;
+        int n = 0;
+        for (int i = 0; i < size; i += HOLD_OUT) {
+            double y;
+            if (network == null) {
+                y = forward(i, a);
+            } else {
+                System.arraycopy(network.bias1, 0, acc, 0, hidden);
+                for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                    network.add(acc, 0, inputs[p]);
+                }
+                y = (double) network.output(acc, 0) / network.valuePerLogit;
+            }
+            loss += crossEntropy(sigmoid(y), targets[i]);
+            n++;
+        }
+        return n == 0 ? 0 : loss / n;
+    }
+
+    /**
+     * @return the network with the current parameters, quantized
+     */
+    Network quantize() {
+        short[] weights1 = new short[Network.INPUTS * hidden];
+        short[] bias1 = new short[hidden];
+        short[] weights2 = new short[hidden];
+        for (int i = 0; i < weights1.length; i++) {
+            weights1[i] = toShort(theta[w1 + i] * Network.ONE);
+        }
+        for (int j = 0; j < hidden; j++) {
+            bias1[j] = toShort(theta[b1 + j] * Network.ONE);
+            weights2[j] = toShort(theta[w2 + j] * Network.ONE);
+        }
+        int bias2 = Math.round(theta[b2] * Network.ONE * Network.ONE);
+        return new Network(hidden, valuePerLogit, weights1, bias1, weights2, bias2);
+    }
+
+    private static short toShort(float x) {
+        return (short) Math.round(Math.min(Math.max(x, Short.MIN_VALUE), Short.MAX_VALUE));
+    }
+
+    private void shuffle(int[] a) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    private static double crossEntropy(double p, double target) {
+        p = Math.min(Math.max(p, 1e-12), 1 - 1e-12);
+        return -(target * Math.log(p) + (1 - target) * Math.log(1 - p));
+    }
+}
@@ -0,0 +1,197 @@
+package nl.tue.s2id90.group27;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The nodes of the search tree of a MonteCarloPlayer, in primitive arrays
+ * indexed by node: there are no objects per node. Node 0 is the root; the
+ * children of a node are allocated together, as a contiguous block of nodes,
+ * so a node only stores its first child and the number of its children. A
+ * node stores the move that leads to it as a MoveCode, which is decoded in
+ * the position of its parent, the number of its visits and the sum of the
+ * results of these visits for the player that did the move.
+ * <p>
+ * The store has a fixed capacity, so the memory of a search is bounded; a
+ * node that does not fit is not added, and the search goes on with the nodes
+ * that are there. The store may be shared by several search threads: nodes
+ * are allocated by moving an atomic index, a thread that expands a node first
+ * claims it, and the children of a node are published by setting its first
+ * child, after their fields have been initialized. The visits and results
+ * are atomic counters, so no update of a visit is lost.
+ * </p><p>
+ * Like caches, stores are taken from and returned to a pool with acquire()
+ * and release(), so that players that are created for every game do not
+ * allocate new arrays each time.
+ * </p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class NodeStore {
+
+    /**
+     * first child of a node that has no children (yet).
+     */
+    static final int LEAF = 0;
+
+    /**
+     * first child of a node that is being expanded by a thread.
+     */
+    static final int EXPANDING = -1;
+
+    final int capacity;
+    final int[] move;                   // MoveCode of the move that leads to the node
+    final short[] childCount;
+    final AtomicIntegerArray firstChild;
+    final AtomicIntegerArray visits;
+    final AtomicLongArray score;        // sum of the results, for the player that did the move
+    private final AtomicInteger size = new AtomicInteger();
+    private int[] origin;               // scratch of copy(), when this store is its target
+
+    /**
+     * stores that are not in use.
+     */
+    private static final List<NodeStore> POOL = new ArrayList<>();
+
+    /**
+     * creates a store with room for the given number of nodes.
+     */
+    NodeStore(int capacity) {
+        this.capacity = capacity;
+        move = new int[capacity];
+        childCount = new short[capacity];
+        firstChild = new AtomicIntegerArray(capacity);
+        visits = new AtomicIntegerArray(capacity);
+        score = new AtomicLongArray(capacity);
+        clear();
+    }
+
+    /**
+     * takes a store with room for the given number of nodes from the pool, or
+     * creates one if the pool has none. The store contains only a root.
+     */
+    static NodeStore acquire(int capacity) {
+        NodeStore store = null;
+        synchronized (POOL) {
+            for (NodeStore s : POOL) {
+                if (s.capacity == capacity) {
+                    store = s;
+                    break;
+                }
+            }
+            POOL.remove(store);
+        }
+        if (store == null) {
+            store = new NodeStore(capacity);
+        } else {
+            store.clear();
+        }
+        return store;
+    }
+
+    /**
+     * returns this store to the pool; it should not be used anymore.
+     */
+    void release() {
+        synchronized (POOL) {
+            POOL.add(this);
+        }
+    }
+
+    /**
+     * removes all nodes but a root without visits.
+     */
+    void clear() {
+        size.set(1);
+        init(0, 0);
+    }
+
+    /**
+     * @return the number of nodes in this store
+     */
+    int size() {
+        return Math.min(size.get(), capacity);
+    }
+
+    private void init(int node, int code) {
+        move[node] = code;
+        childCount[node] = 0;
+        visits.set(node, 0);
+        score.set(node, 0);
+        firstChild.set(node, LEAF);
+    }
+
+    /**
+     * @return the index of the first of n new nodes, or -1 if they do not fit
+     */
+    private int allocate(int n) {
+        int first = size.getAndAdd(n);
+        if (first + n > capacity) {
+            size.getAndAdd(-n);
+            return -1;
+        }
+        return first;
+    }
+
+    /**
+     * adds children with the given moves to a leaf, unless another thread is
+     * expanding it or the children do not fit.
+     *
+     * @param codes the MoveCodes of the moves in the position of node
+     * @return whether the children were added
+     */
+    boolean expand(int node, int[] codes) {
+        if (!firstChild.compareAndSet(node, LEAF, EXPANDING)) {
+            return false;
+        }
+        int first = allocate(codes.length);
+        if (first < 0) {
+            firstChild.set(node, LEAF);
+            return false;
+        }
+        for (int i = 0; i < codes.length; i++) {
+            init(first + i, codes[i]);
+        }
+        childCount[node] = (short) codes.length;
+        firstChild.set(node, first);    // publishes the children
+        return true;
+    }
+
+    /**
+     * clears the given store and copies the subtree of node into it, with
+     * node as its root. The subtree is copied breadth first, so the children
+     * of a node stay together.
+     *
+     * @return the number of nodes copied
+     */
+    int copy(int node, NodeStore to) {
+        to.clear();
+        to.visits.set(0, visits.get(node));
+        to.score.set(0, score.get(node));
+        if (to.origin == null) {
+            to.origin = new int[to.capacity];
+        }
+        int[] origin = to.origin;   // the node of this store of every copied node
+        origin[0] = node;
+        for (int i = 0; i < to.size(); i++) {
+            int first = firstChild.get(origin[i]);
+            int n = first > 0 ? childCount[origin[i]] : 0;
+            int copy = n > 0 ? to.allocate(n) : -1;
+            if (copy < 0) {
+                continue;
+            }
+            for (int c = 0; c < n; c++) {
+                to.init(copy + c, move[first + c]);
+                to.visits.set(copy + c, visits.get(first + c));
+                to.score.set(copy + c, score.get(first + c));
+                origin[copy + c] = first + c;
+            }
+            to.childCount[i] = (short) n;
+            to.firstChild.set(i, copy);
+        }
+        return to.size();
+    }
+}
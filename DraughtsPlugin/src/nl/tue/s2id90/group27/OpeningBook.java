@@ -0,0 +1,197 @@
+package nl.tue.s2id90.group27;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Opening book: for positions that occurred in earlier games, the moves that
+ * were played with a weight that reflects how often and how successfully they
+ * were played. A book is built by OpeningBookBuilder.
+ * <p>
+ * A book file starts with a header: the magic number, the version and the
+ * number of entries. Every entry has 12 bytes: the Zobrist hash of a position
+ * including the player to move, the move as a code (see code()) and its
+ * weight as an unsigned short. The entries are sorted by hash, so the moves
+ * of a position are found by binary search. The file is mapped into memory,
+ * so that all players, also those in other processes, share one copy.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class OpeningBook {
+
+    private static final Logger LOG = Logger.getLogger(OpeningBook.class.getName());
+
+    static final int MAGIC = 0x424F4F4B;   // "BOOK"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 12;
+    static final int ENTRY_BYTES = 12;
+
+    /**
+     * system property with the book file of the default book.
+     */
+    public static final String FILE_PROPERTY = "book.file";
+
+    private static OpeningBook defaultBook;
+    private static boolean defaultOpened;
+
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * maps the given book file into memory.
+     *
+     * @throws IOException if the file can not be read or is not a book
+     */
+    public static OpeningBook open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not an opening book");
+            }
+            int size = buffer.getInt(8);
+            if (HEADER_BYTES + (long) ENTRY_BYTES * size != channel.size()) {
+                throw new IOException(file + " has a wrong number of entries");
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * @return the book in the file given by the system property book.file, by
+     * default book.bin in the working directory, or null if there is no such
+     * file or it can not be read. The book is opened once and shared by all
+     * players in this virtual machine.
+     */
+    public static synchronized OpeningBook getDefault() {
+        if (!defaultOpened) {
+            defaultOpened = true;
+            File file = new File(System.getProperty(FILE_PROPERTY, "book.bin"));
+            if (file.exists()) {
+                try {
+                    defaultBook = open(file);
+                    LOG.info(String.format("opened opening book %s with %d entries", file, defaultBook.size));
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "unable to open the opening book", ex);
+                }
+            }
+        }
+        return defaultBook;
+    }
+
+    /**
+     * @return number of entries of this book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Chooses a book move for the given state, at random with a probability
+     * that is proportional to the weights of the moves.
+     *
+     * @return a legal move of state, or null if the position is not in this
+     * book
+     */
+    public Move probe(DraughtsState state) {
+        long key = key(state);
+        int first = first(key);
+        int total = 0;
+        for (int i = first; i < size && key(i) == key; i++) {
+            total += weight(i);
+        }
+        if (total == 0) {
+            return null;
+        }
+        int r = ThreadLocalRandom.current().nextInt(total);
+        int i = first;
+        for (r -= weight(i); r >= 0; r -= weight(i)) {
+            i++;
+        }
+        short code = move(i);
+        List<Move> moves = state.getMoves();
+        for (Move m : moves) {
+            if (code(m) == code) {
+                return m;
+            }
+        }
+        return null;    // a hash collision
+    }
+
+    /**
+     * @return the weight of the given move in the given state, or 0 if the
+     * move is not in this book
+     */
+    int weight(DraughtsState state, Move move) {
+        long key = key(state);
+        short code = code(move);
+        for (int i = first(key); i < size && key(i) == key; i++) {
+            if (move(i) == code) {
+                return weight(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the index of the first entry with a hash that is not smaller
+     * than key
+     */
+    private int first(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(int i) {
+        return entries.getLong(HEADER_BYTES + ENTRY_BYTES * i);
+    }
+
+    private short move(int i) {
+        return entries.getShort(HEADER_BYTES + ENTRY_BYTES * i + 8);
+    }
+
+    private int weight(int i) {
+        return entries.getShort(HEADER_BYTES + ENTRY_BYTES * i + 10) & 0xFFFF;
+    }
+
+    /**
+     * @return the hash of the given state, as used in a book
+     */
+    static long key(DraughtsState state) {
+        return Zobrist.hash(state);
+    }
+
+    /**
+     * @return a code of the given move: its begin and end field in the lowest
+     * 12 bits and 4 bits of a hash of its captured fields, which distinguishes
+     * captures with the same begin and end field
+     */
+    static short code(Move m) {
+        int captures = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            captures ^= m.getCapturedField(i) * 0x9E3779B9 >>> 28;
+        }
+        return (short) (m.getBeginField() | m.getEndField() << 6 | captures << 12);
+    }
+}
@@ -0,0 +1,160 @@
+package nl.tue.s2id90.group27;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.PdnGame;
+import nl.tue.s2id90.draughts.PdnReader;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+
+/**
+ * Builds an opening book, see OpeningBook, from archives of games in PDN, such
+ * as those of the tournament tools. Usage:
+ * <pre>
+ * java nl.tue.s2id90.group27.OpeningBookBuilder [-plies n] [-games n] [-out book.bin] archive.pdn ...
+ * </pre>
+ * The first -plies moves (default 16) of every game with a result are
+ * replayed, and for every position the games and the
+ * points (2 for a win, 1 for a draw) of each move are counted, for the player
+ * that made it. Moves that were played in fewer than -games games (default 2)
+ * are left out. The weight of a move is its number of games times the square
+ * of its expected score, where the expected score is (points + 1) / (2 games
+ * + 2); so a move that is played often and successfully gets a large weight
+ * and a move that mostly lost gets a small one. The weights of the moves of
+ * a position are scaled so that the largest is 65535.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class OpeningBookBuilder {
+
+    private final int plies;
+
+    /**
+     * for every position, by its hash, the number of games and the points of
+     * every move, by its code.
+     */
+    private final Map<Long, Map<Short, int[]>> positions = new HashMap<>();
+    private int games, skipped;
+
+    OpeningBookBuilder(int plies) {
+        this.plies = plies;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int plies = 16, minGames = 2;
+        File out = new File("book.bin");
+        List<File> archives = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-plies": plies = Integer.parseInt(args[++i]); break;
+                case "-games": minGames = Integer.parseInt(args[++i]); break;
+                case "-out": out = new File(args[++i]); break;
+                default:
+                    if (args[i].startsWith("-")) {
+                        archives.clear();
+                        i = args.length;
+                    } else {
+                        archives.add(new File(args[i]));
+                    }
+            }
+        }
+        if (archives.isEmpty()) {
+            System.err.println("usage: OpeningBookBuilder [-plies n] [-games n] [-out book.bin] archive.pdn ...");
+            System.exit(1);
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        for (File archive : archives) {
+            builder.read(archive);
+        }
+        int entries = builder.write(out, minGames);
+        System.err.format("%d games, %d skipped, %d positions, %d entries written to %s\n",
+                builder.games, builder.skipped, builder.positions.size(), entries, out);
+    }
+
+    /**
+     * reads the games in a PDN archive, see PdnReader. Games without a result
+     * are skipped.
+     */
+    void read(File archive) throws IOException {
+        try (PdnReader reader = new PdnReader(archive)) {
+            while (reader.hasNext()) {
+                add(reader.next());
+            }
+        }
+    }
+
+    /**
+     * adds the moves of a game to the book.
+     */
+    private void add(PdnGame game) {
+        if (game.getResult() == Result.UNKNOWN) {
+            skipped++;
+            return;
+        }
+        games++;
+        int points = game.getResult().getWhitePoints();
+        DraughtsState s = game.getStart();
+        for (Move move : game.getMoves().subList(0, Math.min(plies, game.getMoves().size()))) {
+            int[] count = positions.computeIfAbsent(OpeningBook.key(s), k -> new HashMap<>())
+                    .computeIfAbsent(OpeningBook.code(move), k -> new int[2]);
+            count[0]++;
+            count[1] += s.isWhiteToMove() ? points : 2 - points;
+            s.doMove(move);
+        }
+    }
+
+    /**
+     * writes the book, without the moves that were played in fewer than
+     * minGames games.
+     *
+     * @return the number of entries
+     */
+    int write(File file, int minGames) throws IOException {
+        List<long[]> entries = new ArrayList<>();  // hash, code, weight
+        for (Map.Entry<Long, Map<Short, int[]>> p : positions.entrySet()) {
+            double best = 0;
+            for (int[] count : p.getValue().values()) {
+                if (count[0] >= minGames) {
+                    best = Math.max(best, rawWeight(count));
+                }
+            }
+            for (Map.Entry<Short, int[]> m : p.getValue().entrySet()) {
+                int[] count = m.getValue();
+                if (count[0] >= minGames) {
+                    long weight = Math.max(1, Math.round(65535 * rawWeight(count) / best));
+                    entries.add(new long[]{p.getKey(), m.getKey(), weight});
+                }
+            }
+        }
+        long[][] sorted = entries.toArray(new long[0][]);
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(sorted.length);
+            for (long[] e : sorted) {
+                out.writeLong(e[0]);
+                out.writeShort((int) e[1]);
+                out.writeShort((int) e[2]);
+            }
+        }
+        return sorted.length;
+    }
+
+    /**
+     * @return the number of games times the square of the expected score
+     */
+    private static double rawWeight(int[] count) {
+        double score = (count[1] + 1.0) / (2.0 * count[0] + 2);
+        return count[0] * score * score;
+    }
+}
@@ -0,0 +1,69 @@
+package nl.tue.s2id90.group27;
+
+/**
+ * A named pattern of fields that the evaluation function rewards (or punishes)
+ * when all of them are occupied by men of one colour. Patterns are given as
+ * masks, where bit i corresponds with field i of the board, so they can be
+ * matched against a bitboard of men with a single and-operation.
+ *
+ * The fields of a pattern are given from white's point of view; the black
+ * variant is obtained by rotating the board, i.e. field f becomes 51 - f.
+ */
+final class Pattern {
+
+    final String name;
+    final long white;
+    final long black;
+    final int[] weight; //weights for game phases 0, 1, 2 and 3 respectively
+
+    Pattern(String name, int[] weight, int... fields) {
+        this.name = name;
+        this.weight = weight;
+        this.white = mask(fields);
+        this.black = mirror(white);
+    }
+
+    /**
+     * @return 1 if only white has this pattern, -1 if only black has it and 0
+     * otherwise
+     */
+    int match(long whiteMen, long blackMen) {
+        return ((whiteMen & white) == white ? 1 : 0) - ((blackMen & black) == black ? 1 : 0);
+    }
+
+    /**
+     * @return mask with the bits of the given fields set
+     */
+    static long mask(int... fields) {
+        long mask = 0;
+        for (int f : fields) {
+            mask |= 1L << f;
+        }
+        return mask;
+    }
+
+    /**
+     * @return the given mask seen from the other side of the board
+     */
+    static long mirror(long mask) {
+        long mirrored = 0;
+        for (int f = 1; f <= 50; f++) {
+            if ((mask & (1L << f)) != 0) {
+                mirrored |= 1L << (51 - f);
+            }
+        }
+        return mirrored;
+    }
+
+    /**
+     * @return number of fields in {@code mask} that are set in {@code men}
+     */
+    static int count(long men, long mask) {
+        return Long.bitCount(men & mask);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,273 @@
+package nl.tue.s2id90.group27;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parameters of multi-ProbCut forward pruning in the search of
+ * MrDraughtsRoboto.
+ *
+ * <p>
+ * The value v of a search of depth d is predicted from the value v' of a
+ * shallow search of depth d' of the same position as v = a v' + b, with an
+ * error that is roughly normal with standard deviation sigma. So if
+ * v' &gt;= (beta + t sigma - b) / a, the deep search fails high with a
+ * probability that depends on the threshold t, and the position is not
+ * searched deeper; likewise if v' &lt;= (alpha - t sigma - b) / a. Both tests
+ * are done with a null window search of depth d'. A depth can have several
+ * cuts, with different shallow depths, which are tried from the shallowest
+ * one. Depths beyond the deepest calibrated depth use its cuts, with the
+ * shallow depths increased by the difference.
+ * </p><p>
+ * The parameters are fitted by ProbCutCalibration on pairs of values of
+ * shallow and deep searches, and stored in a properties file, e.g.
+ * <pre>
+ *   THRESHOLD=1.5
+ *   DEPTH.8=4,0.98,3.1,410.0;6,0.99,1.2,250.0
+ * </pre>
+ * with for every depth its cuts as shallow depth, a, b and sigma.
+ * </p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class ProbCut {
+
+    private static final Logger LOG = Logger.getLogger(ProbCut.class.getName());
+
+    /**
+     * system property with the file of the default parameters.
+     */
+    static final String FILE_PROPERTY = "probcut.file";
+
+    /**
+     * a shallow search that predicts a deep search.
+     */
+    static final class Cut {
+
+        final int shallow;
+        final double a, b, sigma;
+
+        Cut(int shallow, double a, double b, double sigma) {
+            this.shallow = shallow;
+            this.a = a;
+            this.b = b;
+            this.sigma = sigma;
+        }
+
+        /**
+         * @return the value of the shallow search above which the deep search
+         * is expected to fail high for the given beta
+         */
+        long high(int beta, double threshold) {
+            return (long) Math.ceil((beta + threshold * sigma - b) / a);
+        }
+
+        /**
+         * @return the value of the shallow search below which the deep search
+         * is expected to fail low for the given alpha
+         */
+        long low(int alpha, double threshold) {
+            return (long) Math.floor((alpha - threshold * sigma - b) / a);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d,%.4f,%.1f,%.1f", shallow, a, b, sigma);
+        }
+    }
+
+    private static final Cut[] NONE = {};
+    private static ProbCut defaultProbCut;
+
+    final double threshold;
+    private final Cut[][] cuts;     // indexed by depth
+
+    /**
+     * @param cuts the cuts of every depth, an empty array for depths without
+     * cuts
+     */
+    ProbCut(double threshold, Cut[][] cuts) {
+        this.threshold = threshold;
+        this.cuts = cuts;
+    }
+
+    /**
+     * @return the parameters fitted by ProbCutCalibration on 400 positions of
+     * self-play games of depth 4, searched to depth 9, with a reduction of 4
+     */
+    static ProbCut defaults() {
+        Cut[][] cuts = new Cut[10][];
+        Arrays.fill(cuts, NONE);
+        cuts[5] = new Cut[]{new Cut(1, 1.0345, -15.8, 1081.2)};
+        cuts[6] = new Cut[]{new Cut(2, 1.0395, 0.5, 1039.1)};
+        cuts[7] = new Cut[]{new Cut(3, 1.0349, 28.9, 923.6)};
+        cuts[8] = new Cut[]{new Cut(4, 1.0388, 7.9, 962.0)};
+        cuts[9] = new Cut[]{new Cut(5, 1.0403, 15.1, 890.2)};
+        return new ProbCut(1.5, cuts);
+    }
+
+    /**
+     * @return the parameters in the file given by the system property
+     * probcut.file, by default probcut.properties in the working directory, or
+     * defaults() if there is no such file or it can not be read
+     */
+    static synchronized ProbCut getDefault() {
+        if (defaultProbCut == null) {
+            File file = new File(System.getProperty(FILE_PROPERTY, "probcut.properties"));
+            defaultProbCut = defaults();
+            if (file.exists()) {
+                try {
+                    defaultProbCut = load(file);
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "unable to load the ProbCut parameters, using the defaults", ex);
+                }
+            }
+        }
+        return defaultProbCut;
+    }
+
+    /**
+     * @return the cuts of a search of the given depth, shallowest first
+     */
+    Cut[] cuts(int depth) {
+        if (depth < cuts.length) {
+            return cuts[depth];
+        } else if (cuts.length == 0) {
+            return NONE;
+        }
+        Cut[] deepest = cuts[cuts.length - 1];
+        int shift = depth - (cuts.length - 1);
+        Cut[] result = new Cut[deepest.length];
+        for (int i = 0; i < result.length; i++) {
+            Cut c = deepest[i];
+            result[i] = new Cut(c.shallow + shift, c.a, c.b, c.sigma);
+        }
+        return result;
+    }
+
+    /**
+     * @return these parameters as numbers: the threshold and, for every depth,
+     * the number of cuts followed by their shallow depth, a, b and sigma; so
+     * that parameters can be compared by value with Arrays.equals()
+     */
+    double[] values() {
+        int n = 1;
+        for (Cut[] depth : cuts) {
+            n += 1 + 4 * depth.length;
+        }
+        double[] values = new double[n];
+        int i = 0;
+        values[i++] = threshold;
+        for (Cut[] depth : cuts) {
+            values[i++] = depth.length;
+            for (Cut c : depth) {
+                values[i++] = c.shallow;
+                values[i++] = c.a;
+                values[i++] = c.b;
+                values[i++] = c.sigma;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return a hash of these parameters, e.g. to keep values searched with
+     * different parameters apart
+     */
+    long fingerprint() {
+        long h = 0x50524F42L;   // "PROB", so that pruning differs from no pruning
+        h = 31 * h + Double.doubleToLongBits(threshold);
+        for (Cut[] depth : cuts) {
+            h = 31 * h + depth.length;
+            for (Cut c : depth) {
+                h = 31 * h + c.shallow;
+                h = 31 * h + Double.doubleToLongBits(c.a);
+                h = 31 * h + Double.doubleToLongBits(c.b);
+                h = 31 * h + Double.doubleToLongBits(c.sigma);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * loads parameters from the given properties file.
+     */
+    static ProbCut load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            properties.load(in);
+        }
+        try {
+            double threshold = Double.parseDouble(properties.getProperty("THRESHOLD", "1.5").trim());
+            int maxDepth = 0;
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith("DEPTH.")) {
+                    maxDepth = Math.max(maxDepth, Integer.parseInt(name.substring(6)));
+                }
+            }
+            Cut[][] cuts = new Cut[maxDepth + 1][];
+            Arrays.fill(cuts, NONE);
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                String value = properties.getProperty("DEPTH." + depth);
+                if (value == null) {
+                    continue;
+                }
+                List<Cut> list = new ArrayList<>();
+                for (String cut : value.split(";")) {
+                    String[] p = cut.split(",");
+                    int shallow = Integer.parseInt(p[0].trim());
+                    if (p.length != 4 || shallow < 0 || shallow >= depth) {
+                        throw new IllegalArgumentException("bad cut of depth " + depth + ": " + cut);
+                    }
+                    list.add(new Cut(shallow, Double.parseDouble(p[1].trim()), Double.parseDouble(p[2].trim()),
+                            Double.parseDouble(p[3].trim())));
+                }
+                list.sort((x, y) -> Integer.compare(x.shallow, y.shallow));
+                cuts[depth] = list.toArray(NONE);
+            }
+            return new ProbCut(threshold, cuts);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * stores these parameters in a properties file that can be read by
+     * load().
+     *
+     * @param comment written at the top of the file
+     */
+    void store(File file, String comment) throws IOException {
+        try (PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (String line : comment.split("\n")) {
+                out.println("# " + line);
+            }
+            out.println("THRESHOLD=" + threshold);
+            for (int depth = 1; depth < cuts.length; depth++) {
+                if (cuts[depth].length > 0) {
+                    StringBuilder sb = new StringBuilder();
+                    for (Cut c : cuts[depth]) {
+                        sb.append(sb.length() > 0 ? ";" : "").append(c);
+                    }
+                    out.println("DEPTH." + depth + "=" + sb);
+                }
+            }
+        }
+    }
+}
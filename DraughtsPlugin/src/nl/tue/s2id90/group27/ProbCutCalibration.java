@@ -0,0 +1,207 @@
+package nl.tue.s2id90.group27;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.player.SearchStats;
+
+/**
+ * Calibrates ProbCut: fits the parameters with which the value of a deep
+ * search is predicted from that of a shallow search.
+ *
+ * <p>
+ * With -data, a random sample of the positions in the shards of SelfPlay is
+ * searched by MrDraughtsRoboto without pruning and opening book, and for every
+ * pair of depths d' &lt; d of its iterative deepening, the values of the
+ * iterations of depth d' and d are appended to a log, a CSV file with the
+ * columns deep, shallow, deepValue and shallowValue. Then, for every depth d
+ * in the log and every reduction r, a line deepValue = a shallowValue + b is
+ * fitted with least squares on the pairs of depths d and d - r, ignoring
+ * values of won and lost endgames, and the standard deviation sigma of its
+ * errors is computed. The fitted cuts are written to a properties file that
+ * can be read by ProbCut.load().
+ * </p>
+ *
+ * usage: {@code ProbCutCalibration [-data dir] [-positions n] [-depth d]
+ * [-seed n] [-log pairs.csv] [-reductions 4,2] [-threshold t]
+ * [-out probcut.properties]}
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class ProbCutCalibration {
+
+    private static final String HEADER = "deep,shallow,deepValue,shallowValue";
+    private static final int MIN_PAIRS = 30;   // fewer pairs do not give a cut
+
+    public static void main(String[] args) throws Exception {
+        int positions = 1000, depth = 9;
+        long seed = 1;
+        double threshold = 1.5;
+        int[] reductions = {4};
+        File data = null, log = new File("probcut-pairs.csv"), out = new File("probcut.properties");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-data": data = new File(args[++i]); break;
+                case "-positions": positions = Integer.parseInt(args[++i]); break;
+                case "-depth": depth = Integer.parseInt(args[++i]); break;
+                case "-seed": seed = Long.parseLong(args[++i]); break;
+                case "-log": log = new File(args[++i]); break;
+                case "-reductions":
+                    reductions = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "-threshold": threshold = Double.parseDouble(args[++i]); break;
+                case "-out": out = new File(args[++i]); break;
+                default:
+                    System.err.println("usage: ProbCutCalibration [-data dir] [-positions n] [-depth d] [-seed n]"
+                            + " [-log pairs.csv] [-reductions 4,2] [-threshold t] [-out probcut.properties]");
+                    System.exit(1);
+            }
+        }
+        if (data != null) {
+            log(sample(data, positions, new Random(seed)), depth, log);
+        }
+        ProbCut probCut = fit(log, reductions, threshold);
+        probCut.store(out, String.format("fitted by ProbCutCalibration on %s", log));
+        System.err.format("parameters written to %s\n", out);
+    }
+
+    /**
+     * @return a random sample of n positions of the shards in data
+     */
+    static List<DraughtsState> sample(File data, int n, Random random) throws IOException {
+        List<DraughtsState> sample = new ArrayList<>();
+        long[] seen = {0};
+        for (File shard : SelfPlay.shards(data)) {
+            SelfPlay.read(shard, (state, value, result) -> {
+                seen[0]++;
+                if (sample.size() < n) {
+                    sample.add(state.clone());
+                } else {
+                    long i = (long) (random.nextDouble() * seen[0]);
+                    if (i < n) {
+                        sample.set((int) i, state.clone());
+                    }
+                }
+            });
+        }
+        return sample;
+    }
+
+    /**
+     * searches the given positions to the given depth and appends the pairs
+     * of values of their iterations to log.
+     */
+    static void log(List<DraughtsState> positions, int depth, File log) throws IOException {
+        boolean exists = log.exists() && log.length() > 0;
+        long start = System.currentTimeMillis();
+        try (PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(new FileOutputStream(log, true), StandardCharsets.UTF_8))) {
+            if (!exists) {
+                out.println(HEADER);
+            }
+            int done = 0;
+            for (DraughtsState state : positions) {
+                MrDraughtsRoboto bot = new MrDraughtsRoboto(depth, null, null);
+                bot.getMove(state.clone());
+                bot.release();
+                long[] values = iterationValues(bot.getSearchStats(), depth);
+                for (int deep = 2; deep <= depth; deep++) {
+                    for (int shallow = 1; shallow < deep; shallow++) {
+                        if (values[deep] != Long.MIN_VALUE && values[shallow] != Long.MIN_VALUE) {
+                            out.format("%d,%d,%d,%d\n", deep, shallow, values[deep], values[shallow]);
+                        }
+                    }
+                }
+                if (++done % 50 == 0) {
+                    System.err.format("searched %d/%d positions in %d s\n",
+                            done, positions.size(), (System.currentTimeMillis() - start) / 1000);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value of each completed iteration of the last search, by
+     * depth, Long.MIN_VALUE for iterations that were not done
+     */
+    private static long[] iterationValues(SearchStats stats, int depth) {
+        long[] values = new long[depth + 1];
+        Arrays.fill(values, Long.MIN_VALUE);
+        int last = stats.size() - 1;
+        for (int i = last; i >= 0 && stats.get(i, "search") == stats.get(last, "search"); i--) {
+            int d = (int) stats.get(i, "depth");
+            if (d <= depth && stats.get(i, "complete") == 1) {
+                values[d] = stats.get(i, "value");
+            }
+        }
+        return values;
+    }
+
+    /**
+     * fits the cuts with the given reductions on the pairs in log.
+     */
+    static ProbCut fit(File log, int[] reductions, double threshold) throws IOException {
+        //sums over the pairs of every deep and shallow depth: n, x, y, xx, xy, yy
+        List<double[][]> sums = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.equals(HEADER)) {
+                    continue;
+                }
+                String[] p = line.split(",");
+                int deep = Integer.parseInt(p[0]), shallow = Integer.parseInt(p[1]);
+                double y = Double.parseDouble(p[2]), x = Double.parseDouble(p[3]);
+                if (Math.abs(x) >= MrDraughtsRoboto.EGDB_WIN / 2 || Math.abs(y) >= MrDraughtsRoboto.EGDB_WIN / 2) {
+                    continue;
+                }
+                while (sums.size() <= deep) {
+                    sums.add(new double[sums.size()][6]);
+                }
+                double[] s = sums.get(deep)[shallow];
+                s[0]++;
+                s[1] += x;
+                s[2] += y;
+                s[3] += x * x;
+                s[4] += x * y;
+                s[5] += y * y;
+            }
+        }
+        ProbCut.Cut[][] cuts = new ProbCut.Cut[sums.size()][];
+        for (int deep = 0; deep < sums.size(); deep++) {
+            List<ProbCut.Cut> list = new ArrayList<>();
+            for (int r : reductions) {
+                int shallow = deep - r;
+                if (shallow < 1 || sums.get(deep)[shallow][0] < MIN_PAIRS) {
+                    continue;
+                }
+                double[] s = sums.get(deep)[shallow];
+                double n = s[0];
+                double sxx = s[3] - s[1] * s[1] / n, sxy = s[4] - s[1] * s[2] / n, syy = s[5] - s[2] * s[2] / n;
+                double a = sxy / sxx;
+                double b = (s[2] - a * s[1]) / n;
+                double sigma = Math.sqrt(Math.max(0, syy - a * sxy) / (n - 2));
+                System.err.format("depth %2d from %2d: a = %.4f, b = %7.1f, sigma = %7.1f, r = %.3f, %d pairs\n",
+                        deep, shallow, a, b, sigma, sxy / Math.sqrt(sxx * syy), (long) n);
+                if (a > 0) {
+                    list.add(new ProbCut.Cut(shallow, a, b, sigma));
+                }
+            }
+            list.sort((x, y) -> Integer.compare(x.shallow, y.shallow));
+            cuts[deep] = list.toArray(new ProbCut.Cut[0]);
+        }
+        return new ProbCut(threshold, cuts);
+    }
+}
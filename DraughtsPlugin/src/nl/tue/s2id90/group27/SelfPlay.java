@@ -0,0 +1,383 @@
+package nl.tue.s2id90.group27;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.GameRecord;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+
+/**
+ * Headless generator of labelled positions for tuning and learning the
+ * evaluation.
+ *
+ * <p>
+ * Worker threads play self-play games between two MrDraughtsRoboto players of
+ * a fixed, low search depth, without opening book, from a random opening of
+ * Tuner.OPENING_PLIES plies. Of every game, a random sample of its quiet
+ * positions (no capture for the player to move) after Tuner.SKIP_PLIES plies
+ * is labelled with the value of the search in that position, for white, and
+ * with the result of the game. Finished games are put in a bounded queue, so
+ * that the workers wait when the disk can not keep up, and a writer thread
+ * appends them to shards: files of about a given number of positions, named
+ * selfplay-00000.bin, selfplay-00001.bin, ... A shard is written to a
+ * temporary file, which gets its name when the shard is full, so a shard is
+ * never read while it is written; the numbers of new shards follow those of
+ * the shards in the output directory, so a later run adds shards.
+ * </p><p>
+ * A shard starts with the int MAGIC and the int VERSION and holds games of the
+ * format:
+ * <pre>
+ *   game:GameRecord      the moves and result of the game
+ *   count:short          number of sampled positions
+ *   count x (ply:short value:int)   position after ply moves, and its value
+ * </pre>
+ * which takes about 100 bytes per game plus 6 bytes per position, and is read
+ * with read(). Progress and throughput are reported every few seconds.
+ * </p>
+ *
+ * usage: {@code SelfPlay [-games n] [-depth d] [-sample p] [-shard n]
+ * [-threads n] [-queue n] [-seed n] [-report s] [-out dir]}
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class SelfPlay {
+
+    static final int MAGIC = 0x53504C59;    // "SPLY"
+    static final int VERSION = 1;
+    private static final String PREFIX = "selfplay-";
+
+    /**
+     * receives the positions of the shards read by read().
+     */
+    interface PositionConsumer {
+
+        /**
+         * @param state the position, which must not be changed
+         * @param value value of the search in state, for white
+         * @param result result of the game of the position
+         */
+        void accept(DraughtsState state, int value, Result result);
+    }
+
+    /**
+     * a finished game with its sampled positions.
+     */
+    private static final class Sample {
+
+        final GameRecord game;
+        final short[] plies;
+        final int[] values;
+
+        Sample(GameRecord game, short[] plies, int[] values) {
+            this.game = game;
+            this.plies = plies;
+            this.values = values;
+        }
+    }
+
+    /**
+     * put in the queue after the last game.
+     */
+    private static final Sample END = new Sample(null, null, null);
+
+    private final int depth;
+    private final double sample;
+    private final long seed;
+    private final File dir;
+    private final int shardSize;
+    private final BlockingQueue<Sample> queue;
+
+    //progress
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicInteger games = new AtomicInteger();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong plies = new AtomicLong();
+    private final AtomicInteger shards = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+
+    SelfPlay(int depth, double sample, long seed, File dir, int shardSize, int queueSize) {
+        this.depth = depth;
+        this.sample = sample;
+        this.seed = seed;
+        this.dir = dir;
+        this.shardSize = shardSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 10000, depth = 4, shard = 1000000, report = 10;
+        int threads = Runtime.getRuntime().availableProcessors(), queue = 0;
+        double sample = 0.25;
+        long seed = System.currentTimeMillis();
+        File out = new File("selfplay");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games": games = Integer.parseInt(args[++i]); break;
+                case "-depth": depth = Integer.parseInt(args[++i]); break;
+                case "-sample": sample = Double.parseDouble(args[++i]); break;
+                case "-shard": shard = Integer.parseInt(args[++i]); break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-queue": queue = Integer.parseInt(args[++i]); break;
+                case "-seed": seed = Long.parseLong(args[++i]); break;
+                case "-report": report = Integer.parseInt(args[++i]); break;
+                case "-out": out = new File(args[++i]); break;
+                default:
+                    System.err.println("usage: SelfPlay [-games n] [-depth d] [-sample p] [-shard n]"
+                            + " [-threads n] [-queue n] [-seed n] [-report s] [-out dir]");
+                    System.exit(1);
+            }
+        }
+        out.mkdirs();
+        SelfPlay selfPlay = new SelfPlay(depth, sample, seed, out, shard, queue > 0 ? queue : 4 * threads);
+        selfPlay.run(games, threads, report);
+    }
+
+    /**
+     * plays the given number of games on the given number of threads and
+     * writes their positions to the shards.
+     *
+     * @param report seconds between progress reports
+     */
+    void run(int count, int threads, int report)
+            throws IOException, InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "report");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> report(start, count), report, report, TimeUnit.SECONDS);
+        try {
+            Future<?> written = writer.submit(() -> {
+                try {
+                    write();
+                } catch (IOException | RuntimeException ex) {
+                    workers.shutdownNow();  // nobody takes their games anymore
+                    throw ex;
+                }
+                return null;
+            });
+            List<Future<?>> played = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                played.add(workers.submit(() -> {
+                    play(count);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> f : played) {
+                    f.get();
+                }
+            } finally {
+                while (!written.isDone() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                }
+            }
+            written.get();
+        } finally {
+            workers.shutdownNow();
+            writer.shutdownNow();
+            reporter.shutdownNow();
+        }
+        report(start, count);
+    }
+
+    /**
+     * plays games until count games have been started.
+     */
+    private void play(int count) throws InterruptedException {
+        for (int g = nextGame.getAndIncrement(); g < count; g = nextGame.getAndIncrement()) {
+            queue.put(playGame(new Random(seed + g)));
+        }
+    }
+
+    /**
+     * plays one game from a random opening and samples its quiet positions.
+     */
+    private Sample playGame(Random random) {
+        MrDraughtsRoboto white = new MrDraughtsRoboto(depth, null, null);
+        MrDraughtsRoboto black = new MrDraughtsRoboto(depth, null, null);
+        try {
+            DraughtsState state = new DraughtsState();
+            DraughtsState start = state.clone();
+            List<Move> moves = new ArrayList<>();
+            short[] sampled = new short[Tuner.MAX_PLIES];
+            int[] values = new int[Tuner.MAX_PLIES];
+            int n = 0;
+            Result result = Result.DRAW;    // games that take too long are a draw
+            for (int ply = 0; ply < Tuner.MAX_PLIES; ply++) {
+                List<Move> legal = state.getMoves();
+                if (legal.isEmpty()) {
+                    result = state.isWhiteToMove() ? Result.BLACK_WINS : Result.WHITE_WINS;
+                    break;
+                }
+                Move m;
+                if (ply < Tuner.OPENING_PLIES) {
+                    m = legal.get(random.nextInt(legal.size()));
+                } else {
+                    MrDraughtsRoboto player = state.isWhiteToMove() ? white : black;
+                    m = player.getMove(state.clone());
+                    if (ply >= Tuner.SKIP_PLIES && !legal.get(0).isCapture() && random.nextDouble() < sample) {
+                        sampled[n] = (short) ply;
+                        values[n++] = player.getValue();
+                    }
+                }
+                state.doMove(m);
+                moves.add(m);
+            }
+            plies.addAndGet(moves.size());
+            return new Sample(new GameRecord(start, moves, result),
+                    Arrays.copyOf(sampled, n), Arrays.copyOf(values, n));
+        } finally {
+            white.release();
+            black.release();
+        }
+    }
+
+    /**
+     * writes the games in the queue to shards, until END.
+     */
+    private void write() throws IOException, InterruptedException {
+        int number = firstShard();
+        DataOutputStream out = null;
+        File tmp = null;
+        long inShard = 0;
+        try {
+            for (Sample s = queue.take(); s != END; s = queue.take()) {
+                if (out == null) {
+                    tmp = new File(dir, String.format("%s%05d.tmp", PREFIX, number));
+                    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                s.game.write(out);
+                out.writeShort(s.plies.length);
+                for (int i = 0; i < s.plies.length; i++) {
+                    out.writeShort(s.plies[i]);
+                    out.writeInt(s.values[i]);
+                }
+                inShard += s.plies.length;
+                positions.addAndGet(s.plies.length);
+                games.incrementAndGet();
+                if (inShard >= shardSize) {
+                    finish(out, tmp, number++);
+                    out = null;
+                    inShard = 0;
+                }
+            }
+            if (out != null) {
+                finish(out, tmp, number);
+                out = null;
+            }
+        } finally {
+            if (out != null) {  // keep what was written, under its temporary name
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * closes a shard and gives it its name.
+     */
+    private void finish(DataOutputStream out, File tmp, int number) throws IOException {
+        out.close();
+        File shard = new File(dir, String.format("%s%05d.bin", PREFIX, number));
+        Files.move(tmp.toPath(), shard.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        shards.incrementAndGet();
+        bytes.addAndGet(shard.length());
+    }
+
+    /**
+     * @return the number of the first new shard: one more than the largest
+     * number of a shard in the output directory
+     */
+    private int firstShard() {
+        int first = 0;
+        for (File f : shards(dir)) {
+            String name = f.getName();
+            first = Math.max(first, Integer.parseInt(name.substring(PREFIX.length(), name.length() - 4)) + 1);
+        }
+        return first;
+    }
+
+    private void report(long start, int count) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int done = games.get();
+        System.err.format("%d/%d games, %d positions, %d shards (%.1f MB), %.1f games/s, %.0f positions/s,"
+                + " %.0f plies/s, queue %d%s\n",
+                done, count, positions.get(), shards.get(), bytes.get() / 1e6, done / seconds,
+                positions.get() / seconds, plies.get() / seconds, queue.size(),
+                done > 0 && done < count ? String.format(", %.0f s to go", seconds * (count - done) / done) : "");
+    }
+
+    /**
+     * @return the shards in the given directory, in the order of their
+     * numbers, or the file itself if it is not a directory
+     */
+    static List<File> shards(File file) {
+        List<File> result = new ArrayList<>();
+        if (!file.isDirectory()) {
+            result.add(file);
+            return result;
+        }
+        File[] files = file.listFiles((d, name) -> name.matches(PREFIX + "\\d+\\.bin"));
+        result.addAll(Arrays.asList(files));
+        result.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return result;
+    }
+
+    /**
+     * reads the positions of a shard.
+     *
+     * @return the number of positions read
+     * @throws IOException if the shard can not be read or is not a shard
+     */
+    static long read(File shard, PositionConsumer consumer) throws IOException {
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(shard), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(shard + " is not a self-play shard");
+            }
+            GameRecord game;
+            while ((game = GameRecord.read(in)) != null) {
+                DraughtsState state = game.getStart();
+                List<Move> moves = game.getMoves();
+                int ply = 0;
+                for (int i = in.readUnsignedShort(); i > 0; i--) {
+                    int sampled = in.readUnsignedShort();
+                    int value = in.readInt();
+                    while (ply < sampled) {
+                        state.doMove(moves.get(ply++));
+                    }
+                    consumer.accept(state, value, game.getResult());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
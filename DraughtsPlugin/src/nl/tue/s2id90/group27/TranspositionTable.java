@@ -0,0 +1,380 @@
+package nl.tue.s2id90.group27;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Transposition table of the search: for positions that were searched
+ * before, keyed by their Zobrist hash including the player to move, the value
+ * for white, whether that value is exact or a bound, the depth of the search
+ * and the best move, as a code (see OpeningBook.code()).
+ * <p>
+ * The table is kept between the moves of a game, and between games of the
+ * same player. Every search gets a new age; the table consists of buckets of
+ * two entries and a new position replaces the entry of its bucket with the
+ * smallest depth, where entries lose 8 plies of depth for every search they
+ * are old. So entries of earlier moves are kept as long as they are deeper
+ * than new ones, and are gradually replaced when they are not used anymore.
+ * </p><p>
+ * Like an EvalCache, an entry stores its key xor-ed with its data, so a torn
+ * entry does not verify; tables are taken from and returned to a pool with
+ * acquire() and release(), and a table keeps its entries when it is acquired
+ * again for the same owner: the weights and search parameters themselves are
+ * compared, so players that differ never share values. When the system
+ * property tt.snapshot is set to a directory, a player saves its table to a
+ * file in that directory when it is done with it, one file per fingerprint of
+ * the owner, and the table is loaded from that file when a player with that
+ * fingerprint starts in another virtual machine, e.g. in the next game of a
+ * tournament that runs every game in a vm of its own. The file also holds
+ * the owner, which is compared as well, so a fingerprint that collides does
+ * not load the values of another player.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class TranspositionTable {
+
+    private static final Logger LOG = Logger.getLogger(TranspositionTable.class.getName());
+
+    /**
+     * returned by probe() when the position is not in the table.
+     */
+    static final long MISS = 0;
+
+    //kinds of values; an entry always has a kind, so its data is never MISS
+    static final int LOWER = 1;   // the value is a lower bound
+    static final int UPPER = 2;   // the value is an upper bound
+    static final int EXACT = 3;
+
+    /**
+     * system property with the directory of the snapshots.
+     */
+    static final String SNAPSHOT_PROPERTY = "tt.snapshot";
+
+    private static final int MAGIC = 0x54544142;    // "TTAB"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+    private static final int MAX_DEPTH = 127;
+    private static final int AGE_MASK = 127;
+    private static final int AGE_PENALTY = 8;   // plies of depth an entry loses per search
+
+    //layout of the data of an entry: value, move, depth, kind and age
+    private static final int MOVE_SHIFT = 32;
+    private static final int DEPTH_SHIFT = 48;
+    private static final int KIND_SHIFT = 55;
+    private static final int AGE_SHIFT = 57;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private int age;
+    private long fingerprint;
+    private Object[] owner;         // the evaluation and pruning of the values, see acquire()
+
+    /**
+     * tables that are not in use.
+     */
+    private static final List<TranspositionTable> POOL = new ArrayList<>();
+
+    /**
+     * creates a table with 2^bits entries.
+     */
+    TranspositionTable(int bits) {
+        keys = new long[1 << bits];
+        data = new long[1 << bits];
+        mask = (1 << bits) - 2;     // index of the first entry of a bucket
+    }
+
+    /**
+     * takes a table with 2^bits entries from the pool, preferably one that was
+     * filled by the same owner; a table of another owner is cleared. If the
+     * pool has none, the table is loaded from its snapshot, if there is one,
+     * or created.
+     *
+     * @param fingerprint hash of the owner, which names the snapshot
+     * @param owner the weights and search parameters with which the values in
+     * the table will be computed, compared with Arrays.deepEquals()
+     */
+    static TranspositionTable acquire(int bits, long fingerprint, Object... owner) {
+        TranspositionTable table = null;
+        synchronized (POOL) {
+            for (TranspositionTable t : POOL) {
+                if (t.keys.length == 1 << bits && (table == null || Arrays.deepEquals(t.owner, owner))) {
+                    table = t;
+                }
+            }
+            POOL.remove(table);
+        }
+        if (table == null) {
+            table = new TranspositionTable(bits);
+            table.load(snapshot(fingerprint), fingerprint, owner);
+        } else if (!Arrays.deepEquals(table.owner, owner)) {
+            table.clear();
+        }
+        table.fingerprint = fingerprint;
+        table.owner = owner;
+        return table;
+    }
+
+    /**
+     * returns this table to the pool; it should not be used anymore.
+     */
+    void release() {
+        synchronized (POOL) {
+            POOL.add(this);
+        }
+    }
+
+    /**
+     * saves this table to its snapshot, if snapshots are enabled. A player
+     * does this only when it is done with the table, not when it changes its
+     * evaluation, so that a snapshot is written once per game.
+     */
+    void saveSnapshot() {
+        File file = snapshot(fingerprint);
+        if (file != null) {
+            try {
+                save(file);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "unable to save the transposition table to " + file, ex);
+            }
+        }
+    }
+
+    /**
+     * starts a new search: the entries of earlier searches get older.
+     */
+    void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * @return the data of the position with the given key, or MISS; see
+     * value(), move(), depth() and kind()
+     */
+    long probe(long key) {
+        int i = (int) key & mask;
+        for (int j = i; j < i + 2; j++) {
+            long d = data[j];
+            if (d != MISS && (keys[j] ^ d) == key) {
+                if (age(d) != age) {    // keep the entry of a position that is still used
+                    d = d & ~((long) AGE_MASK << AGE_SHIFT) | (long) age << AGE_SHIFT;
+                    data[j] = d;
+                    keys[j] = key ^ d;
+                }
+                return d;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * stores the result of a search of the position with the given key.
+     *
+     * @param kind EXACT, LOWER or UPPER
+     * @param move code of the best move, or 0 if there is none
+     */
+    void store(long key, int value, int depth, int kind, short move) {
+        int i = (int) key & mask;
+        int slot = i;
+        for (int j = i; j < i + 2; j++) {
+            long d = data[j];
+            if (d != MISS && (keys[j] ^ d) == key) {
+                if (move == 0) {
+                    move = move(d); // keep the best move of an earlier search
+                }
+                slot = j;
+                break;
+            }
+            if (priority(d) < priority(data[slot])) {
+                slot = j;
+            }
+        }
+        long d = (value & 0xFFFFFFFFL) | (move & 0xFFFFL) << MOVE_SHIFT
+                | (long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT
+                | (long) kind << KIND_SHIFT | (long) age << AGE_SHIFT;
+        data[slot] = d;
+        keys[slot] = key ^ d;
+    }
+
+    /**
+     * @return how much an entry is worth keeping: its depth, minus a penalty
+     * for every search it is old
+     */
+    private int priority(long d) {
+        if (d == MISS) {
+            return Integer.MIN_VALUE;
+        }
+        return depth(d) - AGE_PENALTY * ((age - age(d)) & AGE_MASK);
+    }
+
+    static int value(long d) {
+        return (int) d;
+    }
+
+    static short move(long d) {
+        return (short) (d >>> MOVE_SHIFT);
+    }
+
+    static int depth(long d) {
+        return (int) (d >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    static int kind(long d) {
+        return (int) (d >>> KIND_SHIFT) & 3;
+    }
+
+    private static int age(long d) {
+        return (int) (d >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    /**
+     * removes all entries.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, MISS);
+    }
+
+    /**
+     * @return the snapshot file of the tables with the given fingerprint, or
+     * null if snapshots are not enabled
+     */
+    private static File snapshot(long fingerprint) {
+        String dir = System.getProperty(SNAPSHOT_PROPERTY);
+        return dir == null ? null : new File(dir, String.format("tt-%016x.bin", fingerprint));
+    }
+
+    /**
+     * writes this table to the given file. The table is written to a
+     * temporary file first, which then replaces the file, so that a player
+     * that loads the file at the same time reads either the old or the new
+     * table.
+     */
+    void save(File file) throws IOException {
+        byte[] ownerBytes = encode(owner);
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File tmp = File.createTempFile("tt-", ".tmp", dir);
+        try {
+            try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_BYTES + ownerBytes.length + 16L * keys.length);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(keys.length).putInt(age).putLong(fingerprint)
+                        .putInt(ownerBytes.length).put(ownerBytes);
+                buffer.asLongBuffer().put(keys).put(data);
+                buffer.force();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * replaces the entries of this table by those in the given file, if it
+     * exists and holds a table of the same size, fingerprint and owner.
+     */
+    void load(File file, long fingerprint, Object... owner) {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        byte[] ownerBytes = encode(owner);
+        if (file.length() != HEADER_BYTES + ownerBytes.length + 16L * keys.length) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != keys.length) {
+                return;
+            }
+            int savedAge = buffer.getInt();
+            if (buffer.getLong() != fingerprint || buffer.getInt() != ownerBytes.length) {
+                return;
+            }
+            byte[] savedOwner = new byte[ownerBytes.length];
+            buffer.get(savedOwner);
+            if (!Arrays.equals(savedOwner, ownerBytes)) {
+                LOG.warning(String.format("%s is a table of another player with the same fingerprint", file));
+                return;
+            }
+            buffer.asLongBuffer().get(keys).get(data);
+            age = savedAge;
+            LOG.fine(String.format("loaded the transposition table from %s", file));
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "unable to load the transposition table from " + file, ex);
+        }
+    }
+
+    /**
+     * @return the owner of a table as bytes, so that it can be saved with the
+     * table and compared when the table is loaded
+     * @throws IllegalArgumentException if the owner has values other than
+     * null, arrays of ints, shorts, longs or doubles, and arrays of those
+     */
+    static byte[] encode(Object[] owner) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encode(owner, out);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);    // a ByteArrayOutputStream does not fail
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void encode(Object value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+        } else if (value instanceof int[]) {
+            int[] a = (int[]) value;
+            out.writeByte(1);
+            out.writeInt(a.length);
+            for (int v : a) {
+                out.writeInt(v);
+            }
+        } else if (value instanceof short[]) {
+            short[] a = (short[]) value;
+            out.writeByte(2);
+            out.writeInt(a.length);
+            for (short v : a) {
+                out.writeShort(v);
+            }
+        } else if (value instanceof long[]) {
+            long[] a = (long[]) value;
+            out.writeByte(3);
+            out.writeInt(a.length);
+            for (long v : a) {
+                out.writeLong(v);
+            }
+        } else if (value instanceof double[]) {
+            double[] a = (double[]) value;
+            out.writeByte(4);
+            out.writeInt(a.length);
+            for (double v : a) {
+                out.writeDouble(v);
+            }
+        } else if (value instanceof Object[]) {
+            Object[] a = (Object[]) value;
+            out.writeByte(5);
+            out.writeInt(a.length);
+            for (Object v : a) {
+                encode(v, out);
+            }
+        } else {
+            throw new IllegalArgumentException("can not save an owner with a " + value.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package nl.tue.s2id90.group27;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.game.Game.Result;
+import org10x10.dam.game.Move;
+
+/**
+ * Headless, Texel-style tuning of the evaluation weights of MrDraughtsRoboto.
+ *
+ * <p>
+ * The tuner plays self-play games between two MrDraughtsRoboto players of a
+ * fixed search depth, and collects the quiet positions (no capture for the
+ * player to move) of these games together with the result of the game. The
+ * evaluation of MrDraughtsRoboto is linear in its weights within a game
+ * phase, so every position is stored as the material part of its evaluation
+ * plus one coefficient per weight table. The weights are then fitted by
+ * minimizing the logistic loss of sigmoid(K * evaluation) against the game
+ * results, using Adam, where the gradient is computed in parallel on all
+ * cores. The tuned tables are written to a weights file that can be read by
+ * EvalWeights.load(); the file is binary if its name ends with .bin.
+ * </p><p>
+ * With -data, the positions are not collected by playing games, but read from
+ * the shards written by SelfPlay, in the given directory, or from the given
+ * shard.
+ * </p>
+ *
+ * usage: {@code Tuner [-games n] [-depth d] [-data dir] [-iterations n]
+ * [-rate r] [-threads n] [-in weights.properties] [-out weights.properties]}
+ */
+public class Tuner {
+
+    final static int FEATURES = EvalWeights.TABLES.length;
+    final static int OPENING_PLIES = 6;   //random moves at the start of each game
+    final static int MAX_PLIES = 300;     //games that take longer are a draw
+    final static int SKIP_PLIES = 10;     //positions before this ply are not collected
+
+    //positions of the weight tables in the coefficients of a position
+    final static int KING = EvalWeights.index("KING");
+    final static int ROWMULTIPLIER = EvalWeights.index("ROWMULTIPLIER");
+    final static int MIDDLEBACKRANK = EvalWeights.index("MIDDLEBACKRANK");
+    final static int DOUBLECORNER = EvalWeights.index("DOUBLECORNER");
+    final static int CENTERCONTROL = EvalWeights.index("CENTERCONTROL");
+    final static int BALANCE = EvalWeights.index("BALANCE");
+    final static int GOLDENPIECE = EvalWeights.index("GOLDENPIECE");
+    final static int OUTPOST24 = EvalWeights.index("OUTPOST24");
+
+    private final static EvalWeights DEFAULTS = EvalWeights.defaults();
+
+    private final int threads;
+    private final ExecutorService pool;
+
+    //the collected positions, see addPosition()
+    private int size;
+    private byte[] phases = new byte[1024];
+    private int[] material = new int[1024];
+    private float[] coefficients = new float[1024 * FEATURES];
+    private float[] results = new float[1024];
+
+    Tuner(int threads) {
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * stops the threads of this tuner.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 1000, depth = 4, iterations = 2000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double rate = 2;
+        File in = null, out = new File("weights.properties"), data = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games": games = Integer.parseInt(args[++i]); break;
+                case "-depth": depth = Integer.parseInt(args[++i]); break;
+                case "-data": data = new File(args[++i]); break;
+                case "-iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "-rate": rate = Double.parseDouble(args[++i]); break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-in": in = new File(args[++i]); break;
+                case "-out": out = new File(args[++i]); break;
+                default:
+                    System.err.println("usage: Tuner [-games n] [-depth d] [-data dir] [-iterations n] [-rate r]"
+                            + " [-threads n] [-in weights.properties] [-out weights.properties]");
+                    System.exit(1);
+            }
+        }
+        EvalWeights weights = in == null ? EvalWeights.defaults() : EvalWeights.load(in);
+
+        Tuner tuner = new Tuner(threads);
+        try {
+            tuner.tune(weights, games, depth, data, iterations, rate, out);
+        } finally {
+            tuner.shutdown();
+        }
+    }
+
+    /**
+     * collects positions in self-play games, or reads them from the shards in
+     * data if it is not null, and writes the weights that fit them best to the
+     * given file.
+     *
+     * @throws IllegalStateException if no positions were collected, so that
+     * there is nothing to fit
+     */
+    void tune(EvalWeights weights, int games, int depth, File data, int iterations, double rate, File out)
+            throws IOException, InterruptedException, ExecutionException {
+        long start = System.currentTimeMillis();
+        String source;
+        if (data == null) {
+            selfPlay(games, depth);
+            source = String.format("%d games of depth %d", games, depth);
+        } else {
+            read(data);
+            source = data.getPath();
+        }
+        System.err.format("collected %d positions from %s in %d s\n",
+                size, source, (System.currentTimeMillis() - start) / 1000);
+        if (size == 0) {
+            // the loss and the gradient are means over the positions
+            throw new IllegalStateException("no positions collected from " + source + ", nothing to tune");
+        }
+
+        double[] theta = toVector(weights);
+        double k = fitScale(weights.piece, theta);
+        System.err.format("scale K = %.3g, loss = %.6f\n", k, loss(k, theta));
+        optimize(k, theta, iterations, rate);
+        double loss = loss(k, theta);
+
+        EvalWeights tuned = toWeights(weights.piece, theta);
+        if (out.getName().endsWith(".bin")) {
+            tuned.storeBinary(out);
+        } else {
+            tuned.store(out, String.format("tuned by Tuner on %d positions from %s\n"
+                    + "scale K = %.3g, loss = %.6f", size, source, k, loss));
+        }
+        System.err.format("loss = %.6f, weights written to %s\n", loss, out);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="self-play">
+    /**
+     * plays the given number of games on all threads and collects their quiet
+     * positions.
+     */
+    void selfPlay(int games, int depth) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int g = 0; g < games; g++) {
+            final long seed = g;
+            futures.add(pool.submit(() -> playGame(depth, new Random(seed))));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    /**
+     * plays one game from a random opening and adds its quiet positions. As
+     * in SelfPlay, the players have no opening book, so that the games do not
+     * depend on the book in the working directory, and return their tables to
+     * the pools after the game.
+     */
+    private void playGame(int depth, Random random) {
+        MrDraughtsRoboto white = new MrDraughtsRoboto(depth, null, null);
+        MrDraughtsRoboto black = new MrDraughtsRoboto(depth, null, null);
+
+        DraughtsState state = new DraughtsState();
+        List<float[]> positions = new ArrayList<>();
+        float result = 0.5f;
+        try {
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                List<Move> moves = state.getMoves();
+                if (moves.isEmpty()) {
+                    result = state.isWhiteToMove() ? 0 : 1; //the player to move has lost
+                    break;
+                }
+                Move m;
+                if (ply < OPENING_PLIES) {
+                    m = moves.get(random.nextInt(moves.size()));
+                } else {
+                    if (ply >= SKIP_PLIES && !moves.get(0).isCapture()) {
+                        positions.add(features(white, state));
+                    }
+                    m = (state.isWhiteToMove() ? white : black).getMove(state.clone());
+                }
+                state.doMove(m);
+            }
+        } finally {
+            white.release();
+            black.release();
+        }
+        synchronized (this) {
+            for (float[] position : positions) {
+                addPosition(position, result);
+            }
+        }
+    }
+
+    /**
+     * reads the positions of the shards of SelfPlay in the given directory, or
+     * of the given shard, one shard per thread.
+     */
+    void read(File data) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (File shard : SelfPlay.shards(data)) {
+            futures.add(pool.submit(() -> {
+                MrDraughtsRoboto bot = new MrDraughtsRoboto(1, null, null);
+                List<float[]> positions = new ArrayList<>();
+                List<Result> results = new ArrayList<>();
+                SelfPlay.read(shard, (state, value, result) -> {
+                    positions.add(features(bot, state));
+                    results.add(result);
+                });
+                bot.release();
+                synchronized (this) {
+                    for (int i = 0; i < positions.size(); i++) {
+                        addPosition(positions.get(i), results.get(i).getWhitePoints() / 2f);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    /**
+     * computes the material part of the evaluation of the given state and
+     * the coefficient of each weight table, from white's point of view.
+     *
+     * @return array with the phase, the material part and the coefficients
+     * @throws IllegalStateException if the evaluation of {@code bot} does not
+     * agree with these coefficients
+     */
+    static float[] features(MrDraughtsRoboto bot, DraughtsState state) {
+        int[] pieces = state.getPieces();
+        int[] tileCounts = new int[5];
+        long whiteMen = 0;
+        long blackMen = 0;
+        float[] c = new float[FEATURES];
+        for (int i = 1; i <= 50; i++) {
+            int piece = pieces[i];
+            tileCounts[piece]++;
+            int sign;
+            if (piece == DraughtsState.WHITEPIECE) {
+                whiteMen |= 1L << i;
+                sign = 1;
+            } else if (piece == DraughtsState.BLACKPIECE) {
+                blackMen |= 1L << i;
+                sign = -1;
+            } else {
+                continue;
+            }
+            c[ROWMULTIPLIER] += sign * MrDraughtsRoboto.rowNumber(piece, i);
+            c[CENTERCONTROL] += sign * MrDraughtsRoboto.centerControl(piece, i);
+            c[GOLDENPIECE] += MrDraughtsRoboto.isGoldenPiece(piece, i) ? sign : 0;
+            c[MIDDLEBACKRANK] += MrDraughtsRoboto.isMiddleBackrank(i) ? sign : 0;
+            c[DOUBLECORNER] += MrDraughtsRoboto.isDoubleCorner(i) ? sign : 0;
+        }
+        c[KING] = tileCounts[DraughtsState.WHITEKING] - tileCounts[DraughtsState.BLACKKING];
+        c[BALANCE] = bot.leftRightBalance(state);
+        c[OUTPOST24] = MrDraughtsRoboto.poorOutposts(whiteMen, blackMen);
+        for (Pattern p : MrDraughtsRoboto.PATTERNS) {
+            c[EvalWeights.index(p.name.toUpperCase())] = p.match(whiteMen, blackMen);
+        }
+
+        int totalPieces = tileCounts[1] + tileCounts[2] + tileCounts[3] + tileCounts[4];
+        int phase = bot.game_phase(totalPieces);
+        int men = MrDraughtsRoboto.PIECE * (tileCounts[DraughtsState.WHITEPIECE] - tileCounts[DraughtsState.BLACKPIECE]);
+
+        //the coefficients must reproduce the evaluation with the default weights
+        int value = men;
+        for (int t = 0; t < FEATURES; t++) {
+            value += (int) c[t] * DEFAULTS.get(EvalWeights.TABLES[t])[phase];
+        }
+        if (value != bot.evaluate(state)) {
+            throw new IllegalStateException("features do not match evaluate(): " + state);
+        }
+
+        float[] position = new float[FEATURES + 2];
+        position[0] = phase;
+        position[1] = men;
+        System.arraycopy(c, 0, position, 2, FEATURES);
+        return position;
+    }
+
+    private void addPosition(float[] position, float result) {
+        if (size == results.length) {
+            int capacity = 2 * size;
+            phases = Arrays.copyOf(phases, capacity);
+            material = Arrays.copyOf(material, capacity);
+            coefficients = Arrays.copyOf(coefficients, capacity * FEATURES);
+            results = Arrays.copyOf(results, capacity);
+        }
+        phases[size] = (byte) position[0];
+        material[size] = (int) position[1];
+        System.arraycopy(position, 2, coefficients, size * FEATURES, FEATURES);
+        results[size] = result;
+        size++;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="optimization">
+    /**
+     * @return the weight tables as vector, indexed by table * PHASES + phase
+     */
+    double[] toVector(EvalWeights weights) {
+        double[] theta = new double[FEATURES * EvalWeights.PHASES];
+        for (int t = 0; t < FEATURES; t++) {
+            int[] table = weights.get(EvalWeights.TABLES[t]);
+            for (int phase = 0; phase < EvalWeights.PHASES; phase++) {
+                theta[t * EvalWeights.PHASES + phase] = table[phase];
+            }
+        }
+        return theta;
+    }
+
+    EvalWeights toWeights(int piece, double[] theta) {
+        EvalWeights weights = EvalWeights.defaults();
+        weights.piece = piece;
+        for (int t = 0; t < FEATURES; t++) {
+            int[] table = new int[EvalWeights.PHASES];
+            for (int phase = 0; phase < EvalWeights.PHASES; phase++) {
+                table[phase] = (int) Math.round(theta[t * EvalWeights.PHASES + phase]);
+            }
+            weights.set(EvalWeights.TABLES[t], table);
+        }
+        return weights;
+    }
+
+    private double evaluate(int i, double[] theta) {
+        double value = material[i];
+        int offset = i * FEATURES;
+        int phase = phases[i];
+        for (int t = 0; t < FEATURES; t++) {
+            value += coefficients[offset + t] * theta[t * EvalWeights.PHASES + phase];
+        }
+        return value;
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    /**
+     * @return mean logistic loss over all positions
+     */
+    double loss(double k, double[] theta) throws InterruptedException, ExecutionException {
+        return parallel((from, to, sum) -> {
+            for (int i = from; i < to; i++) {
+                double p = sigmoid(k * evaluate(i, theta));
+                p = Math.min(Math.max(p, 1e-12), 1 - 1e-12);
+                sum[0] -= results[i] * Math.log(p) + (1 - results[i]) * Math.log(1 - p);
+            }
+        }, 1)[0] / size;
+    }
+
+    /**
+     * @return gradient of the mean logistic loss with respect to theta
+     */
+    double[] gradient(double k, double[] theta) throws InterruptedException, ExecutionException {
+        double[] gradient = parallel((from, to, sum) -> {
+            for (int i = from; i < to; i++) {
+                double error = sigmoid(k * evaluate(i, theta)) - results[i];
+                int offset = i * FEATURES;
+                int phase = phases[i];
+                for (int t = 0; t < FEATURES; t++) {
+                    sum[t * EvalWeights.PHASES + phase] += error * k * coefficients[offset + t];
+                }
+            }
+        }, theta.length);
+        for (int j = 0; j < gradient.length; j++) {
+            gradient[j] /= size;
+        }
+        return gradient;
+    }
+
+    /**
+     * finds the scale K for which the loss of the current weights is minimal,
+     * using a golden section search on log K. The expected initial scale is
+     * such that an advantage of one piece is worth a few percent.
+     */
+    double fitScale(int piece, double[] theta) throws InterruptedException, ExecutionException {
+        double a = Math.log(0.01 / piece), b = Math.log(10.0 / piece);
+        double g = (Math.sqrt(5) - 1) / 2;
+        double c = b - g * (b - a), d = a + g * (b - a);
+        for (int i = 0; i < 40; i++) {
+            if (loss(Math.exp(c), theta) < loss(Math.exp(d), theta)) {
+                b = d;
+            } else {
+                a = c;
+            }
+            c = b - g * (b - a);
+            d = a + g * (b - a);
+        }
+        return Math.exp((a + b) / 2);
+    }
+
+    /**
+     * minimizes the loss with Adam.
+     *
+     * @param rate step size, in units of the weights
+     */
+    void optimize(double k, double[] theta, int iterations, double rate)
+            throws InterruptedException, ExecutionException {
+        double beta1 = 0.9, beta2 = 0.999, epsilon = 1e-12;
+        double[] m = new double[theta.length];
+        double[] v = new double[theta.length];
+        for (int iteration = 1; iteration <= iterations; iteration++) {
+            double[] g = gradient(k, theta);
+            for (int j = 0; j < theta.length; j++) {
+                m[j] = beta1 * m[j] + (1 - beta1) * g[j];
+                v[j] = beta2 * v[j] + (1 - beta2) * g[j] * g[j];
+                double mHat = m[j] / (1 - Math.pow(beta1, iteration));
+                double vHat = v[j] / (1 - Math.pow(beta2, iteration));
+                theta[j] -= rate * mHat / (Math.sqrt(vHat) + epsilon);
+            }
+            if (iteration % 100 == 0) {
+                System.err.format("iteration %d: loss = %.6f\n", iteration, loss(k, theta));
+            }
+        }
+    }
+
+    /**
+     * a computation over the positions from (inclusive) to (exclusive) that
+     * adds its results to sum.
+     */
+    interface Chunk {
+
+        void compute(int from, int to, double[] sum);
+    }
+
+    /**
+     * runs the given computation on all positions, split over the threads.
+     *
+     * @return the element-wise sum of the results of all chunks
+     */
+    private double[] parallel(Chunk chunk, int length) throws InterruptedException, ExecutionException {
+        List<Future<double[]>> futures = new ArrayList<>();
+        int step = (size + threads - 1) / threads;
+        for (int from = 0; from < size; from += step) {
+            final int start = from, end = Math.min(size, from + step);
+            futures.add(pool.submit(() -> {
+                double[] sum = new double[length];
+                chunk.compute(start, end, sum);
+                return sum;
+            }));
+        }
+        double[] total = new double[length];
+        for (Future<double[]> f : futures) {
+            double[] sum = f.get();
+            for (int j = 0; j < length; j++) {
+                total[j] += sum[j];
+            }
+        }
+        return total;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,50 @@
+package nl.tue.s2id90.group27;
+
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * Zobrist hashing of draughts positions: every (piece, field) combination gets
+ * a random 64-bit key and the hash of a position is the xor of the keys of all
+ * pieces on the board, xor-ed with an extra key when white is to move.
+ */
+final class Zobrist {
+
+    private static final long[][] KEYS = new long[5][51]; //indexed by piece and field, see DraughtsState
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        Random random = new Random(0x2D90L);
+        for (int piece = DraughtsState.WHITEPIECE; piece <= DraughtsState.BLACKKING; piece++) {
+            for (int f = 1; f <= 50; f++) {
+                KEYS[piece][f] = random.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return hash of the pieces on the board, regardless of who is to move
+     */
+    static long hash(int[] pieces) {
+        long hash = 0;
+        for (int f = 1; f <= 50; f++) {
+            int piece = pieces[f];
+            if (piece >= DraughtsState.WHITEPIECE && piece <= DraughtsState.BLACKKING) {
+                hash ^= KEYS[piece][f];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return hash of the given state, including the player to move
+     */
+    static long hash(DraughtsState state) {
+        long hash = hash(state.getPieces());
+        return state.isWhiteToMove() ? hash ^ WHITE_TO_MOVE : hash;
+    }
+}
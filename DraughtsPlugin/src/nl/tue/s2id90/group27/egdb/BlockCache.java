@@ -0,0 +1,145 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Cache of decompressed blocks of MappedTables, shared by all tables of an
+ * Egdb. The cache is split into stripes, each with its own lock and its own
+ * least recently used order, so that search threads seldom wait for each
+ * other. A block is kept in a direct buffer of Table.BLOCK_BYTES bytes; when
+ * a stripe is full, the buffer of its least recently used block is reused.
+ * A value is read while the lock of its stripe is held, so a buffer is never
+ * reused while it is read.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class BlockCache {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    /**
+     * a stripe of the cache: the blocks in least recently used order, by the
+     * key of their table and their number.
+     */
+    private static final class Stripe extends LinkedHashMap<Long, ByteBuffer> {
+
+        private static final long serialVersionUID = 1L;
+
+        Stripe() {
+            super(16, 0.75f, true);
+        }
+    }
+
+    /**
+     * buffers for decompressing a block, per thread. The Inflater is not kept
+     * here: its native memory would only be freed when the thread and its
+     * buffers are garbage collected, so every decompression ends its own.
+     */
+    private static final class Scratch {
+
+        byte[] compressed = new byte[Table.BLOCK_BYTES];
+        final byte[] block = new byte[Table.BLOCK_BYTES];
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int blocksPerStripe;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * @param bytes the capacity of this cache, in bytes
+     */
+    BlockCache(long bytes) {
+        blocksPerStripe = (int) Math.max(1, bytes / Table.BLOCK_BYTES / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return the byte at the given position of the given block of a table,
+     * which is decompressed and cached if it is not in the cache yet
+     */
+    byte get(MappedTable table, int block, int position) {
+        Long key = key(table, block);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            ByteBuffer buffer = stripe.get(key);
+            if (buffer != null) {
+                return buffer.get(position);
+            }
+        }
+
+        // decompress outside the lock, so that other threads can use the stripe
+        Scratch s = scratch.get();
+        int length = table.blockLength(block);
+        if (s.compressed.length < length) {
+            s.compressed = new byte[length];
+        }
+        table.compressedBlock(block, s.compressed);
+        int size = table.blockSize(block);
+        Inflater inflater = new Inflater();
+        try {
+            Table.inflate(inflater, s.compressed, length, s.block, 0, size);
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("block " + block + " of " + table + " is corrupt", ex);
+        } finally {
+            inflater.end();
+        }
+
+        synchronized (stripe) {
+            ByteBuffer buffer = stripe.get(key);
+            if (buffer == null) {   // not added by another thread in the mean time
+                if (stripe.size() < blocksPerStripe) {
+                    buffer = ByteBuffer.allocateDirect(Table.BLOCK_BYTES);
+                } else {
+                    Iterator<Map.Entry<Long, ByteBuffer>> eldest = stripe.entrySet().iterator();
+                    buffer = eldest.next().getValue();
+                    eldest.remove();
+                }
+                buffer.clear();
+                buffer.put(s.block, 0, size);
+                stripe.put(key, buffer);
+            }
+            return buffer.get(position);
+        }
+    }
+
+    /**
+     * @return whether the given block of a table is in the cache; this does
+     * not change the least recently used order
+     */
+    boolean contains(MappedTable table, int block) {
+        Long key = key(table, block);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.containsKey(key);
+        }
+    }
+
+    /**
+     * @return the number of blocks in the cache
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private static Long key(MappedTable table, int block) {
+        return (long) table.id << 32 | block;
+    }
+
+    private Stripe stripe(Long key) {
+        return stripes[(int) (key * 0x9E3779B97F4A7C15L >>> (64 - STRIPE_BITS))];
+    }
+}
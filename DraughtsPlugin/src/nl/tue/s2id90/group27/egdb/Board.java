@@ -0,0 +1,235 @@
+package nl.tue.s2id90.group27.egdb;
+
+/**
+ * Bitboard move generation for the endgame database, forward and backward. A
+ * position is given by three bitboards, with bit f for field f (1..50): the
+ * white pieces, the black pieces and the kings of both colours. White is
+ * always to move; a position with black to move is first flipped, see
+ * flip().
+ * <p>
+ * The rules are those of international draughts: capturing is compulsory and
+ * the sequence that captures the most pieces must be played; men capture
+ * backwards too; captured pieces are removed after the whole sequence and may
+ * not be jumped twice; a man only becomes a king if its move ends on the last
+ * row.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class Board {
+
+    static final int NW = 0, NE = 1, SW = 2, SE = 3;
+
+    /**
+     * NEIGHBOUR[d][f]: the field next to f in direction d, or 0.
+     */
+    private static final int[][] NEIGHBOUR = new int[4][51];
+
+    /**
+     * fields on which a white man becomes a king.
+     */
+    static final long WHITE_PROMOTION = 0b111110L;
+
+    static {
+        int[] dr = {-1, -1, 1, 1}, dc = {-1, 1, -1, 1};
+        for (int f = 1; f <= 50; f++) {
+            int r = (f - 1) / 5, c = 2 * ((f - 1) % 5) + (r % 2 == 0 ? 1 : 0);
+            for (int d = 0; d < 4; d++) {
+                int r2 = r + dr[d], c2 = c + dc[d];
+                if (r2 >= 0 && r2 < 10 && c2 >= 0 && c2 < 10) {
+                    NEIGHBOUR[d][f] = 5 * r2 + c2 / 2 + 1;
+                }
+            }
+        }
+    }
+
+    private Board() {
+    }
+
+    /**
+     * @return the bitboard rotated by 180 degrees, i.e. field f becomes field
+     * 51 - f
+     */
+    static long flip(long b) {
+        return Long.reverse(b) >>> 12;
+    }
+
+    /**
+     * Collects the positions after every legal move of white, with black to
+     * move and not flipped. Positions are stored as triples (white, black,
+     * kings) in out. Different moves may lead to the same position.
+     */
+    static final class Successors {
+
+        long[] out = new long[3 * 64];
+        int size;               // number of positions in out
+        private int best;       // largest number of captures found so far
+        private long white, black, kings, empty;
+
+        /**
+         * generates the positions after the moves of white.
+         *
+         * @return the number of positions
+         */
+        int generate(long white, long black, long kings) {
+            this.white = white;
+            this.black = black;
+            this.kings = kings;
+            size = 0;
+            best = 0;
+            for (long w = white; w != 0; w &= w - 1) {
+                int f = Long.numberOfTrailingZeros(w);
+                empty = ~(white | black) & ~1L | 1L << f; // the piece leaves its field
+                if ((kings & 1L << f) != 0) {
+                    kingCaptures(f, f, 0L, 0);
+                } else {
+                    manCaptures(f, f, 0L, 0);
+                }
+            }
+            if (best == 0) {
+                long free = ~(white | black);
+                for (long w = white; w != 0; w &= w - 1) {
+                    int f = Long.numberOfTrailingZeros(w);
+                    boolean king = (kings & 1L << f) != 0;
+                    for (int d = king ? 0 : NW; d <= (king ? SE : NE); d++) {
+                        for (int t = NEIGHBOUR[d][f]; t != 0 && (free & 1L << t) != 0; t = NEIGHBOUR[d][t]) {
+                            add(f, t, 0L, king);
+                            if (!king) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return size;
+        }
+
+        /**
+         * @return the number of pieces that the moves of the last call of
+         * generate() capture, 0 if they do not capture
+         */
+        int captures() {
+            return best;
+        }
+
+        private void manCaptures(int from, int at, long captured, int n) {
+            boolean extended = false;
+            for (int d = 0; d < 4; d++) {
+                int over = NEIGHBOUR[d][at];
+                if (over == 0 || (black & ~captured & 1L << over) == 0) {
+                    continue;
+                }
+                int to = NEIGHBOUR[d][over];
+                if (to != 0 && (empty & 1L << to) != 0) {
+                    extended = true;
+                    manCaptures(from, to, captured | 1L << over, n + 1);
+                }
+            }
+            if (!extended) {
+                end(from, at, captured, n, false);
+            }
+        }
+
+        private void kingCaptures(int from, int at, long captured, int n) {
+            boolean extended = false;
+            for (int d = 0; d < 4; d++) {
+                int over = NEIGHBOUR[d][at];
+                while (over != 0 && (empty & 1L << over) != 0) {
+                    over = NEIGHBOUR[d][over];
+                }
+                if (over == 0 || (black & ~captured & 1L << over) == 0) {
+                    continue;
+                }
+                for (int to = NEIGHBOUR[d][over]; to != 0 && (empty & 1L << to) != 0; to = NEIGHBOUR[d][to]) {
+                    extended = true;
+                    kingCaptures(from, to, captured | 1L << over, n + 1);
+                }
+            }
+            if (!extended) {
+                end(from, at, captured, n, true);
+            }
+        }
+
+        private void end(int from, int to, long captured, int n, boolean king) {
+            if (n == 0 || n < best) {
+                return;
+            }
+            if (n > best) {
+                best = n;
+                size = 0;
+            }
+            add(from, to, captured, king);
+        }
+
+        private void add(int from, int to, long captured, boolean king) {
+            if (3 * size + 3 > out.length) {
+                out = java.util.Arrays.copyOf(out, 2 * out.length);
+            }
+            long w = white & ~(1L << from) | 1L << to;
+            long k = kings & ~(1L << from) & ~captured;
+            if (king || (WHITE_PROMOTION & 1L << to) != 0) {
+                k |= 1L << to;
+            }
+            out[3 * size] = w;
+            out[3 * size + 1] = black & ~captured;
+            out[3 * size + 2] = k;
+            size++;
+        }
+    }
+
+    /**
+     * Collects the positions before every move of white that leads to a given
+     * position with black to move, not flipped, and that neither captures nor
+     * promotes. These moves keep the material, so all positions have the
+     * slice of the given position. A position in which white can capture is
+     * left out, as capturing is compulsory. Positions are stored as triples
+     * (white, black, kings) in out, with white to move; they are distinct.
+     */
+    static final class Predecessors {
+
+        long[] out = new long[3 * 64];
+        int size;               // number of positions in out
+        private final Successors successors = new Successors();
+
+        /**
+         * generates the positions before the moves of white.
+         *
+         * @return the number of positions
+         */
+        int generate(long white, long black, long kings) {
+            size = 0;
+            long free = ~(white | black);
+            for (long w = white; w != 0; w &= w - 1) {
+                int t = Long.numberOfTrailingZeros(w);
+                boolean king = (kings & 1L << t) != 0;
+                if (!king && (WHITE_PROMOTION & 1L << t) != 0) {
+                    continue;   // a man that arrives here is promoted
+                }
+                // a man came from behind, a king from any direction
+                for (int d = king ? NW : SW; d <= SE; d++) {
+                    for (int f = NEIGHBOUR[d][t]; f != 0 && (free & 1L << f) != 0; f = NEIGHBOUR[d][f]) {
+                        long w2 = white & ~(1L << t) | 1L << f;
+                        long k2 = king ? kings & ~(1L << t) | 1L << f : kings;
+                        successors.generate(w2, black, k2);
+                        if (successors.captures() == 0) {
+                            add(w2, black, k2);
+                        }
+                        if (!king) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return size;
+        }
+
+        private void add(long white, long black, long kings) {
+            if (3 * size + 3 > out.length) {
+                out = java.util.Arrays.copyOf(out, 2 * out.length);
+            }
+            out[3 * size] = white;
+            out[3 * size + 1] = black;
+            out[3 * size + 2] = kings;
+            size++;
+        }
+    }
+}
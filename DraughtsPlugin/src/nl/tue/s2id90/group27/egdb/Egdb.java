@@ -0,0 +1,166 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * Endgame database: the game theoretical result, win, draw or loss, of the
+ * positions with few pieces. The tables are computed by Generator and mapped
+ * into memory from the files in a directory; their blocks are decompressed
+ * when they are first needed and kept in a cache of direct buffers, outside
+ * the heap. Probing is thread safe, so one database can be shared by all
+ * search threads.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public final class Egdb {
+
+    private static final Logger LOG = Logger.getLogger(Egdb.class.getName());
+
+    /**
+     * results of a position, for the side to move.
+     */
+    public static final int DRAW = 0, WIN = 1, LOSS = 2;
+
+    /**
+     * result of a probe of a position that is not in the database.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * value in a table of an index that is not used, see Slice.
+     */
+    static final int INVALID = 3;
+
+    /**
+     * system property with the directory of the default database.
+     */
+    public static final String DIRECTORY_PROPERTY = "egdb.dir";
+
+    /**
+     * system property with the size in MB of the block cache of the default
+     * database.
+     */
+    public static final String CACHE_PROPERTY = "egdb.cache";
+
+    private static Egdb defaultEgdb;
+
+    /**
+     * the tables by the key of their material, see Slice.key().
+     */
+    private final MappedTable[] tables = new MappedTable[10000];
+    private int size;
+    private int maxPieces;
+
+    private Egdb() {
+    }
+
+    /**
+     * maps the tables in the given directory into memory.
+     *
+     * @param cacheBytes the size of the cache of decompressed blocks
+     * @throws IOException if a table can not be read
+     */
+    public static Egdb open(File directory, long cacheBytes) throws IOException {
+        BlockCache cache = new BlockCache(cacheBytes);
+        Egdb egdb = new Egdb();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".wdl"));
+        if (files != null) {
+            for (File f : files) {
+                MappedTable t = MappedTable.open(f, cache);
+                egdb.tables[t.slice.key()] = t;
+                egdb.size++;
+                egdb.maxPieces = Math.max(egdb.maxPieces, t.slice.pieces());
+            }
+        }
+        return egdb;
+    }
+
+    /**
+     * @return the database in the directory given by the system property
+     * egdb.dir, by default the directory egdb in the working directory, with a
+     * block cache of egdb.cache MB, by default 64 MB; the database is empty if
+     * the directory does not exist or can not be read. The database is opened
+     * once and shared by all players in this virtual machine.
+     */
+    public static synchronized Egdb getDefault() {
+        if (defaultEgdb == null) {
+            File dir = new File(System.getProperty(DIRECTORY_PROPERTY, "egdb"));
+            long cacheBytes = Long.getLong(CACHE_PROPERTY, 64) << 20;
+            try {
+                defaultEgdb = open(dir, cacheBytes);
+                if (defaultEgdb.maxPieces > 0) {
+                    LOG.info(String.format("opened %d endgame tables with up to %d pieces from %s",
+                            defaultEgdb.size, defaultEgdb.maxPieces, dir));
+                }
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "unable to open the endgame database", ex);
+                defaultEgdb = new Egdb();
+            }
+        }
+        return defaultEgdb;
+    }
+
+    /**
+     * @return the largest number of pieces of a table in this database, or 0
+     * if it is empty
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return the result of the given state for the side to move: WIN, DRAW
+     * or LOSS, or UNKNOWN if the material of the state is not in this database
+     */
+    public int probe(DraughtsState state) {
+        long white = 0, black = 0, kings = 0;
+        int[] pieces = state.getPieces();
+        for (int f = 1; f <= 50; f++) {
+            switch (pieces[f]) {
+                case DraughtsState.WHITEKING:
+                    kings |= 1L << f;
+                    white |= 1L << f;
+                    break;
+                case DraughtsState.WHITEPIECE:
+                    white |= 1L << f;
+                    break;
+                case DraughtsState.BLACKKING:
+                    kings |= 1L << f;
+                    black |= 1L << f;
+                    break;
+                case DraughtsState.BLACKPIECE:
+                    black |= 1L << f;
+                    break;
+                default:
+            }
+        }
+        if (state.isWhiteToMove()) {
+            return probe(white, black, kings);
+        } else {
+            return probe(Board.flip(black), Board.flip(white), Board.flip(kings));
+        }
+    }
+
+    /**
+     * @return the result of the given position, with white to move, or
+     * UNKNOWN
+     */
+    int probe(long white, long black, long kings) {
+        if (white == 0) {
+            return LOSS;
+        }
+        if (black == 0) {
+            return WIN;
+        }
+        if (Long.bitCount(white | black) > maxPieces) {
+            return UNKNOWN;
+        }
+        MappedTable t = tables[Slice.key(Long.bitCount(white & ~kings), Long.bitCount(white & kings),
+                Long.bitCount(black & ~kings), Long.bitCount(black & kings))];
+        return t == null ? UNKNOWN : t.get(t.slice.index(white, black, kings));
+    }
+}
@@ -0,0 +1,372 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computes the endgame database for all positions with up to a given number
+ * of pieces and writes one table file per slice to a directory. The positions
+ * are solved by retrograde analysis.
+ *
+ * <p>
+ * The slices are solved by increasing number of pieces and, for the same
+ * number of pieces, by increasing number of men. A capture leads to a slice
+ * with fewer pieces and a promotion to a slice with fewer men, so the only
+ * positions that are not yet solved when a slice is solved are those of the
+ * slice itself and of its colour flipped slice, which has the same material
+ * with black to move. These two are solved together. A single forward pass
+ * generates the moves of every position once: a position is a win if a move
+ * leads to a loss for the opponent in a solved slice, and a loss if it has no
+ * move. Every other position gets the number of its moves that stay within
+ * the two slices, unless a move leads to a draw in a solved slice. Then the
+ * moves are taken back from the positions that were decided in the last
+ * step: a position before a move to a loss is a win, and a position before a
+ * move to a win loses once its count drops to 0. The positions that are not
+ * decided when a step finds nothing new are draws. Each step is split over
+ * all threads. Existing table files are loaded instead of computed again, so
+ * a database can be extended to more pieces.</p>
+ *
+ * usage: {@code Generator [-pieces n] [-threads n] [directory]}
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class Generator {
+
+    /**
+     * number of chunks per thread of a pass; the positions of a slice are not
+     * equally hard, so there are more chunks than threads.
+     */
+    final static int CHUNKS_PER_THREAD = 16;
+
+    private final File directory;
+    private final int threads;
+    private final ExecutorService pool;
+
+    /**
+     * the tables that are solved, by their material key.
+     */
+    private final Map<Integer, Table> tables = new HashMap<>();
+
+    Generator(File directory, int threads) {
+        this.directory = directory;
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pieces = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File directory = new File("egdb");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-pieces": pieces = Integer.parseInt(args[++i]); break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                default:
+                    if (args[i].startsWith("-") || i != args.length - 1) {
+                        System.err.println("usage: Generator [-pieces n] [-threads n] [directory]");
+                        System.exit(1);
+                    }
+                    directory = new File(args[i]);
+            }
+        }
+        if (pieces < 2 || pieces > 9) {
+            System.err.println("the number of pieces must be between 2 and 9");
+            System.exit(1);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("unable to create " + directory);
+            System.exit(1);
+        }
+        Generator generator = new Generator(directory, threads);
+        try {
+            generator.generate(pieces);
+        } finally {
+            generator.shutdown();
+        }
+    }
+
+    /**
+     * stops the threads of this generator.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return all slices with 2..pieces pieces and at least one piece of
+     * each colour, in the order in which they are solved
+     */
+    static List<Slice> slices(int pieces) {
+        List<Slice> slices = new ArrayList<>();
+        for (int n = 2; n <= pieces; n++) {
+            for (int w = 1; w < n; w++) {
+                for (int wm = 0; wm <= w; wm++) {
+                    for (int bm = 0; bm <= n - w; bm++) {
+                        slices.add(new Slice(wm, w - wm, bm, n - w - bm));
+                    }
+                }
+            }
+        }
+        slices.sort(Comparator.comparingInt(Slice::pieces).thenComparingInt(Slice::men));
+        return slices;
+    }
+
+    /**
+     * solves all slices with up to the given number of pieces.
+     */
+    void generate(int pieces) throws IOException, InterruptedException, ExecutionException {
+        for (Slice s : slices(pieces)) {
+            if (tables.containsKey(s.key())) {
+                continue;   // solved together with its flipped slice
+            }
+            Slice f = s.flip();
+            File file = new File(directory, s.fileName()), flippedFile = new File(directory, f.fileName());
+            if (file.exists() && flippedFile.exists()) {
+                tables.put(s.key(), Table.read(file));
+                tables.put(f.key(), Table.read(flippedFile));
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            byte[][] values = solve(s, f);
+            Table t = Table.pack(s, values[0]);
+            t.write(file);
+            tables.put(s.key(), t);
+            if (!f.equals(s)) {
+                Table ft = Table.pack(f, values[1]);
+                ft.write(flippedFile);
+                tables.put(f.key(), ft);
+            }
+            System.err.format("%s: %s, %.1f s\n", s, counts(values), (System.currentTimeMillis() - start) / 1000.0);
+        }
+    }
+
+    /**
+     * The results of one slice while it is solved, together with the counts
+     * of the successors of its undecided positions and the positions that
+     * were decided in the last step.
+     */
+    private static final class Side {
+
+        final Slice slice;
+        final byte[] values;                // DRAW means not yet decided
+        final AtomicIntegerArray counts;    // one byte per position, see count()
+        AtomicLongArray frontier;           // positions decided in the last step
+        AtomicLongArray next;               // positions decided in this step
+        Side other;                         // the flipped slice
+
+        Side(Slice slice) {
+            this.slice = slice;
+            values = new byte[(int) slice.size()];
+            counts = new AtomicIntegerArray((values.length + 3) / 4);
+            frontier = new AtomicLongArray((values.length + 63) / 64);
+            next = new AtomicLongArray(frontier.length());
+        }
+
+        /**
+         * sets the number of successors of a position in the flipped slice
+         * that are not yet known to be a win for the opponent.
+         */
+        void count(int i, int count) {
+            counts.getAndAdd(i >> 2, count << 8 * (i & 3));
+        }
+
+        /**
+         * decrements the count of a position, unless it is 0, i.e. unless
+         * the position can not be lost.
+         *
+         * @return whether the count became 0
+         */
+        boolean decrement(int i) {
+            int shift = 8 * (i & 3);
+            while (true) {
+                int old = counts.get(i >> 2);
+                int count = old >>> shift & 0xFF;
+                if (count == 0) {
+                    return false;
+                }
+                if (counts.compareAndSet(i >> 2, old, old - (1 << shift))) {
+                    return count == 1;
+                }
+            }
+        }
+
+        static void mark(AtomicLongArray set, int i) {
+            long bit = 1L << (i & 63), old;
+            do {
+                old = set.get(i >> 6);
+            } while ((old & bit) == 0 && !set.compareAndSet(i >> 6, old, old | bit));
+        }
+    }
+
+    /**
+     * part of the work of a step, on the positions start..end-1 of a slice.
+     */
+    private interface Task {
+
+        /**
+         * @return whether a position was decided
+         */
+        boolean run(Side side, int start, int end);
+    }
+
+    /**
+     * solves a slice and its flipped slice.
+     *
+     * @return the results of the positions of both slices, one per byte; the
+     * second array is the first if the slice is its own flipped slice
+     */
+    private byte[][] solve(Slice s, Slice f) throws InterruptedException, ExecutionException {
+        if (s.size() > Integer.MAX_VALUE - 64 || f.size() > Integer.MAX_VALUE - 64) {
+            throw new IllegalArgumentException(s + " is too large");
+        }
+        Side a = new Side(s);
+        Side b = f.equals(s) ? a : new Side(f);
+        a.other = b;
+        b.other = a;
+        List<Side> sides = a == b ? Arrays.asList(a) : Arrays.asList(a, b);
+        boolean decided = step(sides, this::initialize);
+        while (decided) {
+            for (Side side : sides) {
+                side.frontier = side.next;
+                side.next = new AtomicLongArray(side.frontier.length());
+            }
+            decided = step(sides, this::retract);
+        }
+        return new byte[][]{a.values, b.values};
+    }
+
+    /**
+     * runs a task on all positions of the given slices, split over all
+     * threads. The chunks are multiples of 64 positions, so that no two
+     * threads share a word of a frontier.
+     *
+     * @return whether a position was decided
+     */
+    private boolean step(List<Side> sides, Task task) throws InterruptedException, ExecutionException {
+        List<Future<Boolean>> futures = new ArrayList<>();
+        int chunks = threads * CHUNKS_PER_THREAD;
+        for (Side side : sides) {
+            int length = side.values.length;
+            int step = ((length + chunks - 1) / chunks + 63) & ~63;
+            for (int from = 0; from < length; from += step) {
+                final int start = from, end = Math.min(length, from + step);
+                futures.add(pool.submit(() -> task.run(side, start, end)));
+            }
+        }
+        boolean decided = false;
+        for (Future<Boolean> future : futures) {
+            decided |= future.get();
+        }
+        return decided;
+    }
+
+    /**
+     * Decides the positions that follow from the solved slices: a position
+     * is a win if a move leads to a loss for the opponent, and a loss if it
+     * has no move or if all moves lead to a win for the opponent. The unused
+     * indices are marked INVALID. The other positions get the number of
+     * their successors in the flipped slice, or count 0 if a move leads to a
+     * draw in a solved slice, as these positions can not be lost.
+     */
+    private boolean initialize(Side side, int start, int end) {
+        Board.Successors successors = new Board.Successors();
+        long[] position = new long[3];
+        boolean decided = false;
+        for (int i = start; i < end; i++) {
+            if (!side.slice.decode(i, position)) {
+                side.values[i] = Egdb.INVALID;
+                continue;
+            }
+            int n = successors.generate(position[0], position[1], position[2]);
+            boolean won = false, drawn = false;
+            int count = 0;
+            for (int j = 0; j < n && !won; j++) {
+                // the successor with black to move, as a position with white to move
+                long black = Board.flip(successors.out[3 * j]);
+                long white = Board.flip(successors.out[3 * j + 1]);
+                long kings = Board.flip(successors.out[3 * j + 2]);
+                if (white == 0) {
+                    won = true;
+                    continue;
+                }
+                Slice c = Slice.of(white, black, kings);
+                if (c.equals(side.other.slice)) {
+                    count++;    // a move without capture or promotion; they are distinct
+                } else {
+                    int v = tables.get(c.key()).get(c.index(white, black, kings));
+                    won = v == Egdb.LOSS;
+                    drawn |= v == Egdb.DRAW;
+                }
+            }
+            if (won || count == 0 && !drawn) {
+                side.values[i] = (byte) (won ? Egdb.WIN : Egdb.LOSS);
+                Side.mark(side.next, i);
+                decided = true;
+            } else if (!drawn) {
+                side.count(i, count);
+            }
+        }
+        return decided;
+    }
+
+    /**
+     * Takes back the moves to the positions of the frontier of a slice: the
+     * positions before a move to a loss are wins, and a position before a
+     * move to a win is a loss once all its moves in the flipped slice lead to
+     * a win. Only the position whose count becomes 0 writes the loss, and a
+     * position with a move to a loss never gets count 0, so the threads do
+     * not decide a position differently.
+     */
+    private boolean retract(Side side, int start, int end) {
+        Board.Predecessors predecessors = new Board.Predecessors();
+        Side other = side.other;
+        long[] position = new long[3];
+        boolean decided = false;
+        for (int word = start >> 6; word < (end + 63) >> 6; word++) {
+            for (long bits = side.frontier.get(word); bits != 0; bits &= bits - 1) {
+                int i = word << 6 | Long.numberOfTrailingZeros(bits);
+                side.slice.decode(i, position);
+                boolean lost = side.values[i] == Egdb.LOSS;
+                // the position with black to move that the moves of the flipped slice lead to
+                int n = predecessors.generate(Board.flip(position[1]), Board.flip(position[0]), Board.flip(position[2]));
+                for (int j = 0; j < n; j++) {
+                    int p = (int) other.slice.index(predecessors.out[3 * j], predecessors.out[3 * j + 1], predecessors.out[3 * j + 2]);
+                    if (other.values[p] != Egdb.DRAW) {
+                        continue;
+                    }
+                    if (lost || other.decrement(p)) {
+                        other.values[p] = (byte) (lost ? Egdb.WIN : Egdb.LOSS);
+                        Side.mark(other.next, p);
+                        decided = true;
+                    }
+                }
+            }
+        }
+        return decided;
+    }
+
+    /**
+     * @return a summary of the number of wins, draws and losses
+     */
+    private static String counts(byte[][] values) {
+        long[] count = new long[4];
+        for (byte v : values[0]) {
+            count[v]++;
+        }
+        return String.format("%d positions, %d wins, %d draws, %d losses",
+                count[Egdb.WIN] + count[Egdb.DRAW] + count[Egdb.LOSS],
+                count[Egdb.WIN], count[Egdb.DRAW], count[Egdb.LOSS]);
+    }
+}
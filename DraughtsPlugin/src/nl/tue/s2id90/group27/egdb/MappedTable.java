@@ -0,0 +1,153 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A table file, see Table, that is mapped into memory and decompressed one
+ * block at a time, through a BlockCache. Only the offsets of the blocks are
+ * kept on the heap. A mapping can not be larger than 2 GB, so large files are
+ * mapped as a number of regions, each holding whole blocks. Reading is thread
+ * safe: the mapped regions are read through duplicates, which have their own
+ * position.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class MappedTable {
+
+    /**
+     * largest size of a mapped region.
+     */
+    static final long REGION_BYTES = 1L << 30;
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    /**
+     * a number that identifies this table in the block cache.
+     */
+    final int id = IDS.getAndIncrement();
+    final Slice slice;
+    private final File file;
+    private final BlockCache cache;
+    private final long[] offsets;
+    private final MappedByteBuffer[] regions;
+    private final long[] regionStart;   // offset in the file of each region
+    private final int[] blockRegion;    // region of each block
+
+    private MappedTable(File file, FileChannel channel, Slice slice, long[] offsets, BlockCache cache,
+            long regionBytes) throws IOException {
+        this.file = file;
+        this.slice = slice;
+        this.offsets = offsets;
+        this.cache = cache;
+        int blocks = offsets.length - 1;
+        blockRegion = new int[blocks];
+        List<Long> starts = new ArrayList<>();
+        for (int b = 0; b < blocks; b++) {
+            if (starts.isEmpty() || offsets[b + 1] - starts.get(starts.size() - 1) > regionBytes) {
+                starts.add(offsets[b]);
+            }
+            blockRegion[b] = starts.size() - 1;
+        }
+        regions = new MappedByteBuffer[starts.size()];
+        regionStart = new long[starts.size()];
+        for (int r = 0; r < regions.length; r++) {
+            regionStart[r] = starts.get(r);
+            long end = r + 1 < regions.length ? starts.get(r + 1) : offsets[blocks];
+            regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart[r], end - regionStart[r]);
+        }
+    }
+
+    /**
+     * maps the given table file; its blocks are cached in the given cache. The
+     * mappings stay valid after the file is closed.
+     */
+    static MappedTable open(File file, BlockCache cache) throws IOException {
+        return open(file, cache, REGION_BYTES);
+    }
+
+    /**
+     * maps the given table file in regions of at most regionBytes bytes, or
+     * of one block if a block is larger.
+     */
+    static MappedTable open(File file, BlockCache cache, long regionBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), Table.HEADER_BYTES));
+            if (header.limit() < Table.HEADER_BYTES || header.getInt() != Table.MAGIC
+                    || header.getInt() != Table.VERSION) {
+                throw new IOException(file + " is not an endgame database file");
+            }
+            Slice slice = new Slice(header.get(), header.get(), header.get(), header.get());
+            if (header.getLong() != slice.size() || header.getInt() != Table.BLOCK_BYTES
+                    || header.getInt() != Table.blocks(slice)) {
+                throw new IOException(file + " does not match its header");
+            }
+            int blocks = Table.blocks(slice);
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY,
+                    Table.HEADER_BYTES, 8L * (blocks + 1));
+            long[] offsets = new long[blocks + 1];
+            index.asLongBuffer().get(offsets);
+            if (offsets[blocks] != channel.size()) {
+                throw new IOException(file + " is truncated");
+            }
+            return new MappedTable(file, channel, slice, offsets, cache, regionBytes);
+        }
+    }
+
+    /**
+     * @return the result of the position with the given index, for the side
+     * to move, one of Egdb.WIN, Egdb.DRAW, Egdb.LOSS or Egdb.INVALID
+     */
+    int get(long index) {
+        long position = index >> 2;
+        int block = (int) (position / Table.BLOCK_BYTES);
+        byte b = cache.get(this, block, (int) (position % Table.BLOCK_BYTES));
+        return b >> 2 * (int) (index & 3) & 3;
+    }
+
+    /**
+     * @return the number of mapped regions
+     */
+    int regions() {
+        return regions.length;
+    }
+
+    /**
+     * @return the number of bytes of the given block after compression
+     */
+    int blockLength(int block) {
+        return (int) (offsets[block + 1] - offsets[block]);
+    }
+
+    /**
+     * @return the number of bytes of the given block before compression
+     */
+    int blockSize(int block) {
+        long bytes = (slice.size() + 3) / 4;
+        return (int) Math.min(Table.BLOCK_BYTES, bytes - (long) block * Table.BLOCK_BYTES);
+    }
+
+    /**
+     * copies the given block, compressed, into the given array.
+     */
+    void compressedBlock(int block, byte[] compressed) {
+        int r = blockRegion[block];
+        int from = (int) (offsets[block] - regionStart[r]);
+        ByteBuffer source = regions[r].duplicate();
+        source.position(from);
+        source.get(compressed, 0, blockLength(block));
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
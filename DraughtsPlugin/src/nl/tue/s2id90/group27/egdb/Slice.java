@@ -0,0 +1,193 @@
+package nl.tue.s2id90.group27.egdb;
+
+/**
+ * The positions with a given material, white men, white kings, black men and
+ * black kings, and white to move, together with their index. The index is a
+ * perfect hash: distinct positions have distinct indices in 0..size()-1.
+ * <p>
+ * The white men are numbered by their combination of fields 6..50, the black
+ * men by their combination of the fields 1..45 that are not taken by a white
+ * man, the white kings by their combination of the fields without men, and
+ * the black kings by their combination of the remaining fields. Each
+ * combination is numbered in the combinatorial number system. Only the
+ * number of free fields for the black men depends on the white men, by the
+ * number of white men on 46..50; the index reserves room for the largest
+ * number of free fields, so a few indices are not used. These are reported by
+ * decode().</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class Slice {
+
+    /**
+     * BINOMIAL[n][k] = n over k, for n &lt;= 50 and k &lt;= 9.
+     */
+    private static final long[][] BINOMIAL = new long[51][10];
+
+    static {
+        for (int n = 0; n <= 50; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k < 10; k++) {
+                BINOMIAL[n][k] = n == 0 ? 0 : BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    private static final long WHITE_MEN_FIELDS = 0x7FFFFFFFFFFC0L;    // 6..50
+    private static final long BLACK_MEN_FIELDS = 0x3FFFFFFFFFFEL;     // 1..45
+    private static final long ALL_FIELDS = 0x7FFFFFFFFFFFEL;          // 1..50
+
+    final int whiteMen, whiteKings, blackMen, blackKings;
+    private final long blackMenSpace, whiteKingSpace, blackKingSpace;
+    private final long size;
+
+    Slice(int whiteMen, int whiteKings, int blackMen, int blackKings) {
+        this.whiteMen = whiteMen;
+        this.whiteKings = whiteKings;
+        this.blackMen = blackMen;
+        this.blackKings = blackKings;
+        int men = whiteMen + blackMen;
+        blackMenSpace = BINOMIAL[45 - Math.max(0, whiteMen - 5)][blackMen];
+        whiteKingSpace = BINOMIAL[50 - men][whiteKings];
+        blackKingSpace = BINOMIAL[50 - men - whiteKings][blackKings];
+        size = BINOMIAL[45][whiteMen] * blackMenSpace * whiteKingSpace * blackKingSpace;
+    }
+
+    /**
+     * @return the slice of the given position, with white to move
+     */
+    static Slice of(long white, long black, long kings) {
+        return new Slice(Long.bitCount(white & ~kings), Long.bitCount(white & kings),
+                Long.bitCount(black & ~kings), Long.bitCount(black & kings));
+    }
+
+    /**
+     * @return the slice with the colours swapped
+     */
+    Slice flip() {
+        return new Slice(blackMen, blackKings, whiteMen, whiteKings);
+    }
+
+    long size() {
+        return size;
+    }
+
+    int pieces() {
+        return whiteMen + whiteKings + blackMen + blackKings;
+    }
+
+    int men() {
+        return whiteMen + blackMen;
+    }
+
+    /**
+     * @return the material as a key, e.g. 2103 for two white men, a white
+     * king and three black kings
+     */
+    int key() {
+        return key(whiteMen, whiteKings, blackMen, blackKings);
+    }
+
+    static int key(int whiteMen, int whiteKings, int blackMen, int blackKings) {
+        return ((whiteMen * 10 + whiteKings) * 10 + blackMen) * 10 + blackKings;
+    }
+
+    /**
+     * @return the name of the file with the results of this slice
+     */
+    String fileName() {
+        return String.format("%04d.wdl", key());
+    }
+
+    /**
+     * @return the index of a position of this slice, with white to move
+     */
+    long index(long white, long black, long kings) {
+        long wm = white & ~kings, bm = black & ~kings, men = wm | bm;
+        long index = rank(wm, WHITE_MEN_FIELDS);
+        index = index * blackMenSpace + rank(bm, BLACK_MEN_FIELDS & ~wm);
+        index = index * whiteKingSpace + rank(white & kings, ALL_FIELDS & ~men);
+        return index * blackKingSpace + rank(black & kings, ALL_FIELDS & ~men & ~white);
+    }
+
+    /**
+     * Computes the position with the given index.
+     *
+     * @param position receives the white, black and kings bitboards
+     * @return whether the index belongs to a position
+     */
+    boolean decode(long index, long[] position) {
+        long bk = index % blackKingSpace;
+        index /= blackKingSpace;
+        long wk = index % whiteKingSpace;
+        index /= whiteKingSpace;
+        long bmRank = index % blackMenSpace;
+        long wm = unrank(index / blackMenSpace, whiteMen, WHITE_MEN_FIELDS);
+        long free = BLACK_MEN_FIELDS & ~wm;
+        if (bmRank >= BINOMIAL[Long.bitCount(free)][blackMen]) {
+            return false;
+        }
+        long bm = unrank(bmRank, blackMen, free);
+        long wkb = unrank(wk, whiteKings, ALL_FIELDS & ~wm & ~bm);
+        long bkb = unrank(bk, blackKings, ALL_FIELDS & ~wm & ~bm & ~wkb);
+        position[0] = wm | wkb;
+        position[1] = bm | bkb;
+        position[2] = wkb | bkb;
+        return true;
+    }
+
+    /**
+     * @return the number of the combination of the fields in pieces, counting
+     * only the fields in fields
+     */
+    private static long rank(long pieces, long fields) {
+        long r = 0;
+        int k = 1;
+        for (long p = pieces; p != 0; p &= p - 1) {
+            long below = (p & -p) - 1;
+            r += BINOMIAL[Long.bitCount(fields & below)][k++];
+        }
+        return r;
+    }
+
+    /**
+     * @return the combination of k of the fields in fields with number r
+     */
+    private static long unrank(long r, int k, long fields) {
+        long pieces = 0;
+        int n = Long.bitCount(fields);
+        for (; k > 0; k--) {
+            do {
+                n--;
+            } while (BINOMIAL[n][k] > r);
+            r -= BINOMIAL[n][k];
+            pieces |= nth(fields, n);
+        }
+        return pieces;
+    }
+
+    /**
+     * @return the n-th (from 0) lowest bit of fields
+     */
+    private static long nth(long fields, int n) {
+        for (; n > 0; n--) {
+            fields &= fields - 1;
+        }
+        return fields & -fields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Slice && ((Slice) o).key() == key();
+    }
+
+    @Override
+    public int hashCode() {
+        return key();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d men %d kings vs %d men %d kings", whiteMen, whiteKings, blackMen, blackKings);
+    }
+}
@@ -0,0 +1,184 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The results of the positions of one slice, with two bits per position, four
+ * positions per byte with the first position in the lowest bits. This class
+ * keeps a whole table in memory, as the generator needs it; the search reads
+ * the files through MappedTable.
+ * <p>
+ * A table file starts with a header: the magic number, the version, the
+ * material as four bytes, the number of positions, the number of bytes of a
+ * block and the number of blocks. The header is followed by the offsets in
+ * the file of the blocks, plus the offset of the end of the last block, and
+ * then by the blocks themselves. Every block holds BLOCK_BYTES bytes of the
+ * table, except for the last one, and is compressed on its own with
+ * deflate.</p>
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+final class Table {
+
+    static final int MAGIC = 0x45474442;   // "EGDB"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 28;
+
+    /**
+     * number of bytes of a block before compression; a block holds the
+     * results of four times as many positions.
+     */
+    static final int BLOCK_BYTES = 4096;
+
+    final Slice slice;
+    private final byte[] data;
+
+    private Table(Slice slice, byte[] data) {
+        this.slice = slice;
+        this.data = data;
+    }
+
+    /**
+     * @param values the results of the positions, one per byte
+     * @return the table with the given results
+     */
+    static Table pack(Slice slice, byte[] values) {
+        byte[] data = new byte[(values.length + 3) / 4];
+        for (int i = 0; i < values.length; i++) {
+            data[i >> 2] |= values[i] << 2 * (i & 3);
+        }
+        return new Table(slice, data);
+    }
+
+    /**
+     * @return the result of the position with the given index, for the side
+     * to move, one of Egdb.WIN, Egdb.DRAW, Egdb.LOSS or Egdb.INVALID
+     */
+    int get(long index) {
+        return data[(int) (index >> 2)] >> 2 * (int) (index & 3) & 3;
+    }
+
+    /**
+     * @return the number of blocks of a table of the given slice
+     */
+    static int blocks(Slice slice) {
+        long bytes = (slice.size() + 3) / 4;
+        return (int) ((bytes + BLOCK_BYTES - 1) / BLOCK_BYTES);
+    }
+
+    void write(File file) throws IOException {
+        int blocks = blocks(slice);
+        long[] offsets = new long[blocks + 1];
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] buffer = new byte[2 * BLOCK_BYTES];
+        long start = HEADER_BYTES + 8L * offsets.length;
+        for (int b = 0; b < blocks; b++) {
+            offsets[b] = start + compressed.size();
+            int from = b * BLOCK_BYTES;
+            deflater.reset();
+            deflater.setInput(data, from, Math.min(BLOCK_BYTES, data.length - from));
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        deflater.end();
+        offsets[blocks] = start + compressed.size();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(slice.whiteMen);
+            out.writeByte(slice.whiteKings);
+            out.writeByte(slice.blackMen);
+            out.writeByte(slice.blackKings);
+            out.writeLong(slice.size());
+            out.writeInt(BLOCK_BYTES);
+            out.writeInt(blocks);
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            compressed.writeTo(out);
+        }
+    }
+
+    static Table read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Slice slice = readHeader(in, file);
+            int blocks = in.readInt();
+            long[] offsets = new long[blocks + 1];
+            for (int b = 0; b <= blocks; b++) {
+                offsets[b] = in.readLong();
+            }
+            byte[] data = new byte[(int) ((slice.size() + 3) / 4)];
+            Inflater inflater = new Inflater();
+            try {
+                for (int b = 0; b < blocks; b++) {
+                    byte[] block = new byte[(int) (offsets[b + 1] - offsets[b])];
+                    in.readFully(block);
+                    int from = b * BLOCK_BYTES;
+                    inflate(inflater, block, block.length, data, from, Math.min(BLOCK_BYTES, data.length - from));
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException(file + " is corrupt", ex);
+            } finally {
+                inflater.end();
+            }
+            return new Table(slice, data);
+        }
+    }
+
+    /**
+     * decompresses a block.
+     *
+     * @throws DataFormatException if the block is corrupt or does not hold
+     * exactly length bytes
+     */
+    static void inflate(Inflater inflater, byte[] block, int blockLength, byte[] data, int offset, int length)
+            throws DataFormatException {
+        inflater.reset();
+        inflater.setInput(block, 0, blockLength);
+        int n = 0;
+        while (n < length && !inflater.finished()) {
+            if (inflater.needsInput() || inflater.needsDictionary()) {
+                break;
+            }
+            n += inflater.inflate(data, offset + n, length - n);
+        }
+        if (n != length) {
+            throw new DataFormatException("block does not hold " + length + " bytes");
+        }
+    }
+
+    /**
+     * reads the header of a table file up to the number of blocks, and checks
+     * it.
+     *
+     * @return the slice of the table
+     */
+    static Slice readHeader(DataInputStream in, File file) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException(file + " is not an endgame database file");
+        }
+        Slice slice = new Slice(in.readByte(), in.readByte(), in.readByte(), in.readByte());
+        if (in.readLong() != slice.size()) {
+            throw new IOException(file + " has a wrong number of positions");
+        }
+        if (in.readInt() != BLOCK_BYTES) {
+            throw new IOException(file + " has an unsupported block size");
+        }
+        return slice;
+    }
+}
@@ -0,0 +1,107 @@
+package nl.tue.s2id90.group27;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Accumulator: after any sequence of pushes and pops the incremental
+ * accumulator gives the same value as a full evaluation by the network, also
+ * for captures and promotions.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class AccumulatorTest {
+
+    /**
+     * @return a network with random weights, small enough that the
+     * accumulators do not overflow, as NetworkTrainer guarantees
+     */
+    static Network randomNetwork(int hidden, long seed) {
+        Random random = new Random(seed);
+        short[] weights1 = new short[Network.INPUTS * hidden];
+        short[] bias1 = new short[hidden];
+        short[] weights2 = new short[hidden];
+        for (int i = 0; i < weights1.length; i++) {
+            weights1[i] = (short) (random.nextInt(25) - 12);
+        }
+        for (int j = 0; j < hidden; j++) {
+            bias1[j] = (short) (random.nextInt(2 * Network.ONE) - Network.ONE / 2);
+            weights2[j] = (short) (random.nextInt(401) - 200);
+        }
+        return new Network(hidden, 600, weights1, bias1, weights2, random.nextInt(2001) - 1000);
+    }
+
+    /**
+     * walks through the tree of s: at every step a random move is pushed or,
+     * with probability 1/3 or at the end of the game, the last move is popped.
+     *
+     * @return the number of captures and the number of promotions that were
+     * pushed
+     */
+    private static int[] walk(Network network, DraughtsState s, int steps, long seed) {
+        Random random = new Random(seed);
+        Accumulator accumulator = new Accumulator(network);
+        accumulator.refresh(s);
+        Deque<Move> line = new ArrayDeque<>();
+        int[] count = new int[2];
+        for (int step = 0; step < steps; step++) {
+            List<Move> moves = s.getMoves();
+            if (!line.isEmpty() && (moves.isEmpty() || random.nextInt(3) == 0)) {
+                s.undoMove(line.pop());
+                accumulator.pop();
+            } else if (!moves.isEmpty()) {
+                Move m = moves.get(random.nextInt(moves.size()));
+                count[0] += m.isCapture() ? 1 : 0;
+                count[1] += m.getBeginPiece() != m.getEndPiece() ? 1 : 0;
+                accumulator.push(m);
+                s.doMove(m);
+                line.push(m);
+            }
+            assertEquals("step " + step + " in " + s, network.evaluate(s), accumulator.evaluate());
+        }
+        return count;
+    }
+
+    @Test
+    public void refreshEqualsEvaluate() {
+        Network network = randomNetwork(32, 1);
+        Accumulator accumulator = new Accumulator(network);
+        DraughtsState s = new DraughtsState();
+        accumulator.refresh(s);
+        assertEquals(network.evaluate(s), accumulator.evaluate());
+    }
+
+    @Test
+    public void pushAndPopFollowTheSearch() {
+        for (int seed = 0; seed < 4; seed++) {
+            int[] count = walk(randomNetwork(32, seed), new DraughtsState(), 20000, seed);
+            // random lines reach the end of the game, so they capture and promote
+            assertTrue(count[0] > 100);
+            assertTrue(count[1] > 0);
+        }
+    }
+
+    @Test
+    public void searchWithNetworkMatchesFullEvaluations() {
+        // MrDraughtsRoboto checks every value of its accumulator with an
+        // assertion, so this search fails if they differ
+        MrDraughtsRoboto player = new MrDraughtsRoboto(5, null, null).setNetwork(randomNetwork(16, 5));
+        try {
+            DraughtsState s = new DraughtsState();
+            for (int ply = 0; ply < 12 && !s.isEndState(); ply++) {
+                Move m = player.getMove(s.clone());
+                assertTrue(s.getMoves().contains(m));
+                s.doMove(m);
+            }
+        } finally {
+            player.release();
+        }
+    }
+}
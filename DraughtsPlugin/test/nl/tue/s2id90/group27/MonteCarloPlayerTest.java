@@ -0,0 +1,120 @@
+package nl.tue.s2id90.group27;
+
+import java.util.List;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCode;
+import org10x10.dam.game.Move;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of MonteCarloPlayer: it plays legal moves, and after a move and a
+ * reply the search goes on with the subtree of the new position.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class MonteCarloPlayerTest {
+
+    private MonteCarloPlayer player;
+
+    @Before
+    public void createPlayer() {
+        player = new MonteCarloPlayer(1, 1 << 16).setMaxPlayouts(5000);
+    }
+
+    @After
+    public void releasePlayer() {
+        player.release();
+    }
+
+    /**
+     * @return the child of node in tree with the move m, which is a move of
+     * the position of node with the given moves
+     */
+    private static int child(NodeStore tree, int node, List<Move> moves, Move m) {
+        int first = tree.firstChild.get(node);
+        for (int c = first; first > 0 && c < first + tree.childCount[node]; c++) {
+            if (m.equals(MoveCode.decode(moves, tree.move[c]))) {
+                return c;
+            }
+        }
+        throw new AssertionError(m + " is not in the tree");
+    }
+
+    /**
+     * @return the child of node in tree with the most visits
+     */
+    private static int mostVisited(NodeStore tree, int node) {
+        int first = tree.firstChild.get(node), best = first;
+        for (int c = first; c < first + tree.childCount[node]; c++) {
+            if (tree.visits.get(c) > tree.visits.get(best)) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void movesAreLegal() {
+        DraughtsState s = new DraughtsState();
+        for (int ply = 0; ply < 6; ply++) {
+            Move m = player.getMove(s.clone());
+            assertTrue(s.getMoves().contains(m));
+            s.doMove(m);
+        }
+    }
+
+    @Test
+    public void reuseFindsThePositionTwoPliesDown() {
+        DraughtsState s = new DraughtsState();
+        Move m = player.getMove(s.clone());
+        NodeStore tree = player.tree();
+        int node = child(tree, 0, s.getMoves(), m);
+        s.doMove(m);
+        int reply = mostVisited(tree, node);
+        assertTrue(tree.visits.get(reply) > 1);
+        s.doMove(MoveCode.decode(s.getMoves(), tree.move[reply]));
+
+        // the grandchild and its children, as they were before the reuse
+        int visits = tree.visits.get(reply);
+        long score = tree.score.get(reply);
+        int first = tree.firstChild.get(reply), n = tree.childCount[reply];
+        int[] childVisits = new int[n];
+        for (int i = 0; i < n; i++) {
+            childVisits[i] = tree.visits.get(first + i);
+        }
+
+        int kept = player.reuse(s.clone());
+        tree = player.tree();
+        assertTrue(kept > n);
+        assertEquals(kept, tree.size());
+        assertEquals(visits, tree.visits.get(0));
+        assertEquals(score, tree.score.get(0));
+        assertEquals(n, tree.childCount[0]);
+        for (int i = 0; i < n; i++) {
+            assertEquals(childVisits[i], tree.visits.get(tree.firstChild.get(0) + i));
+        }
+        // the moves of the kept children are moves of the new root
+        List<Move> moves = s.getMoves();
+        for (int i = 0; i < n; i++) {
+            assertTrue(moves.contains(MoveCode.decode(moves, tree.move[tree.firstChild.get(0) + i])));
+        }
+    }
+
+    @Test
+    public void otherPositionsClearTheTree() {
+        DraughtsState s = new DraughtsState();
+        player.getMove(s.clone());
+        int size = player.tree().size();
+        assertEquals(size, player.reuse(s.clone()));     // the same position
+        // a position three plies down
+        for (int ply = 0; ply < 3; ply++) {
+            s.doMove(s.getMoves().get(0));
+        }
+        assertEquals(0, player.reuse(s.clone()));
+        assertEquals(1, player.tree().size());
+    }
+}
@@ -0,0 +1,95 @@
+package nl.tue.s2id90.group27;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of NodeStore: children are added to leaves only, and a copied subtree
+ * keeps the moves, visits and scores of its nodes.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class NodeStoreTest {
+
+    /**
+     * adds children with codes base + 1, ..., base + n to node, with
+     * visits and scores that follow from their codes.
+     *
+     * @return the first child
+     */
+    private static int expand(NodeStore store, int node, int base, int n) {
+        int[] codes = new int[n];
+        for (int i = 0; i < n; i++) {
+            codes[i] = base + i + 1;
+        }
+        assertTrue(store.expand(node, codes));
+        int first = store.firstChild.get(node);
+        for (int i = 0; i < n; i++) {
+            store.visits.set(first + i, 10 * codes[i]);
+            store.score.set(first + i, 1000L * codes[i]);
+        }
+        return first;
+    }
+
+    private static void assertSameNode(NodeStore from, int a, NodeStore to, int b) {
+        assertEquals(from.move[a], to.move[b]);
+        assertEquals(from.visits.get(a), to.visits.get(b));
+        assertEquals(from.score.get(a), to.score.get(b));
+        int n = from.firstChild.get(a) > 0 ? from.childCount[a] : 0;
+        assertEquals(n, to.firstChild.get(b) > 0 ? to.childCount[b] : 0);
+    }
+
+    @Test
+    public void onlyLeavesAreExpanded() {
+        NodeStore store = new NodeStore(16);
+        int first = expand(store, 0, 0, 3);
+        assertEquals(4, store.size());
+        assertFalse(store.expand(0, new int[]{7}));
+        // more children than fit
+        assertFalse(store.expand(first, new int[13]));
+        assertEquals(NodeStore.LEAF, store.firstChild.get(first));
+        assertEquals(4, store.size());
+        store.clear();
+        assertEquals(1, store.size());
+        assertEquals(NodeStore.LEAF, store.firstChild.get(0));
+    }
+
+    @Test
+    public void copyKeepsVisitsAndScores() {
+        NodeStore store = new NodeStore(64), to = new NodeStore(64);
+        int first = expand(store, 0, 0, 3);
+        int second = expand(store, first + 1, 10, 4);
+        int third = expand(store, second + 2, 20, 2);
+        expand(store, first + 2, 30, 5);
+
+        assertEquals(1 + 4 + 2, store.copy(first + 1, to));
+        // the move of the new root is not kept, as it has no parent
+        assertEquals(store.visits.get(first + 1), to.visits.get(0));
+        assertEquals(store.score.get(first + 1), to.score.get(0));
+        assertEquals(4, to.childCount[0]);
+        int copy = to.firstChild.get(0);
+        for (int i = 0; i < 4; i++) {
+            assertSameNode(store, second + i, to, copy + i);
+        }
+        int grandCopy = to.firstChild.get(copy + 2);
+        for (int i = 0; i < 2; i++) {
+            assertSameNode(store, third + i, to, grandCopy + i);
+        }
+        // the copy can be searched further
+        assertTrue(to.expand(copy, new int[]{99}));
+    }
+
+    @Test
+    public void copyKeepsTheNodesThatFit() {
+        NodeStore store = new NodeStore(64), to = new NodeStore(6);
+        int first = expand(store, 0, 0, 3);
+        expand(store, first, 10, 2);
+        expand(store, first + 1, 20, 4);
+        // the root, its 3 children and the first 2 grandchildren
+        assertEquals(6, store.copy(0, to));
+        assertSameNode(store, first, to, to.firstChild.get(0));
+        assertEquals(NodeStore.LEAF, to.firstChild.get(to.firstChild.get(0) + 1));
+    }
+}
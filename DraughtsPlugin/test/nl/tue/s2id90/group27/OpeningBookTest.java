@@ -0,0 +1,126 @@
+package nl.tue.s2id90.group27;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of OpeningBookBuilder and OpeningBook: a book that is built from a
+ * small archive probes back to the legal moves of the archive, with the
+ * weights that follow from their games and points.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class OpeningBookTest {
+
+    private static File archive;
+
+    @BeforeClass
+    public static void writeArchive() throws IOException {
+        archive = File.createTempFile("games", ".pdn");
+        try (PrintWriter out = new PrintWriter(archive, "UTF-8")) {
+            out.println("1. 32-28 19-23 2-0");
+            out.println();
+            out.println("1. 32-28 18-23 1-1");
+            out.println();
+            out.println("1. 33-28 19-23 0-2");
+            out.println();
+            out.println("1. 32-28 19-23 0-2");
+            out.println();
+            out.println("1. 31-27 16-21 *");   // without a result, so skipped
+            out.println();
+        }
+    }
+
+    @AfterClass
+    public static void deleteArchive() {
+        archive.delete();
+    }
+
+    private static OpeningBook build(int minGames) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(16);
+        builder.read(archive);
+        File file = File.createTempFile("book", ".bin");
+        try {
+            builder.write(file, minGames);
+            return OpeningBook.open(file);
+        } finally {
+            file.delete();  // the mapping stays valid
+        }
+    }
+
+    /**
+     * @return the legal move from field from to field to in s
+     */
+    private static Move move(DraughtsState s, int from, int to) {
+        for (Move m : s.getMoves()) {
+            if (m.getBeginField() == from && m.getEndField() == to) {
+                return m;
+            }
+        }
+        throw new AssertionError(from + "-" + to + " is not legal in " + s);
+    }
+
+    @Test
+    public void weightsFollowFromGamesAndPoints() throws IOException {
+        OpeningBook book = build(1);
+        assertEquals(5, book.size());
+        DraughtsState s = new DraughtsState();
+        // 32-28: 3 games, 3 points, weight 3 (4/8)^2; 33-28: 1 game, 0 points, weight 1 (1/4)^2
+        assertEquals(65535, book.weight(s, move(s, 32, 28)));
+        assertEquals(Math.round(65535 * 0.0625 / 0.75), book.weight(s, move(s, 33, 28)));
+        assertEquals(0, book.weight(s, move(s, 31, 27)));
+        s.doMove(move(s, 32, 28));
+        // for black, 19-23: 2 games, 2 points, weight 2 (3/6)^2; 18-23: 1 game, 1 point, weight 1 (2/4)^2
+        assertEquals(65535, book.weight(s, move(s, 19, 23)));
+        assertEquals(Math.round(65535 * 0.25 / 0.5), book.weight(s, move(s, 18, 23)));
+    }
+
+    @Test
+    public void movesOfTooFewGamesAreLeftOut() throws IOException {
+        OpeningBook book = build(2);
+        assertEquals(2, book.size());
+        DraughtsState s = new DraughtsState();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(move(s, 32, 28), book.probe(s));
+        }
+        s.doMove(move(s, 32, 28));
+        assertEquals(move(s, 19, 23), book.probe(s));
+    }
+
+    @Test
+    public void probeChoosesLegalMovesInProportionToTheirWeights() throws IOException {
+        OpeningBook book = build(1);
+        DraughtsState s = new DraughtsState();
+        Move often = move(s, 32, 28), seldom = move(s, 33, 28);
+        int n = 20000, seldomCount = 0;
+        for (int i = 0; i < n; i++) {
+            Move m = book.probe(s);
+            assertTrue(s.getMoves().contains(m));
+            assertTrue(m.equals(often) || m.equals(seldom));
+            if (m.equals(seldom)) {
+                seldomCount++;
+            }
+        }
+        double expected = 5461.0 / (65535 + 5461);
+        assertEquals(expected, (double) seldomCount / n, 0.01);
+    }
+
+    @Test
+    public void positionsOutsideTheBookAreNotFound() throws IOException {
+        OpeningBook book = build(1);
+        DraughtsState s = new DraughtsState();
+        s.doMove(move(s, 31, 27));
+        assertNull(book.probe(s));
+        s.doMove(move(s, 19, 23));
+        assertNull(book.probe(s));
+    }
+}
@@ -0,0 +1,118 @@
+package nl.tue.s2id90.group27;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Pattern and of the outpost term that uses it: the bitmask patterns
+ * give the same result as the field lists they replace.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class PatternTest {
+
+    @Test
+    public void maskAndMirror() {
+        assertEquals(1L << 24 | 1L << 50, Pattern.mask(24, 50));
+        assertEquals(Pattern.mask(27, 1), Pattern.mirror(Pattern.mask(24, 50)));
+        assertEquals(MrDraughtsRoboto.BLACK_OUTPOST, Pattern.mirror(MrDraughtsRoboto.WHITE_OUTPOST));
+        assertEquals(Pattern.mask(46, 47, 48, 41, 42, 37, 38), MrDraughtsRoboto.BLACK_OUTPOST_ATTACK);
+        assertEquals(Pattern.mask(28, 16, 11, 7, 6, 2, 1), MrDraughtsRoboto.BLACK_OUTPOST_DEFENSE);
+    }
+
+    @Test
+    public void matchNeedsAllFields() {
+        Pattern p = new Pattern("triangle", new int[4], 28, 32, 33);
+        assertEquals(1, p.match(Pattern.mask(28, 32, 33, 40), 0));
+        assertEquals(0, p.match(Pattern.mask(28, 32), 0));
+        assertEquals(-1, p.match(0, Pattern.mask(23, 19, 18)));
+        assertEquals(0, p.match(Pattern.mask(28, 32, 33), Pattern.mask(23, 19, 18)));
+    }
+
+    @Test
+    public void outpostsOfInitialPosition() {
+        assertEquals(poorOutposts(new DraughtsState().getPieces()), poorOutposts(new DraughtsState()));
+    }
+
+    @Test
+    public void outpostsEqualFieldLists() {
+        Random random = new Random(24);
+        int poor = 0;
+        for (int n = 0; n < 20000; n++) {
+            int[] pieces = new int[51];
+            for (int f = 1; f <= 50; f++) {
+                int r = random.nextInt(8);
+                pieces[f] = r < 5 ? r : DraughtsState.EMPTY;
+            }
+            // an outpost is where the term is decided, so occupy it often
+            if (random.nextBoolean()) {
+                pieces[24] = DraughtsState.WHITEPIECE;
+            }
+            if (random.nextBoolean()) {
+                pieces[27] = DraughtsState.BLACKPIECE;
+            }
+            int expected = poorOutposts(pieces);
+            assertEquals(Arrays.toString(pieces), expected, MrDraughtsRoboto.poorOutposts(men(pieces, DraughtsState.WHITEPIECE), men(pieces, DraughtsState.BLACKPIECE)));
+            poor += Math.abs(expected);
+        }
+        assertTrue(poor > 0);
+    }
+
+    private static int poorOutposts(DraughtsState s) {
+        int[] pieces = s.getPieces();
+        return MrDraughtsRoboto.poorOutposts(men(pieces, DraughtsState.WHITEPIECE), men(pieces, DraughtsState.BLACKPIECE));
+    }
+
+    /**
+     * @return bitboard of the fields that hold the given piece
+     */
+    private static long men(int[] pieces, int piece) {
+        long men = 0;
+        for (int f = 1; f <= 50; f++) {
+            if (pieces[f] == piece) {
+                men |= 1L << f;
+            }
+        }
+        return men;
+    }
+
+    /**
+     * the outpost term as it was computed with lists of fields.
+     *
+     * @return number of poorly defended white outposts minus the number of
+     * poorly defended black outposts
+     */
+    private static int poorOutposts(int[] pieces) {
+        int outposts = 0;
+        if (pieces[24] == DraughtsState.WHITEPIECE) {
+            if ((countFields(pieces, Arrays.asList(29, 33, 34), DraughtsState.WHITEPIECE) <= 1)
+                    || countFields(pieces, Arrays.asList(3, 4, 5, 9, 10, 13, 14), DraughtsState.BLACKPIECE)
+                    > countFields(pieces, Arrays.asList(23, 35, 40, 44, 45, 49, 50), DraughtsState.WHITEPIECE)) {
+                outposts++;
+            }
+        }
+        if (pieces[27] == DraughtsState.BLACKPIECE) {
+            if ((countFields(pieces, Arrays.asList(17, 21, 22), DraughtsState.BLACKPIECE) <= 1)
+                    || countFields(pieces, Arrays.asList(46, 47, 48, 41, 42, 37, 38), DraughtsState.WHITEPIECE)
+                    > countFields(pieces, Arrays.asList(28, 16, 11, 7, 6, 2, 1), DraughtsState.BLACKPIECE)) {
+                outposts--;
+            }
+        }
+        return outposts;
+    }
+
+    private static int countFields(int[] board, List<Integer> fields, int color) {
+        int count = 0;
+        for (int i : fields) {
+            if (board[i] == color) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
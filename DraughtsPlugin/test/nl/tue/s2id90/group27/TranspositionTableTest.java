@@ -0,0 +1,186 @@
+package nl.tue.s2id90.group27;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of TranspositionTable: entries are found by their whole key, a new
+ * entry replaces the shallowest or oldest entry of its bucket, and snapshots
+ * are only loaded by the player that saved them.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class TranspositionTableTest {
+
+    private static final int BITS = 4;
+
+    /**
+     * @return a key in the same bucket as key 0x1234, which differs from it in
+     * the given high bits
+     */
+    private static long key(long high) {
+        return high << 32 | 0x1234;
+    }
+
+    private static void store(TranspositionTable tt, long key, int depth) {
+        tt.store(key, depth * 10, depth, TranspositionTable.EXACT, (short) depth);
+    }
+
+    private static boolean contains(TranspositionTable tt, long key) {
+        return tt.probe(key) != TranspositionTable.MISS;
+    }
+
+    @Test
+    public void storedEntriesAreFound() {
+        TranspositionTable tt = new TranspositionTable(BITS);
+        tt.store(key(1), -123, 7, TranspositionTable.LOWER, (short) 0x1234);
+        long d = tt.probe(key(1));
+        assertEquals(-123, TranspositionTable.value(d));
+        assertEquals(7, TranspositionTable.depth(d));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.kind(d));
+        assertEquals(0x1234, TranspositionTable.move(d));
+    }
+
+    @Test
+    public void keysAreVerified() {
+        TranspositionTable tt = new TranspositionTable(BITS);
+        store(tt, key(1), 5);
+        // same bucket, other key
+        assertFalse(contains(tt, key(2)));
+        assertFalse(contains(tt, key(1) ^ 1L << 63));
+        assertTrue(contains(tt, key(1)));
+        tt.clear();
+        assertFalse(contains(tt, key(1)));
+    }
+
+    @Test
+    public void storingAgainKeepsTheBestMove() {
+        TranspositionTable tt = new TranspositionTable(BITS);
+        tt.store(key(1), 10, 3, TranspositionTable.EXACT, (short) 77);
+        tt.store(key(1), 20, 4, TranspositionTable.UPPER, (short) 0);
+        long d = tt.probe(key(1));
+        assertEquals(20, TranspositionTable.value(d));
+        assertEquals(4, TranspositionTable.depth(d));
+        assertEquals(77, TranspositionTable.move(d));
+        // the bucket still has room for another position
+        store(tt, key(2), 1);
+        assertTrue(contains(tt, key(1)));
+        assertTrue(contains(tt, key(2)));
+    }
+
+    @Test
+    public void shallowestEntryIsReplaced() {
+        TranspositionTable tt = new TranspositionTable(BITS);
+        store(tt, key(1), 10);
+        store(tt, key(2), 5);
+        store(tt, key(3), 7);
+        assertTrue(contains(tt, key(1)));
+        assertFalse(contains(tt, key(2)));
+        assertTrue(contains(tt, key(3)));
+        store(tt, key(4), 1);
+        assertTrue(contains(tt, key(1)));
+        assertFalse(contains(tt, key(3)));
+        assertTrue(contains(tt, key(4)));
+    }
+
+    @Test
+    public void oldEntriesAreReplaced() {
+        TranspositionTable tt = new TranspositionTable(BITS);
+        store(tt, key(1), 10);
+        tt.newSearch();
+        tt.newSearch();
+        // key 1 is two searches old: 10 - 2 * 8 plies
+        store(tt, key(2), 1);
+        store(tt, key(3), 1);
+        assertFalse(contains(tt, key(1)));
+        assertTrue(contains(tt, key(2)));
+        assertTrue(contains(tt, key(3)));
+    }
+
+    @Test
+    public void probedEntriesDoNotAge() {
+        TranspositionTable tt = new TranspositionTable(BITS);
+        store(tt, key(1), 10);
+        tt.newSearch();
+        tt.newSearch();
+        assertTrue(contains(tt, key(1)));   // used in this search
+        store(tt, key(2), 1);
+        store(tt, key(3), 1);
+        assertTrue(contains(tt, key(1)));
+        assertFalse(contains(tt, key(2)));
+        assertTrue(contains(tt, key(3)));
+    }
+
+    @Test
+    public void snapshotIsOnlyLoadedByItsOwner() throws IOException {
+        File file = Files.createTempFile("tt-", ".bin").toFile();
+        try {
+            int[] weights = {1, 2, 3};
+            TranspositionTable tt = TranspositionTable.acquire(BITS, 42, weights, null, new double[]{1.5});
+            tt.clear();
+            store(tt, key(1), 6);
+            tt.save(file);
+            tt.release();
+
+            TranspositionTable same = new TranspositionTable(BITS);
+            same.load(file, 42, new int[]{1, 2, 3}, null, new double[]{1.5});
+            assertEquals(6, TranspositionTable.depth(same.probe(key(1))));
+
+            // the same fingerprint, but other weights or parameters
+            TranspositionTable other = new TranspositionTable(BITS);
+            other.load(file, 42, new int[]{1, 2, 4}, null, new double[]{1.5});
+            assertFalse(contains(other, key(1)));
+            other.load(file, 42, new int[]{1, 2, 3}, null, null);
+            assertFalse(contains(other, key(1)));
+            other.load(file, 43, new int[]{1, 2, 3}, null, new double[]{1.5});
+            assertFalse(contains(other, key(1)));
+            // another size
+            TranspositionTable larger = new TranspositionTable(BITS + 1);
+            larger.load(file, 42, new int[]{1, 2, 3}, null, new double[]{1.5});
+            assertFalse(contains(larger, key(1)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void snapshotIsSavedWhenAskedOnly() throws IOException {
+        File dir = Files.createTempDirectory("tt").toFile();
+        String old = System.getProperty(TranspositionTable.SNAPSHOT_PROPERTY);
+        System.setProperty(TranspositionTable.SNAPSHOT_PROPERTY, dir.getPath());
+        try {
+            TranspositionTable tt = TranspositionTable.acquire(BITS + 2, 7, new int[]{7});
+            store(tt, key(1), 3);
+            tt.release();
+            assertEquals(0, dir.listFiles().length);
+            tt = TranspositionTable.acquire(BITS + 2, 7, new int[]{7});
+            assertTrue(contains(tt, key(1)));  // from the pool
+            tt.saveSnapshot();
+            tt.release();
+            assertEquals(1, dir.listFiles().length);
+        } finally {
+            if (old == null) {
+                System.clearProperty(TranspositionTable.SNAPSHOT_PROPERTY);
+            } else {
+                System.setProperty(TranspositionTable.SNAPSHOT_PROPERTY, old);
+            }
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void ownersOfDifferentTypesEncodeDifferently() {
+        assertFalse(java.util.Arrays.equals(TranspositionTable.encode(new Object[]{new int[]{1}}),
+                TranspositionTable.encode(new Object[]{new long[]{1}})));
+        assertFalse(java.util.Arrays.equals(TranspositionTable.encode(new Object[]{null, new short[0]}),
+                TranspositionTable.encode(new Object[]{new short[0], null})));
+    }
+}
@@ -0,0 +1,90 @@
+package nl.tue.s2id90.group27;
+
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests of Zobrist: the hash of a position is the xor of the keys of its
+ * pieces, so it can be updated incrementally with the pieces that a move
+ * changes.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class ZobristTest {
+
+    /**
+     * @return the key of a single piece on a single field
+     */
+    private static long key(int piece, int field) {
+        int[] pieces = new int[51];
+        pieces[field] = piece;
+        return Zobrist.hash(pieces);
+    }
+
+    @Test
+    public void emptyBoardHasHashZero() {
+        assertEquals(0, Zobrist.hash(new int[51]));
+    }
+
+    @Test
+    public void incrementalUpdateEqualsFullHash() {
+        Random random = new Random(27);
+        for (int game = 0; game < 20; game++) {
+            DraughtsState s = new DraughtsState();
+            long hash = Zobrist.hash(s.getPieces());
+            for (int ply = 0; ply < 120 && !s.isEndState(); ply++) {
+                int[] before = s.getPieces().clone();
+                List<Move> moves = s.getMoves();
+                s.doMove(moves.get(random.nextInt(moves.size())));
+                int[] after = s.getPieces();
+                for (int f = 1; f <= 50; f++) {
+                    if (before[f] != after[f]) {
+                        hash ^= key(before[f], f) ^ key(after[f], f);
+                    }
+                }
+                assertEquals("ply " + ply + " of game " + game, Zobrist.hash(after), hash);
+            }
+        }
+    }
+
+    @Test
+    public void transpositionsHaveEqualHashes() {
+        DraughtsState a = new DraughtsState(), b = new DraughtsState();
+        play(a, 32, 28, 20, 25, 31, 27);
+        play(b, 31, 27, 20, 25, 32, 28);
+        assertEquals(Zobrist.hash(a), Zobrist.hash(b));
+    }
+
+    @Test
+    public void playerToMoveIsOneKey() {
+        DraughtsState s = new DraughtsState();
+        long whiteToMove = Zobrist.hash(s) ^ Zobrist.hash(s.getPieces());
+        assertNotEquals(0, whiteToMove);
+        play(s, 32, 28);
+        assertEquals(Zobrist.hash(s.getPieces()), Zobrist.hash(s));
+        play(s, 19, 23);
+        assertEquals(Zobrist.hash(s.getPieces()) ^ whiteToMove, Zobrist.hash(s));
+    }
+
+    /**
+     * plays the moves with the given begin and end fields.
+     */
+    private static void play(DraughtsState s, int... fields) {
+        for (int i = 0; i < fields.length; i += 2) {
+            Move move = null;
+            for (Move m : s.getMoves()) {
+                if (m.getBeginField() == fields[i] && m.getEndField() == fields[i + 1]) {
+                    move = m;
+                }
+            }
+            assertNotNull(fields[i] + "-" + fields[i + 1], move);
+            s.doMove(move);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Generator: every result that the retrograde analysis finds agrees
+ * with the results of the successors of the position, and moves that are
+ * taken back lead to the position again.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class GeneratorTest {
+
+    @Test
+    public void resultsFollowFromSuccessors() throws Exception {
+        File directory = Files.createTempDirectory("egdb").toFile();
+        Generator generator = new Generator(directory, 2);
+        try {
+            generator.generate(3);
+        } finally {
+            generator.shutdown();
+        }
+        Map<Integer, Table> tables = new HashMap<>();
+        for (File f : directory.listFiles()) {
+            Table t = Table.read(f);
+            tables.put(t.slice.key(), t);
+            f.delete();
+        }
+        directory.delete();
+        assertEquals(Generator.slices(3).size(), tables.size());
+
+        Board.Successors successors = new Board.Successors();
+        long[] position = new long[3];
+        long[] count = new long[3];
+        for (Table t : tables.values()) {
+            for (long i = 0; i < t.slice.size(); i++) {
+                if (!t.slice.decode(i, position)) {
+                    assertEquals(Egdb.INVALID, t.get(i));
+                    continue;
+                }
+                int n = successors.generate(position[0], position[1], position[2]);
+                boolean win = false, loss = true;
+                for (int j = 0; j < n; j++) {
+                    long black = Board.flip(successors.out[3 * j]);
+                    long white = Board.flip(successors.out[3 * j + 1]);
+                    long kings = Board.flip(successors.out[3 * j + 2]);
+                    int v = white == 0 ? Egdb.LOSS : tables.get(Slice.of(white, black, kings).key())
+                            .get(Slice.of(white, black, kings).index(white, black, kings));
+                    win |= v == Egdb.LOSS;
+                    loss &= v == Egdb.WIN;
+                }
+                int expected = win ? Egdb.WIN : loss ? Egdb.LOSS : Egdb.DRAW;
+                assertEquals(t.slice + " index " + i, expected, t.get(i));
+                count[expected]++;
+            }
+        }
+        assertTrue(count[Egdb.WIN] > 0 && count[Egdb.DRAW] > 0 && count[Egdb.LOSS] > 0);
+    }
+
+    @Test
+    public void predecessorsLeadToThePosition() {
+        Board.Successors successors = new Board.Successors();
+        Board.Predecessors predecessors = new Board.Predecessors();
+        long[] position = new long[3];
+        for (Slice s : new Slice[]{new Slice(1, 1, 1, 1), new Slice(2, 0, 1, 1), new Slice(0, 2, 2, 0)}) {
+            for (long i = 0; i < s.size(); i += 7) {
+                if (!s.decode(i, position)) {
+                    continue;
+                }
+                // position is the result of a move of white, with black to move
+                int n = predecessors.generate(position[0], position[1], position[2]);
+                for (int j = 0; j < n; j++) {
+                    long w = predecessors.out[3 * j], b = predecessors.out[3 * j + 1], k = predecessors.out[3 * j + 2];
+                    assertEquals(s, Slice.of(w, b, k));
+                    int m = successors.generate(w, b, k);
+                    assertEquals(0, successors.captures());
+                    boolean found = false;
+                    for (int x = 0; x < m; x++) {
+                        found |= successors.out[3 * x] == position[0] && successors.out[3 * x + 1] == position[1]
+                                && successors.out[3 * x + 2] == position[2];
+                    }
+                    assertTrue(s + " index " + i, found);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyMoveThatKeepsTheMaterialIsTakenBack() {
+        Board.Successors successors = new Board.Successors();
+        Board.Predecessors predecessors = new Board.Predecessors();
+        long[] position = new long[3];
+        int moves = 0;
+        for (Slice s : new Slice[]{new Slice(1, 1, 1, 1), new Slice(2, 0, 1, 1), new Slice(0, 2, 2, 0)}) {
+            for (long i = 0; i < s.size(); i += 7) {
+                if (!s.decode(i, position)) {
+                    continue;
+                }
+                int n = successors.generate(position[0], position[1], position[2]);
+                for (int j = 0; j < n; j++) {
+                    long w = successors.out[3 * j], b = successors.out[3 * j + 1], k = successors.out[3 * j + 2];
+                    if (!s.equals(Slice.of(w, b, k))) {
+                        continue;   // a capture or a promotion
+                    }
+                    moves++;
+                    int m = predecessors.generate(w, b, k);
+                    boolean found = false;
+                    for (int x = 0; x < m; x++) {
+                        found |= predecessors.out[3 * x] == position[0] && predecessors.out[3 * x + 1] == position[1]
+                                && predecessors.out[3 * x + 2] == position[2];
+                    }
+                    assertTrue(s + " index " + i, found);
+                }
+            }
+        }
+        assertTrue(moves > 0);
+    }
+}
@@ -0,0 +1,129 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of MappedTable and BlockCache: a table that is written and mapped
+ * again gives the same results as the table in memory, also across the edges
+ * of blocks and regions and when blocks are evicted from the cache.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class MappedTableTest {
+
+    private static final Slice SLICE = new Slice(0, 1, 0, 3);
+    private static Table table;
+    private static File file;
+
+    @BeforeClass
+    public static void writeTable() throws IOException {
+        // random results, so that the blocks do not compress to almost nothing
+        Random random = new Random(42);
+        byte[] values = new byte[(int) SLICE.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (byte) random.nextInt(4);
+        }
+        table = Table.pack(SLICE, values);
+        file = File.createTempFile("egdb", ".wdl");
+        table.write(file);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        file.delete();
+    }
+
+    @Test
+    public void tableRoundTrips() throws IOException {
+        Table read = Table.read(file);
+        assertEquals(SLICE, read.slice);
+        for (long i = 0; i < SLICE.size(); i++) {
+            assertEquals("index " + i, table.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    public void mappedTableEqualsTableAcrossRegions() throws IOException {
+        // regions of two or three blocks, so that the table has many regions
+        MappedTable mapped = MappedTable.open(file, new BlockCache(1L << 24), 3 * Table.BLOCK_BYTES);
+        assertEquals(SLICE, mapped.slice);
+        assertTrue(Table.blocks(SLICE) > 10);
+        assertTrue(mapped.regions() > 5);
+        for (long i = 0; i < SLICE.size(); i++) {
+            assertEquals("index " + i, table.get(i), mapped.get(i));
+        }
+    }
+
+    @Test
+    public void edgesOfBlocks() throws IOException {
+        MappedTable mapped = MappedTable.open(file, new BlockCache(1L << 24), Table.BLOCK_BYTES);
+        long perBlock = 4L * Table.BLOCK_BYTES;
+        for (int b = 1; b < Table.blocks(SLICE); b++) {
+            for (long i = b * perBlock - 5; i < b * perBlock + 5; i++) {
+                assertEquals("index " + i, table.get(i), mapped.get(i));
+            }
+        }
+        assertEquals(table.get(SLICE.size() - 1), mapped.get(SLICE.size() - 1));
+        assertEquals(Table.blocks(SLICE) - 1, (SLICE.size() - 1) / perBlock);
+    }
+
+    @Test
+    public void evictedBlocksAreReadAgain() throws IOException {
+        // one block per stripe
+        BlockCache cache = new BlockCache(0);
+        MappedTable mapped = MappedTable.open(file, cache);
+        int blocks = Table.blocks(SLICE);
+        Random random = new Random(7);
+        for (int n = 0; n < 200000; n++) {
+            long i = (long) (random.nextDouble() * SLICE.size());
+            assertEquals("index " + i, table.get(i), mapped.get(i));
+        }
+        assertTrue(cache.size() < blocks);
+        for (long i = SLICE.size() - 1; i >= 0; i--) {
+            assertEquals("index " + i, table.get(i), mapped.get(i));
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedBlockIsEvicted() throws IOException {
+        BlockCache cache = new BlockCache(0);
+        MappedTable mapped = MappedTable.open(file, cache);
+        long perBlock = 4L * Table.BLOCK_BYTES;
+        mapped.get(0);
+        assertTrue(cache.contains(mapped, 0));
+        // read other blocks until one of them takes the place of block 0
+        int other = 1;
+        while (true) {
+            mapped.get(other * perBlock);
+            if (!cache.contains(mapped, 0)) {
+                break;
+            }
+            other++;
+            assertTrue("block 0 is never evicted", other < Table.blocks(SLICE));
+        }
+        assertTrue(cache.contains(mapped, other));
+        assertEquals(table.get(1), mapped.get(1));
+        assertTrue(cache.contains(mapped, 0));
+        assertFalse(cache.contains(mapped, other));
+        assertEquals(table.get(other * perBlock + 1), mapped.get(other * perBlock + 1));
+    }
+
+    @Test
+    public void tablesShareTheCache() throws IOException {
+        BlockCache cache = new BlockCache(1L << 24);
+        MappedTable a = MappedTable.open(file, cache), b = MappedTable.open(file, cache);
+        assertEquals(table.get(100), a.get(100));
+        assertTrue(cache.contains(a, 0));
+        assertFalse(cache.contains(b, 0));
+        assertEquals(table.get(100), b.get(100));
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,131 @@
+package nl.tue.s2id90.group27.egdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the index of Slice: decode() and index() are each other's
+ * inverse, and the indices are a perfect hash of the positions of a slice.
+ *
+ * @author Luca Weibel and Michiel Verburg
+ */
+public class SliceTest {
+
+    private static final long WHITE_PROMOTION = 0x3EL;            // 1..5
+    private static final long BLACK_PROMOTION = 0x7C00000000000L; // 46..50
+
+    @Test
+    public void everyIndexOfSmallSlicesRoundTrips() {
+        for (Slice s : Generator.slices(3)) {
+            long[] position = new long[3];
+            long positions = 0;
+            for (long i = 0; i < s.size(); i++) {
+                if (s.decode(i, position)) {
+                    assertValid(s, position);
+                    assertEquals(s + " index " + i, i, s.index(position[0], position[1], position[2]));
+                    positions++;
+                }
+            }
+            assertEquals(s.toString(), count(s), positions);
+        }
+    }
+
+    @Test
+    public void randomPositionsOfLargeSlicesRoundTrip() {
+        Random random = new Random(27);
+        Slice[] slices = {new Slice(3, 0, 3, 0), new Slice(2, 1, 1, 2), new Slice(5, 0, 4, 0), new Slice(0, 4, 0, 5)};
+        for (Slice s : slices) {
+            long[] position = new long[3];
+            for (int n = 0; n < 10000; n++) {
+                long wm = place(random, s.whiteMen, ~WHITE_PROMOTION);
+                long bm = place(random, s.blackMen, ~wm & ~BLACK_PROMOTION);
+                long wk = place(random, s.whiteKings, ~wm & ~bm);
+                long bk = place(random, s.blackKings, ~wm & ~bm & ~wk);
+                long white = wm | wk, black = bm | bk, kings = wk | bk;
+                long index = s.index(white, black, kings);
+                assertTrue(s + " index " + index, index >= 0 && index < s.size());
+                assertTrue(s.decode(index, position));
+                assertEquals(white, position[0]);
+                assertEquals(black, position[1]);
+                assertEquals(kings, position[2]);
+            }
+        }
+    }
+
+    @Test
+    public void sliceOfDecodedPosition() {
+        Slice s = new Slice(1, 2, 2, 1);
+        long[] position = new long[3];
+        for (long i = 0; i < s.size(); i += 9973) {
+            if (s.decode(i, position)) {
+                assertEquals(s, Slice.of(position[0], position[1], position[2]));
+            }
+        }
+    }
+
+    /**
+     * asserts that the pieces of a decoded position do not overlap and that
+     * no man stands on its promotion row.
+     */
+    private static void assertValid(Slice s, long[] position) {
+        long white = position[0], black = position[1], kings = position[2];
+        assertEquals(0, white & black);
+        assertEquals(0, kings & ~(white | black));
+        assertEquals(0, (white | black) & 1);
+        assertEquals(0, white & ~kings & WHITE_PROMOTION);
+        assertEquals(0, black & ~kings & BLACK_PROMOTION);
+        assertEquals(s, Slice.of(white, black, kings));
+    }
+
+    /**
+     * @return the number of positions of a slice, counted by placing the
+     * pieces field by field
+     */
+    private static long count(Slice s) {
+        long n = 0;
+        for (long wm : combinations(s.whiteMen, ~WHITE_PROMOTION)) {
+            for (long bm : combinations(s.blackMen, ~BLACK_PROMOTION & ~wm)) {
+                for (long wk : combinations(s.whiteKings, ~wm & ~bm)) {
+                    n += combinations(s.blackKings, ~wm & ~bm & ~wk).length;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return all sets of k of the fields 1..50 in the given mask
+     */
+    private static long[] combinations(int k, long mask) {
+        if (k == 0) {
+            return new long[]{0};
+        }
+        List<Long> sets = new ArrayList<>();
+        for (int f = 1; f <= 50; f++) {
+            if ((mask >>> f & 1) != 0) {
+                for (long rest : combinations(k - 1, mask & -(1L << (f + 1)))) {
+                    sets.add(rest | 1L << f);
+                }
+            }
+        }
+        return sets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return k random fields of 1..50 in the given mask
+     */
+    private static long place(Random random, int k, long mask) {
+        long fields = 0;
+        while (Long.bitCount(fields) < k) {
+            int f = 1 + random.nextInt(50);
+            if ((mask >>> f & 1) != 0) {
+                fields |= 1L << f;
+            }
+        }
+        return fields;
+    }
+}